@@ -3,15 +3,34 @@ package org.bbop.termgenie.index;
 import static org.bbop.termgenie.index.AutoCompletionTools.*;
 
 import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
@@ -27,24 +46,44 @@ import org.apache.lucene.document.FieldSelectorResult;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FuzzyQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Version;
 import org.bbop.termgenie.core.TermSuggestion;
 import org.bbop.termgenie.core.rules.ReasonerFactory;
 import org.bbop.termgenie.core.rules.SharedReasoner;
 import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 import owltools.graph.OWLGraphWrapper;
 import owltools.graph.OWLGraphWrapper.ISynonym;
 
 /**
- * Basic auto-completion using an in-memory lucene index.
+ * Basic auto-completion using a lucene index. The index is either kept in
+ * memory or, if a location is given, in a memory mapped directory, which is
+ * re-used after a restart.
  */
 public class LuceneMemoryOntologyIndex implements Closeable {
 
@@ -52,14 +91,17 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 
 	private static final Version version = Version.LUCENE_33;
 	private static final String LABEL_FIELD = "label";
-	private static final String SYNOYM_FIELD_EXACT = "synonyms_exact";
-	private static final String SYNOYM_FIELD_NARROW = "synonyms_narrow";
-	private static final String SYNOYM_FIELD_RELATED = "synonyms_related";
-	private static final String SYNOYM_FIELD_BROAD = "synonyms_broad";
-	private static final String DESCRIPTION_FIELD = "description";
 	private static final String BRANCH_FIELD = "branch";
 	private static final String ID_FIELD = "id";
-	private static final String LENGTH_FIELD = "length";
+	private static final String PAYLOAD_FIELD = "payload";
+	private static final String KEY_USER_DATA = "termgenie.key";
+	private static final String FORMAT_USER_DATA = "termgenie.format";
+	// version of the stored fields, see TermPayload
+	private static final String FORMAT = "2";
+	private static final int INDEX_THREADS = Runtime.getRuntime().availableProcessors();
+	private static final int MIN_CHUNK_SIZE = 1000;
+	// maximum number of terms per fuzzy token
+	private static final int FUZZY_MAX_EXPANSIONS = 50;
 	
 	private static final FieldSelector FIELD_SELECTOR = new FieldSelector() {
 
@@ -67,16 +109,32 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 
 		@Override
 		public FieldSelectorResult accept(String fieldName) {
-			// only load the id and length field
-			if (BRANCH_FIELD.equals(fieldName)) {
-				return FieldSelectorResult.NO_LOAD;
+			// only the payload is required for a search result
+			if (PAYLOAD_FIELD.equals(fieldName)) {
+				return FieldSelectorResult.LOAD_AND_BREAK;
 			}
-			return FieldSelectorResult.LOAD;
+			return FieldSelectorResult.NO_LOAD;
 		}
 	};
 
 	private final Analyzer analyzer;
-	private final IndexSearcher searcher;
+	private final List<String> roots;
+	private final String dlQuery;
+	private final List<BranchDetails> branches;
+	private final ReasonerFactory reasonerFactory;
+	private final Directory directory;
+	private final boolean persistent;
+	private volatile String commitKey = null;
+	private final IndexWriter writer;
+	// indexed content for each term id
+	private final Map<String, IndexedContent> contents = new HashMap<String, IndexedContent>();
+	// threads for extracting the term data, idle threads terminate
+	private final ThreadPoolExecutor pool = createPool();
+	private final SearcherManager searcherManager;
+	// cached doc id sets per branch and segment
+	private final Map<String, Filter> branchFilters;
+	// latest suggester, attached to the next searcher, see SuggesterSearcher
+	private volatile PrefixSuggester suggester;
 
 	public static class BranchDetails {
 		
@@ -140,6 +198,8 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 	}
 	
 	/**
+	 * Create a new in-memory index.
+	 * 
 	 * @param ontology
 	 * @param roots
 	 * @param dlQuery
@@ -152,12 +212,76 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 			String dlQuery,
 			List<BranchDetails> branches,
 			ReasonerFactory reasonerFactory) throws IOException
+	{
+		this(ontology, roots, dlQuery, branches, reasonerFactory, new RAMDirectory(), null);
+	}
+
+	/**
+	 * Create a new persistent index in the given location. Any previous
+	 * index in this location is replaced.
+	 * 
+	 * @param ontology
+	 * @param roots
+	 * @param dlQuery
+	 * @param branches
+	 * @param reasonerFactory
+	 * @param location the index directory
+	 * @param key the key of the ontology content, see
+	 *            {@link #createKey(OWLGraphWrapper, List, String, List)}
+	 * @throws IOException
+	 */
+	public LuceneMemoryOntologyIndex(OWLGraphWrapper ontology,
+			List<String> roots,
+			String dlQuery,
+			List<BranchDetails> branches,
+			ReasonerFactory reasonerFactory,
+			File location,
+			String key) throws IOException
+	{
+		this(ontology, roots, dlQuery, branches, reasonerFactory, new MMapDirectory(location), key);
+	}
+
+	/**
+	 * Open an existing persistent index, created with
+	 * {@link #LuceneMemoryOntologyIndex(OWLGraphWrapper, List, String, List, ReasonerFactory, File, String)}
+	 * . Use {@link #getKey(File)} to check, whether the index is up-to-date.
+	 * 
+	 * @param location
+	 * @param roots
+	 * @param dlQuery
+	 * @param branches
+	 * @param reasonerFactory
+	 * @return index
+	 * @throws IOException
+	 */
+	public static LuceneMemoryOntologyIndex open(File location,
+			List<String> roots,
+			String dlQuery,
+			List<BranchDetails> branches,
+			ReasonerFactory reasonerFactory) throws IOException
+	{
+		return new LuceneMemoryOntologyIndex(null, roots, dlQuery, branches, reasonerFactory, new MMapDirectory(location), null);
+	}
+
+	private LuceneMemoryOntologyIndex(OWLGraphWrapper ontology,
+			List<String> roots,
+			String dlQuery,
+			List<BranchDetails> branches,
+			ReasonerFactory reasonerFactory,
+			Directory directory,
+			String key) throws IOException
 	{
 		super();
 		if (logger.isInfoEnabled()) {
 			StringBuilder message = new StringBuilder();
-			message.append("Start creating lucene memory index for: ");
-			message.append(ontology.getOntologyId());
+			if (ontology != null) {
+				message.append("Start creating lucene index for: ");
+				message.append(ontology.getOntologyId());
+			}
+			else {
+				message.append("Opening lucene index: ");
+				message.append(directory);
+			}
 			if (roots != null) {
 				message.append(" Root: ");
 				message.append(roots);
@@ -181,6 +305,10 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 			logger.info(message.toString());
 		}
 
+		this.roots = roots;
+		this.dlQuery = dlQuery;
+		this.branches = branches;
+		this.reasonerFactory = reasonerFactory;
 		Map<String, Analyzer> alternatives = new HashMap<String, Analyzer>();
 		WhitespaceAnalyzer whitespaceAnalyzer = new WhitespaceAnalyzer(version);
 		alternatives.put(ID_FIELD, whitespaceAnalyzer);
@@ -188,10 +316,263 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 			alternatives.put(BRANCH_FIELD, whitespaceAnalyzer);
 		}
 		analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(version), alternatives);
+		branchFilters = new HashMap<String, Filter>();
+		if (branches != null) {
+			for (BranchDetails branch : branches) {
+				String name = replaceWhitespaces(branch.getName());
+				Query query = new TermQuery(new Term(BRANCH_FIELD, name));
+				branchFilters.put(name, new CachingWrapperFilter(new QueryWrapperFilter(query)));
+			}
+		}
 
-		RAMDirectory directory = new RAMDirectory();
+		this.directory = directory;
+		this.persistent = !(directory instanceof RAMDirectory);
 		IndexWriterConfig conf = new IndexWriterConfig(version, analyzer);
-		IndexWriter writer = new IndexWriter(directory, conf);
+		conf.setMaxThreadStates(Math.max(IndexWriterConfig.DEFAULT_MAX_THREAD_STATES, INDEX_THREADS));
+		conf.setOpenMode(ontology != null ? OpenMode.CREATE : OpenMode.APPEND);
+		writer = new IndexWriter(directory, conf);
+		if (ontology != null) {
+			IndexStats stats = index(ontology);
+			commit(key);
+			if (logger.isInfoEnabled()) {
+				logger.info("Finished creating index for: " + ontology.getOntologyId());
+				stats.log();
+			}
+		}
+		else {
+			Map<String, String> userData = IndexReader.getCommitUserData(directory);
+			if (userData != null) {
+				commitKey = userData.get(KEY_USER_DATA);
+			}
+			load();
+			logger.info("Finished opening index with " + contents.size() + " terms");
+		}
+		// near real-time searchers, the writer stays open for updates
+		searcherManager = new SearcherManager(writer, true, new SearcherFactory() {
+
+			@Override
+			public IndexSearcher newSearcher(IndexReader reader) throws IOException {
+				// the suggester is built before the refresh, both share the same content
+				return new SuggesterSearcher(reader, suggester);
+			}
+		});
+	}
+
+	/**
+	 * Update the index for the changed ontology. Only the documents of added,
+	 * modified or removed terms are written, unchanged terms are detected
+	 * by comparing their indexed content. Afterwards the searcher
+	 * is refreshed, running searches keep using the previous searcher.
+	 * 
+	 * @param ontology
+	 * @throws IOException
+	 */
+	public void update(OWLGraphWrapper ontology) throws IOException {
+		update(ontology, null);
+	}
+
+	/**
+	 * Update the index for the changed ontology, see
+	 * {@link #update(OWLGraphWrapper)}. A persistent index is committed with
+	 * the new key.
+	 * 
+	 * @param ontology
+	 * @param key the key of the ontology content or null
+	 * @throws IOException
+	 */
+	public synchronized void update(OWLGraphWrapper ontology, String key) throws IOException {
+		logger.info("Start updating lucene index for: " + ontology.getOntologyId());
+		IndexStats stats = index(ontology);
+		commit(key);
+		if (stats.getChangeCount() > 0) {
+			searcherManager.maybeRefresh();
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Finished updating index for: " + ontology.getOntologyId());
+			stats.log();
+		}
+	}
+
+	/**
+	 * Replace all documents in the index. Running searches keep using the
+	 * previous documents until the new ones are committed.
+	 * 
+	 * @param ontology
+	 * @param key the key of the ontology content or null
+	 * @throws IOException
+	 */
+	public synchronized void rebuild(OWLGraphWrapper ontology, String key) throws IOException {
+		logger.info("Start re-building lucene index for: " + ontology.getOntologyId());
+		writer.deleteAll();
+		contents.clear();
+		IndexStats stats = index(ontology);
+		commit(key);
+		searcherManager.maybeRefresh();
+		if (logger.isInfoEnabled()) {
+			logger.info("Finished re-building index for: " + ontology.getOntologyId());
+			stats.log();
+		}
+	}
+
+	private void commit(String key) throws IOException {
+		if (persistent) {
+			Map<String, String> userData = new HashMap<String, String>();
+			userData.put(FORMAT_USER_DATA, FORMAT);
+			// an empty key marks an index with unknown ontology content
+			userData.put(KEY_USER_DATA, key != null ? key : "");
+			writer.commit(userData);
+			commitKey = key;
+		}
+	}
+
+	/**
+	 * @return the key of the last commit of a persistent index or null
+	 */
+	public String getCommitKey() {
+		return commitKey;
+	}
+
+	/**
+	 * Retrieve the key of the last commit of a persistent index.
+	 * 
+	 * @param location
+	 * @return key or null, if there is no index, no key or the index uses an
+	 *         outdated format. The key is empty, if the ontology content was
+	 *         unknown.
+	 * @throws IOException
+	 */
+	public static String getKey(File location) throws IOException {
+		if (!location.isDirectory()) {
+			return null;
+		}
+		Directory directory = new MMapDirectory(location);
+		try {
+			if (!IndexReader.indexExists(directory)) {
+				return null;
+			}
+			Map<String, String> userData = IndexReader.getCommitUserData(directory);
+			if (userData == null || !FORMAT.equals(userData.get(FORMAT_USER_DATA))) {
+				return null;
+			}
+			return userData.get(KEY_USER_DATA);
+		}
+		finally {
+			directory.close();
+		}
+	}
+
+	/**
+	 * Create a key for the loaded version of the ontology and the index
+	 * configuration. The key is a digest of the source files of the
+	 * ontology, its imports and support ontologies. Compute it once per
+	 * loaded version.
+	 * 
+	 * @param ontology
+	 * @param roots
+	 * @param dlQuery
+	 * @param branches
+	 * @return key or null, if an ontology was not loaded from a local file
+	 *         and has no version IRI
+	 * @throws IOException
+	 */
+	public static String createKey(OWLGraphWrapper ontology,
+			List<String> roots,
+			String dlQuery,
+			List<BranchDetails> branches) throws IOException
+	{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException exception) {
+			throw new RuntimeException(exception);
+		}
+		StringBuilder config = new StringBuilder();
+		config.append(roots).append('\n').append(dlQuery).append('\n');
+		if (branches != null) {
+			for (BranchDetails branch : branches) {
+				config.append(branch.getName()).append(' ');
+				config.append(branch.getRoots()).append(' ');
+				config.append(branch.getDlQuery()).append('\n');
+			}
+		}
+		digest.update(config.toString().getBytes("UTF-8"));
+
+		// all loaded ontologies, including merged support ontologies
+		OWLOntologyManager manager = ontology.getManager();
+		Set<OWLOntology> allOntologies = ontology.getAllOntologies();
+		Map<String, OWLOntology> documents = new TreeMap<String, OWLOntology>();
+		for (OWLOntology owlOntology : manager.getOntologies()) {
+			documents.put(manager.getOntologyDocumentIRI(owlOntology).toString(), owlOntology);
+		}
+		byte[] buffer = new byte[64 * 1024];
+		for (Entry<String, OWLOntology> entry : documents.entrySet()) {
+			IRI documentIRI = IRI.create(entry.getKey());
+			if ("file".equals(documentIRI.getScheme())) {
+				digest.update(entry.getKey().getBytes("UTF-8"));
+				InputStream inputStream = new FileInputStream(new File(documentIRI.toURI()));
+				try {
+					int count;
+					while ((count = inputStream.read(buffer)) > 0) {
+						digest.update(buffer, 0, count);
+					}
+				}
+				finally {
+					inputStream.close();
+				}
+			}
+			else if (allOntologies.contains(entry.getValue())) {
+				OWLOntologyID id = entry.getValue().getOntologyID();
+				if (!id.getVersionIRI().isPresent()) {
+					// content unknown
+					return null;
+				}
+				digest.update(id.toString().getBytes("UTF-8"));
+			}
+			// ignore any other ontologies, i.e. scratch ontologies
+		}
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(String.format("%02x", b & 0xff));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Restore the indexed content and the suggester from the stored fields.
+	 */
+	private void load() throws IOException {
+		IndexReader reader = IndexReader.open(writer, true);
+		try {
+			PrefixSuggester.Builder suggesterBuilder = new PrefixSuggester.Builder(StandardAnalyzer.STOP_WORDS_SET);
+			final int maxDoc = reader.maxDoc();
+			for (int i = 0; i < maxDoc; i++) {
+				if (reader.isDeleted(i)) {
+					continue;
+				}
+				Document doc = reader.document(i);
+				byte[] payload = doc.getBinaryValue(PAYLOAD_FIELD);
+				TermSuggestion term = TermPayload.decode(payload);
+				List<String> branchNames = getValues(doc, BRANCH_FIELD);
+				contents.put(term.getIdentifier(), new IndexedContent(payload, branchNames));
+				suggesterBuilder.add(term, TermPayload.decodeExactSynonyms(payload), branchNames);
+			}
+			suggester = suggesterBuilder.build();
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private static List<String> getValues(Document doc, String field) {
+		String[] values = doc.getValues(field);
+		if (values != null && values.length > 0) {
+			return Arrays.asList(values);
+		}
+		return null;
+	}
+
+	private IndexStats index(OWLGraphWrapper ontology) throws IOException {
+		final long start = System.currentTimeMillis();
 		Set<OWLObject> allOWLObjects;
 		SharedReasoner reasoner = reasonerFactory.getSharedReasoner(ontology);
 		if (dlQuery != null) {
@@ -219,90 +600,384 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 					branchInfos.add(name, reasoner.executeDLQuery(branchDLQuery, ontology));
 				}
 			}
-			branchInfos.setup();
 		}
-		int npeCounter = 0;
-		int obsoleteCounter = 0;
+		// term ordinals for the branch membership
+		List<OWLObject> owlObjects = new ArrayList<OWLObject>(allOWLObjects);
+		if (branchInfos != null) {
+			branchInfos.setup(owlObjects);
+		}
+		IndexStats stats = new IndexStats(branchInfos);
+		final boolean initial = contents.isEmpty();
+		Set<String> indexed = new HashSet<String>();
+		PrefixSuggester.Builder suggesterBuilder = new PrefixSuggester.Builder(StandardAnalyzer.STOP_WORDS_SET);
+
+		// extract the term data and write the changed documents in parallel
+		final int objectCount = owlObjects.size();
+		final TermData[] terms = new TermData[objectCount];
+		long extractStart = System.currentTimeMillis();
+		stats.threads = extract(ontology, owlObjects, branchInfos, terms, initial);
+		stats.extractTime = System.currentTimeMillis() - extractStart;
 
-		for (OWLObject owlObject : allOWLObjects) {
-			boolean isObsolete = ontology.getIsObsolete(owlObject);
-			if (isObsolete) {
-				obsoleteCounter += 1;
+		// update the bookkeeping in order
+		for (int ordinal = 0; ordinal < objectCount; ordinal++) {
+			TermData term = terms[ordinal];
+			if (term == null) {
+				// no label
 				continue;
 			}
-			String value = ontology.getLabel(owlObject);
-			if (value != null) {
-				Document doc = new Document();
-				doc.add(new Field(LABEL_FIELD, value, Store.YES, Index.ANALYZED));
-				doc.add(new Field(LENGTH_FIELD, Integer.toString(value.length()), Store.YES, Index.NO));
-				
-				List<ISynonym> synonyms = ontology.getOBOSynonyms(owlObject);
-				if (synonyms != null && !synonyms.isEmpty()) {
-					for (ISynonym synonym : synonyms) {
-						String label = synonym.getLabel();
-						String scope = synonym.getScope();
-						if (label != null && label.length() > 1) {
-							if (scope == null || OboFormatTag.TAG_RELATED.getTag().equals(scope)) {
-								doc.add(new Field(SYNOYM_FIELD_RELATED, label, Store.YES, Index.NO));
-							}
-							else if (OboFormatTag.TAG_NARROW.getTag().equals(scope)) {
-								doc.add(new Field(SYNOYM_FIELD_NARROW, label, Store.YES, Index.NO));
-							}
-							else if (OboFormatTag.TAG_EXACT.getTag().equals(scope)) {
-								doc.add(new Field(SYNOYM_FIELD_EXACT, label, Store.YES, Index.NO));
-							}
-							else if (OboFormatTag.TAG_BROAD.getTag().equals(scope)) {
-								doc.add(new Field(SYNOYM_FIELD_BROAD, label, Store.YES, Index.NO));
-							}
-						}
+			if (term == TermData.OBSOLETE) {
+				stats.obsoleteCounter += 1;
+				continue;
+			}
+			if (term == TermData.NPE) {
+				stats.npeCounter += 1;
+				continue;
+			}
+			indexed.add(term.identifier);
+			if (branchInfos != null && branchInfos.isValid()) {
+				branchInfos.count(ordinal);
+			}
+			addSuggestion(suggesterBuilder, term.payload, term.branchNames);
+			contents.put(term.identifier, new IndexedContent(term.payload, term.branchNames));
+			if (term.changed) {
+				if (term.known) {
+					stats.updatedCounter += 1;
+				}
+				else {
+					stats.addedCounter += 1;
+				}
+			}
+		}
+		
+		// remove deleted and obsolete terms
+		Iterator<String> iterator = contents.keySet().iterator();
+		while (iterator.hasNext()) {
+			String identifier = iterator.next();
+			if (!indexed.contains(identifier)) {
+				writer.deleteDocuments(new Term(ID_FIELD, identifier));
+				iterator.remove();
+				stats.deletedCounter += 1;
+			}
+		}
+		suggester = suggesterBuilder.build();
+		stats.totalTime = System.currentTimeMillis() - start;
+		return stats;
+	}
+
+	/**
+	 * Extract the term data for all objects and write the new or changed
+	 * documents. The objects are split into chunks, which are processed
+	 * concurrently. The ontology must not change during this call.
+	 * 
+	 * @return the number of threads used
+	 */
+	private int extract(OWLGraphWrapper ontology,
+			List<OWLObject> owlObjects,
+			BranchInfos branchInfos,
+			TermData[] terms,
+			boolean initial) throws IOException
+	{
+		final int count = owlObjects.size();
+		final int threads = Math.max(1, Math.min(INDEX_THREADS, count / MIN_CHUNK_SIZE));
+		if (threads == 1) {
+			new ExtractTask(ontology, owlObjects, branchInfos, terms, initial, 0, count).call();
+			return threads;
+		}
+		// more chunks than threads, to balance terms with many synonyms
+		int chunkCount = threads * 4;
+		int chunkSize = (count + chunkCount - 1) / chunkCount;
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(chunkCount);
+		try {
+			for (int from = 0; from < count; from += chunkSize) {
+				int to = Math.min(count, from + chunkSize);
+				futures.add(pool.submit(new ExtractTask(ontology, owlObjects, branchInfos, terms, initial, from, to)));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IOException(exception);
+		} catch (ExecutionException exception) {
+			Throwable cause = exception.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+		finally {
+			// stop the remaining chunks after a failure, the pool is re-used
+			for (Future<Void> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return threads;
+	}
+
+	private static ThreadPoolExecutor createPool() {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(INDEX_THREADS, INDEX_THREADS,
+				60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+
+					private final AtomicInteger counter = new AtomicInteger(0);
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "lucene-index-build-" + counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
 					}
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	private class ExtractTask implements Callable<Void> {
+
+		private final OWLGraphWrapper ontology;
+		private final List<OWLObject> owlObjects;
+		private final BranchInfos branchInfos;
+		private final TermData[] terms;
+		private final boolean initial;
+		private final int from;
+		private final int to;
+
+		ExtractTask(OWLGraphWrapper ontology,
+				List<OWLObject> owlObjects,
+				BranchInfos branchInfos,
+				TermData[] terms,
+				boolean initial,
+				int from,
+				int to)
+		{
+			this.ontology = ontology;
+			this.owlObjects = owlObjects;
+			this.branchInfos = branchInfos;
+			this.terms = terms;
+			this.initial = initial;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			for (int ordinal = from; ordinal < to; ordinal++) {
+				OWLObject owlObject = owlObjects.get(ordinal);
+				boolean isObsolete = ontology.getIsObsolete(owlObject);
+				if (isObsolete) {
+					terms[ordinal] = TermData.OBSOLETE;
+					continue;
 				}
-				String def = ontology.getDef(owlObject);
-				if (def != null && def.length() > 1) {
-					doc.add(new Field(DESCRIPTION_FIELD, def, Store.YES, Index.NO));
+				String value = ontology.getLabel(owlObject);
+				if (value == null) {
+					continue;
 				}
-				
+				String identifier;
 				try {
-					String identifier = ontology.getIdentifier(owlObject);
-					doc.add(new Field(ID_FIELD, identifier, Store.YES, Index.NOT_ANALYZED));
-					if (branchInfos != null && branchInfos.isValid()) {
-						List<String> brancheNames = branchInfos.getBranches(owlObject);
-						if (!brancheNames.isEmpty()) {
-							for (String branchName : brancheNames) {
-								doc.add(new Field(BRANCH_FIELD, branchName, Store.NO, Index.NOT_ANALYZED));
-							}
-						}
-					}
-					writer.addDocument(doc);
+					identifier = ontology.getIdentifier(owlObject);
 				} catch (NullPointerException exception) {
-					npeCounter += 1;
 					logger.error("NPE for getting an ID for: " + owlObject);
+					terms[ordinal] = TermData.NPE;
+					continue;
 				}
+				List<String> brancheNames = null;
+				if (branchInfos != null && branchInfos.isValid()) {
+					brancheNames = branchInfos.getBranches(ordinal);
+				}
+				List<ISynonym> synonyms = ontology.getOBOSynonyms(owlObject);
+				String def = ontology.getDef(owlObject);
+				byte[] payload = createPayload(identifier, value, synonyms, def);
+
+				// only read access to the indexed content during the extraction
+				IndexedContent previous = contents.get(identifier);
+				boolean known = previous != null;
+				boolean changed = previous == null || !previous.matches(payload, brancheNames);
+				if (changed) {
+					// the index writer is thread-safe
+					Document doc = createDocument(identifier, value, payload, brancheNames);
+					if (initial) {
+						writer.addDocument(doc);
+					}
+					else {
+						writer.updateDocument(new Term(ID_FIELD, identifier), doc);
+					}
+				}
+				terms[ordinal] = new TermData(identifier, payload, brancheNames, known, changed);
 			}
+			return null;
+		}
+	}
+
+	/**
+	 * Extracted data of one term.
+	 */
+	private static final class TermData {
+
+		static final TermData OBSOLETE = new TermData(null, null, null, false, false);
+		static final TermData NPE = new TermData(null, null, null, false, false);
 
+		final String identifier;
+		final byte[] payload;
+		final List<String> branchNames;
+		final boolean known;
+		final boolean changed;
+
+		TermData(String identifier,
+				byte[] payload,
+				List<String> branchNames,
+				boolean known,
+				boolean changed)
+		{
+			this.identifier = identifier;
+			this.payload = payload;
+			this.branchNames = branchNames;
+			this.known = known;
+			this.changed = changed;
 		}
+	}
 
-		writer.close();
+	/**
+	 * Content of an indexed term: the encoded payload, which contains the
+	 * label, synonyms and definition, and the branch names. The content is
+	 * compared exactly, a hash would miss changes on a collision.
+	 */
+	private static final class IndexedContent {
 
-		searcher = new IndexSearcher(IndexReader.open(directory));
-		if (logger.isInfoEnabled()) {
-			logger.info("Finished creating index for: " + ontology.getOntologyId());
-			if (branchInfos != null && branchInfos.isValid()) {
-				logger.info(branchInfos.createSummary());
+		private final byte[] payload;
+		private final List<String> branchNames;
+
+		IndexedContent(byte[] payload, List<String> branchNames) {
+			this.payload = payload;
+			this.branchNames = branchNames != null && !branchNames.isEmpty() ? branchNames : null;
+		}
+
+		boolean matches(byte[] payload, List<String> branchNames) {
+			if (!Arrays.equals(this.payload, payload)) {
+				return false;
+			}
+			if (branchNames == null || branchNames.isEmpty()) {
+				return this.branchNames == null;
+			}
+			return branchNames.equals(this.branchNames);
+		}
+	}
+
+	/**
+	 * Encode the stored data of a term. The synonyms are ordered by scope:
+	 * exact, narrow, related and broad. Synonyms without a scope are treated
+	 * as related synonyms.
+	 */
+	private static byte[] createPayload(String identifier,
+			String value,
+			List<ISynonym> synonyms,
+			String def)
+	{
+		List<String> synonymList = null;
+		int exactCount = 0;
+		if (synonyms != null && !synonyms.isEmpty()) {
+			String[] scopes = { OboFormatTag.TAG_EXACT.getTag(),
+					OboFormatTag.TAG_NARROW.getTag(),
+					OboFormatTag.TAG_RELATED.getTag(),
+					OboFormatTag.TAG_BROAD.getTag() };
+			for (String scope : scopes) {
+				for (ISynonym synonym : synonyms) {
+					String label = synonym.getLabel();
+					String synonymScope = synonym.getScope();
+					if (synonymScope == null) {
+						synonymScope = OboFormatTag.TAG_RELATED.getTag();
+					}
+					if (label != null && label.length() > 1 && scope.equals(synonymScope)) {
+						if (synonymList == null) {
+							synonymList = new ArrayList<String>(synonyms.size());
+						}
+						synonymList.add(label);
+						if (scope.equals(scopes[0])) {
+							exactCount += 1;
+						}
+					}
+				}
 			}
-			if (obsoleteCounter > 0) {
-				logger.info("Skipped " + obsoleteCounter + " obsolete terms during index creation");
+		}
+		String description = def != null && def.length() > 1 ? def : null;
+		return TermPayload.encode(identifier, value, description, synonymList, exactCount);
+	}
+
+	private static void addSuggestion(PrefixSuggester.Builder builder,
+			byte[] payload,
+			List<String> brancheNames)
+	{
+		TermSuggestion term = TermPayload.decode(payload);
+		builder.add(term, TermPayload.decodeExactSynonyms(payload), brancheNames);
+	}
+
+	private static Document createDocument(String identifier,
+			String value,
+			byte[] payload,
+			List<String> brancheNames)
+	{
+		Document doc = new Document();
+		// the label and id are only searched, the stored data is in the payload
+		doc.add(new Field(LABEL_FIELD, value, Store.NO, Index.ANALYZED));
+		doc.add(new Field(ID_FIELD, identifier, Store.NO, Index.NOT_ANALYZED));
+		doc.add(new Field(PAYLOAD_FIELD, payload));
+		if (brancheNames != null && !brancheNames.isEmpty()) {
+			for (String branchName : brancheNames) {
+				doc.add(new Field(BRANCH_FIELD, branchName, Store.YES, Index.NOT_ANALYZED));
 			}
-			if (npeCounter > 0) {
-				logger.info("During the index creation there were " + npeCounter + " NPEs");
+		}
+		return doc;
+	}
+
+	private static class IndexStats {
+
+		private final BranchInfos branchInfos;
+		int npeCounter = 0;
+		int obsoleteCounter = 0;
+		int addedCounter = 0;
+		int updatedCounter = 0;
+		int deletedCounter = 0;
+		long extractTime = 0;
+		long totalTime = 0;
+		int threads = 1;
+
+		IndexStats(BranchInfos branchInfos) {
+			this.branchInfos = branchInfos;
+		}
+
+		int getChangeCount() {
+			return addedCounter + updatedCounter + deletedCounter;
+		}
+
+		void log() {
+			if (logger.isInfoEnabled()) {
+				if (branchInfos != null && branchInfos.isValid()) {
+					logger.info(branchInfos.createSummary());
+				}
+				logger.info("Added " + addedCounter + ", updated " + updatedCounter + " and deleted " + deletedCounter + " terms");
+				logger.info("Index time: " + totalTime + " ms, extraction and writing: " + extractTime + " ms with " + threads + " threads");
+				if (obsoleteCounter > 0) {
+					logger.info("Skipped " + obsoleteCounter + " obsolete terms during index creation");
+				}
+				if (npeCounter > 0) {
+					logger.info("During the index creation there were " + npeCounter + " NPEs");
+				}
 			}
 		}
 	}
 
-	private class BranchInfos {
+	/**
+	 * Branch membership of the indexed terms. Each branch is a bit set over
+	 * the term ordinals, build with one pass over the members of the branch.
+	 */
+	private static class BranchInfos {
 
 		List<String> names = new ArrayList<String>();
 		List<Set<OWLObject>> objects = new ArrayList<Set<OWLObject>>();
+		BitSet[] members = null;
 		int[] objectsCounts = null;
 
 		void add(String name, Set<OWLObject> objects) {
@@ -313,29 +988,52 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 			}
 		}
 
-		void setup() {
+		void setup(List<OWLObject> owlObjects) {
+			final int size = owlObjects.size();
+			Map<OWLObject, Integer> ordinals = new HashMap<OWLObject, Integer>(size * 2);
+			for (int i = 0; i < size; i++) {
+				ordinals.put(owlObjects.get(i), Integer.valueOf(i));
+			}
 			int length = names.size();
+			members = new BitSet[length];
 			objectsCounts = new int[length];
 			for (int i = 0; i < length; i++) {
-				objectsCounts[i] = 0;
+				BitSet bitSet = new BitSet(size);
+				for (OWLObject owlObject : objects.get(i)) {
+					Integer ordinal = ordinals.get(owlObject);
+					if (ordinal != null) {
+						bitSet.set(ordinal.intValue());
+					}
+				}
+				members[i] = bitSet;
 			}
+			// the sets are no longer required
+			objects.clear();
 		}
 
 		boolean isValid() {
-			return !names.isEmpty() && objects.size() == names.size() && objectsCounts != null && objectsCounts.length == objects.size();
+			return !names.isEmpty() && members != null && members.length == names.size();
 		}
 
-		List<String> getBranches(OWLObject x) {
-			List<String> branches = new ArrayList<String>(3);
-			for (int i = 0; i < names.size(); i++) {
-				String branchName = names.get(i);
-				Set<OWLObject> objects = this.objects.get(i);
-				if (objects.contains(x)) {
-					branches.add(branchName);
+		void count(int ordinal) {
+			for (int i = 0; i < members.length; i++) {
+				if (members[i].get(ordinal)) {
 					objectsCounts[i] += 1;
 				}
 			}
-			if (!branches.isEmpty()) {
+		}
+
+		List<String> getBranches(int ordinal) {
+			List<String> branches = null;
+			for (int i = 0; i < members.length; i++) {
+				if (members[i].get(ordinal)) {
+					if (branches == null) {
+						branches = new ArrayList<String>(3);
+					}
+					branches.add(names.get(i));
+				}
+			}
+			if (branches != null) {
 				return branches;
 			}
 			return Collections.emptyList();
@@ -379,101 +1077,304 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 	}
 
 	public Collection<SearchResult> search(String queryString, int maxCount, String branch) {
+		return search(queryString, maxCount, branch, 0);
+	}
+
+	/**
+	 * Search the index. Single token queries are answered with the prefix
+	 * suggester first, the lucene query is only executed, if there are less
+	 * than maxCount suggestions. Its hits are appended to the suggestions.
+	 * If maxEdits is greater than zero, terms with small
+	 * spelling differences are also returned, after the exact matches. The
+	 * cost of the fuzzy search is bounded, see
+	 * {@link PrefixSuggester#suggest(String, int, String, int)} for single
+	 * token queries. For multiple tokens, the fuzzy query is only executed,
+	 * if there are no exact matches.
+	 * 
+	 * @param queryString
+	 * @param maxCount
+	 * @param branch the branch name or null
+	 * @param maxEdits maximum edit distance per token, zero to disable the
+	 *            fuzzy search
+	 * @return results
+	 */
+	public Collection<SearchResult> search(String queryString, int maxCount, String branch, int maxEdits) {
+		Batch batch = new Batch();
 		try {
-			if (queryString == null || queryString.isEmpty() || maxCount < 1) {
-				// no empty string search
-				// max count minimum value: 1
-				return Collections.emptyList();
+			return batch.search(queryString, maxCount, branch, maxEdits);
+		}
+		finally {
+			batch.close();
+		}
+	}
+
+	/**
+	 * Start a batch of searches. All searches of the batch use the same
+	 * version of the index: the searcher and the suggester are acquired
+	 * together, when the batch is created. The batch must be closed after the
+	 * last search.
+	 * 
+	 * @return batch
+	 */
+	public Batch batch() {
+		return new Batch();
+	}
+
+	/**
+	 * Several searches on the same version of the index. Instances are not
+	 * thread-safe.
+	 */
+	public final class Batch implements Closeable {
+
+		private final PrefixSuggester batchSuggester;
+		// the filters cache their doc id sets per segment of the searcher
+		private final Map<String, Filter> filters;
+		private IndexSearcher searcher;
+
+		private Batch() {
+			super();
+			// the searcher is reference counted, an update or close does not affect this batch
+			SuggesterSearcher current = (SuggesterSearcher) searcherManager.acquire();
+			searcher = current;
+			batchSuggester = current.suggester;
+			filters = branchFilters;
+		}
+
+		/**
+		 * @param queryString
+		 * @param maxCount
+		 * @param branch the branch name or null
+		 * @param maxEdits maximum edit distance per token, zero to disable
+		 *            the fuzzy search
+		 * @return results
+		 * @see LuceneMemoryOntologyIndex#search(String, int, String, int)
+		 */
+		public Collection<SearchResult> search(String queryString, int maxCount, String branch, int maxEdits) {
+			try {
+				if (queryString == null || queryString.isEmpty() || maxCount < 1) {
+					// no empty string search
+					// max count minimum value: 1
+					return Collections.emptyList();
+				}
+				queryString = queryString.trim();
+				if (queryString.length() <= 1) {
+					// do not search for strings with only one char
+					return Collections.emptyList();
+				}
+				String prefix = PrefixSuggester.getPrefix(queryString);
+				PrefixSuggester currentSuggester = batchSuggester;
+				List<SearchResult> suggestions = Collections.emptyList();
+				if (prefix != null && currentSuggester != null) {
+					// single token typeahead, no query parsing and scoring required
+					suggestions = currentSuggester.suggest(prefix, maxCount, branch, maxEdits);
+					if (suggestions.size() >= maxCount) {
+						return suggestions;
+					}
+				}
+				List<String> tokens = AutoCompletionTools.split(queryString);
+				queryString = AutoCompletionTools.preprocessQuery(queryString, ID_FIELD);
+				if (queryString == null) {
+					// do not search for strings with no tokens
+					return suggestions;
+				}
+
+				Filter filter = null;
+				if (branch != null) {
+					filter = filters.get(replaceWhitespaces(branch));
+					if (filter == null) {
+						// unknown branch
+						return suggestions;
+					}
+				}
+				QueryParser p = new QueryParser(version, LABEL_FIELD, analyzer);
+				Query query = p.parse(queryString);
+				IndexSearcher indexSearcher = searcher;
+				if (indexSearcher == null) {
+					throw new IllegalStateException("The batch has been closed.");
+				}
+				List<SearchResult> results = executeSearch(indexSearcher, query, filter, maxCount);
+				if (results.isEmpty() && suggestions.isEmpty() && maxEdits > 0) {
+					Query fuzzyQuery = createFuzzyQuery(tokens, maxEdits);
+					if (fuzzyQuery != null) {
+						results = executeSearch(indexSearcher, fuzzyQuery, filter, maxCount);
+					}
+				}
+				// fill up the suggestions with the lucene hits, e.g. matches in the id
+				return merge(suggestions, results, maxCount);
+			} catch (Exception exception) {
+				logger.warn("Could not execute search", exception);
 			}
-			queryString = queryString.trim();
-			if (queryString.length() <= 1) {
-				// do not search for strings with only one char
-				return Collections.emptyList();
+			return Collections.emptyList();
+		}
+
+		private List<SearchResult> merge(List<SearchResult> first, List<SearchResult> second, int maxCount) {
+			if (first.isEmpty()) {
+				return second;
 			}
-			queryString = AutoCompletionTools.preprocessQuery(queryString, ID_FIELD);
-			if (queryString == null) {
-				// do not search for strings with no tokens
-				return Collections.emptyList();
+			if (second.isEmpty()) {
+				return first;
 			}
-
-			QueryParser p = new QueryParser(version, LABEL_FIELD, analyzer);
-			if (branch != null) {
-				StringBuilder sb = new StringBuilder();
-				sb.append(BRANCH_FIELD);
-				sb.append(":(");
-				sb.append(replaceWhitespaces(branch));
-				sb.append(") AND (");
-				sb.append(queryString);
-				sb.append(")");
-				queryString = sb.toString();
+			List<SearchResult> merged = new ArrayList<SearchResult>(first);
+			Set<String> identifiers = new HashSet<String>();
+			for (SearchResult result : first) {
+				identifiers.add(result.term.getIdentifier());
 			}
-			Query query = p.parse(queryString);
-			TopDocs topDocs = searcher.search(query, maxCount);
-			if (topDocs.totalHits == 0) {
-				return Collections.emptyList();
+			for (SearchResult result : second) {
+				if (merged.size() >= maxCount) {
+					break;
+				}
+				if (identifiers.add(result.term.getIdentifier())) {
+					merged.add(result);
+				}
 			}
+			return merged;
+		}
 
-			boolean rerank = false;
-			ScoreDoc[] scoreDocs = topDocs.scoreDocs;
-			float maxScore = topDocs.getMaxScore();
-			if (maxCount < 100 && scoreDocs.length == maxCount) {
-				float lastScore = scoreDocs[scoreDocs.length - 1].score;
-				if (fEquals(maxScore, lastScore)) {
-					rerank = true;
-					maxScore = topDocs.getMaxScore();
-					topDocs = searcher.search(query, 100);
-					scoreDocs = topDocs.scoreDocs;
+		@Override
+		public void close() {
+			if (searcher != null) {
+				try {
+					searcherManager.release(searcher);
+				} catch (IOException exception) {
+					logger.warn("Could not release lucene searcher.", exception);
 				}
+				searcher = null;
 			}
+		}
+	}
 
-			List<SearchResult> results = new ArrayList<SearchResult>(scoreDocs.length);
-
-			for (ScoreDoc scoreDoc : scoreDocs) {
-				if (!rerank || fEquals(maxScore, scoreDoc.score)) {
-					Document doc = searcher.doc(scoreDoc.doc, FIELD_SELECTOR);
-					String id = doc.get(ID_FIELD);
-					String label = doc.get(LABEL_FIELD);
-					String lengthString = doc.get(LENGTH_FIELD);
-					int length = Integer.parseInt(lengthString);
-					List<String> synonyms = getSynonyms(doc);
-					String description = doc.get(DESCRIPTION_FIELD);
-					TermSuggestion term = new TermSuggestion(label, id, description, synonyms);
-					results.add(new SearchResult(term , length, scoreDoc.score));
+	/**
+	 * Create a query, which requires all tokens. Tokens with at least
+	 * {@link PrefixSuggester#FUZZY_MIN_LENGTH} characters are matched with a
+	 * bounded {@link FuzzyQuery}, the last token is also matched as prefix.
+	 * 
+	 * @param tokens
+	 * @param maxEdits
+	 * @return query or null
+	 */
+	private static Query createFuzzyQuery(List<String> tokens, int maxEdits) {
+		BooleanQuery query = new BooleanQuery();
+		boolean fuzzy = false;
+		for (int i = 0; i < tokens.size(); i++) {
+			boolean last = i == tokens.size() - 1;
+			for (String token : PrefixSuggester.tokenize(tokens.get(i))) {
+				Term term = new Term(LABEL_FIELD, token);
+				Query tokenQuery;
+				if (token.length() >= PrefixSuggester.FUZZY_MIN_LENGTH) {
+					int edits = Math.min(maxEdits, token.length() < PrefixSuggester.FUZZY_LONG_LENGTH ? 1 : 2);
+					float minSimilarity = 1.0f - ((float) edits / token.length());
+					FuzzyQuery fuzzyQuery = new FuzzyQuery(term, minSimilarity, PrefixSuggester.FUZZY_PREFIX_LENGTH, FUZZY_MAX_EXPANSIONS);
+					fuzzy = true;
+					if (last) {
+						// the last token may be incomplete
+						BooleanQuery either = new BooleanQuery();
+						either.add(new PrefixQuery(term), Occur.SHOULD);
+						either.add(fuzzyQuery, Occur.SHOULD);
+						tokenQuery = either;
+					}
+					else {
+						tokenQuery = fuzzyQuery;
+					}
+				}
+				else if (last) {
+					tokenQuery = new PrefixQuery(term);
+				}
+				else if (StandardAnalyzer.STOP_WORDS_SET.contains(token)) {
+					// not indexed
+					continue;
+				}
+				else {
+					tokenQuery = new TermQuery(term);
 				}
+				query.add(tokenQuery, Occur.MUST);
 			}
-			if (rerank) {
-				AutoCompletionTools.sortbyLabelLength(results);
+		}
+		if (!fuzzy) {
+			// same result as the exact query
+			return null;
+		}
+		return query;
+	}
+
+	private List<SearchResult> executeSearch(IndexSearcher searcher, Query query, Filter filter, int maxCount) throws IOException {
+		TopDocs topDocs = searcher.search(query, filter, maxCount);
+		if (topDocs.totalHits == 0) {
+			return Collections.emptyList();
+		}
+
+		boolean rerank = false;
+		ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+		float maxScore = topDocs.getMaxScore();
+		if (maxCount < 100 && scoreDocs.length == maxCount) {
+			float lastScore = scoreDocs[scoreDocs.length - 1].score;
+			if (fEquals(maxScore, lastScore)) {
+				rerank = true;
+				maxScore = topDocs.getMaxScore();
+				topDocs = searcher.search(query, filter, 100);
+				scoreDocs = topDocs.scoreDocs;
 			}
-			if (results.size() > maxCount) {
-				results = results.subList(0, maxCount);
+		}
+
+		List<Hit> hits = new ArrayList<Hit>(scoreDocs.length);
+		for (ScoreDoc scoreDoc : scoreDocs) {
+			if (!rerank || fEquals(maxScore, scoreDoc.score)) {
+				Document doc = searcher.doc(scoreDoc.doc, FIELD_SELECTOR);
+				hits.add(new Hit(doc.getBinaryValue(PAYLOAD_FIELD), scoreDoc.score));
 			}
-			return results;
-		} catch (Exception exception) {
-			logger.warn("Could not execute search", exception);
 		}
-		return Collections.emptyList();
+		if (rerank) {
+			// the length is read without decoding the payload
+			Collections.sort(hits, Hit.LENGTH_COMPARATOR);
+		}
+		final int size = Math.min(hits.size(), maxCount);
+		List<SearchResult> results = new ArrayList<SearchResult>(size);
+		for (int i = 0; i < size; i++) {
+			Hit hit = hits.get(i);
+			results.add(new SearchResult(TermPayload.decode(hit.payload), hit.length, hit.score));
+		}
+		return results;
 	}
 
-	private List<String> getSynonyms(Document doc) {
-		List<String> synonymList = null;
-		synonymList = addSynonyms(synonymList, SYNOYM_FIELD_EXACT, doc);
-		synonymList = addSynonyms(synonymList, SYNOYM_FIELD_NARROW, doc);
-		synonymList = addSynonyms(synonymList, SYNOYM_FIELD_RELATED, doc);
-		synonymList = addSynonyms(synonymList, SYNOYM_FIELD_BROAD, doc);
-		return synonymList;
+	/**
+	 * Searcher with the suggester for the same version of the index. The
+	 * suggester is only replaced in {@link LuceneMemoryOntologyIndex#update(OWLGraphWrapper, String)}
+	 * and {@link LuceneMemoryOntologyIndex#rebuild(OWLGraphWrapper, String)},
+	 * before the searcher is refreshed.
+	 */
+	private static final class SuggesterSearcher extends IndexSearcher {
+		
+		private final PrefixSuggester suggester;
+
+		SuggesterSearcher(IndexReader reader, PrefixSuggester suggester) {
+			super(reader);
+			this.suggester = suggester;
+		}
 	}
-	
-	private List<String> addSynonyms(List<String> synonymList, String field, Document doc) {
-		String[] synonyms = doc.getValues(field);
-		if (synonyms != null && synonyms.length > 0) {
-			if (synonymList == null) {
-				synonymList = new ArrayList<String>(synonyms.length);
-			}
-			for (String synonym : synonyms) {
-				synonymList.add(synonym);
+
+	/**
+	 * Search hit with the encoded term, decoded only for returned results.
+	 */
+	private static final class Hit {
+
+		static final Comparator<Hit> LENGTH_COMPARATOR = new Comparator<Hit>() {
+
+			@Override
+			public int compare(Hit o1, Hit o2) {
+				final int l1 = o1.length;
+				final int l2 = o2.length;
+				return (l1 < l2 ? -1 : (l1 == l2 ? 0 : 1));
 			}
+		};
+
+		final byte[] payload;
+		final int length;
+		final float score;
+
+		Hit(byte[] payload, float score) {
+			this.payload = payload;
+			this.length = TermPayload.decodeLength(payload);
+			this.score = score;
 		}
-		return synonymList;
 	}
 
 	static String replaceWhitespaces(String s) {
@@ -513,12 +1414,19 @@ public class LuceneMemoryOntologyIndex implements Closeable {
 	}
 
 	@Override
-	public void close() {
+	public synchronized void close() {
+		pool.shutdownNow();
 		try {
-			searcher.close();
+			searcherManager.close();
 		} catch (IOException exception) {
 			logger.warn("Could not close lucene searcher.", exception);
 		}
+		try {
+			writer.close();
+		} catch (IOException exception) {
+			logger.warn("Could not close lucene index writer.", exception);
+		}
+		directory.close();
 		analyzer.close();
 	}
 }
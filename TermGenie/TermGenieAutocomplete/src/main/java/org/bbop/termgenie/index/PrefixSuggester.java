@@ -0,0 +1,510 @@
+package org.bbop.termgenie.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.bbop.termgenie.core.TermSuggestion;
+import org.bbop.termgenie.index.LuceneMemoryOntologyIndex.SearchResult;
+
+/**
+ * Immutable completion structure for single token prefix queries. The
+ * normalised tokens of the labels and exact synonyms are kept in a sorted
+ * array, which acts as a flattened trie: all tokens with a given prefix are a
+ * continuous range, found with two binary searches.<br>
+ * The terms are numbered by their weight, i.e. the length of the label. The
+ * postings of each token are sorted by this number, so the best matches of a
+ * prefix are found by merging the postings of the range, without any scoring
+ * or re-ranking. Each branch has its own token array.
+ */
+public final class PrefixSuggester {
+
+	/**
+	 * Number of leading characters, which must match exactly for a fuzzy match.
+	 */
+	public static final int FUZZY_PREFIX_LENGTH = 2;
+
+	/**
+	 * Minimum length of a prefix for fuzzy matching.
+	 */
+	public static final int FUZZY_MIN_LENGTH = 4;
+
+	/**
+	 * Prefixes shorter than this length allow only one edit.
+	 */
+	public static final int FUZZY_LONG_LENGTH = 8;
+
+	/**
+	 * Maximum number of tokens compared for one fuzzy query.
+	 */
+	public static final int FUZZY_MAX_CANDIDATES = 5000;
+
+	private static final int[] EMPTY = new int[0];
+
+	private final TermSuggestion[] terms;
+	private final int[] lengths;
+	private final Tokens all;
+	private final Map<String, Tokens> branches;
+
+	private PrefixSuggester(TermSuggestion[] terms,
+			int[] lengths,
+			Tokens all,
+			Map<String, Tokens> branches)
+	{
+		this.terms = terms;
+		this.lengths = lengths;
+		this.all = all;
+		this.branches = branches;
+	}
+
+	/**
+	 * Normalise the query and check, whether it can be answered by a
+	 * {@link PrefixSuggester}.
+	 *
+	 * @param query
+	 * @return normalised prefix or null, if the query has not exactly one
+	 *         token.
+	 */
+	public static String getPrefix(String query) {
+		if (query == null) {
+			return null;
+		}
+		List<String> tokens = tokenize(query);
+		if (tokens.size() != 1) {
+			return null;
+		}
+		return tokens.get(0);
+	}
+
+	/**
+	 * Find the terms with a label or exact synonym token starting with the
+	 * given prefix. The results are ordered by the length of the label.
+	 *
+	 * @param prefix normalised prefix, see {@link #getPrefix(String)}
+	 * @param maxCount
+	 * @param branch the branch name or null
+	 * @return results, never null
+	 */
+	public List<SearchResult> suggest(String prefix, int maxCount, String branch) {
+		return suggest(prefix, maxCount, branch, 0);
+	}
+
+	/**
+	 * Find the terms with a label or exact synonym token starting with the
+	 * given prefix. If there are less than maxCount results and maxEdits is
+	 * greater than zero, tokens with a prefix within the edit distance are
+	 * added. The exact matches are ordered first, followed by the fuzzy
+	 * matches ordered by edit distance. Within each group the results are
+	 * ordered by the length of the label.<br>
+	 * The fuzzy matching is bounded: the first {@link #FUZZY_PREFIX_LENGTH}
+	 * characters must match exactly, the prefix must have at least
+	 * {@link #FUZZY_MIN_LENGTH} characters and at most
+	 * {@link #FUZZY_MAX_CANDIDATES} tokens are compared.
+	 * 
+	 * @param prefix normalised prefix, see {@link #getPrefix(String)}
+	 * @param maxCount
+	 * @param branch the branch name or null
+	 * @param maxEdits the maximum edit distance for fuzzy matches, zero
+	 *            for exact matches only
+	 * @return results, never null
+	 */
+	public List<SearchResult> suggest(String prefix, int maxCount, String branch, int maxEdits) {
+		Tokens tokens = all;
+		if (branch != null) {
+			tokens = branches.get(LuceneMemoryOntologyIndex.replaceWhitespaces(branch));
+			if (tokens == null) {
+				return Collections.emptyList();
+			}
+		}
+		if (maxCount < 1) {
+			return Collections.emptyList();
+		}
+		int from = tokens.lowerBound(prefix);
+		int to = tokens.upperBound(prefix, from);
+		int[] ordinals = EMPTY;
+		if (from < to) {
+			ordinals = merge(tokens.postings, range(from, to), maxCount, null);
+		}
+		List<SearchResult> results = new ArrayList<SearchResult>(ordinals.length);
+		for (int ordinal : ordinals) {
+			results.add(new SearchResult(terms[ordinal], lengths[ordinal], 1.0f));
+		}
+		maxEdits = Math.min(maxEdits, prefix.length() < FUZZY_LONG_LENGTH ? 1 : 2);
+		if (results.size() < maxCount && maxEdits > 0 && prefix.length() >= FUZZY_MIN_LENGTH) {
+			addFuzzy(tokens, prefix, maxEdits, maxCount, ordinals, results);
+		}
+		return results;
+	}
+
+	private void addFuzzy(Tokens tokens,
+			String prefix,
+			int maxEdits,
+			int maxCount,
+			int[] exact,
+			List<SearchResult> results)
+	{
+		// candidates share the first characters, which limits the range
+		String fixed = prefix.substring(0, FUZZY_PREFIX_LENGTH);
+		int from = tokens.lowerBound(fixed);
+		int to = Math.min(tokens.upperBound(fixed, from), from + FUZZY_MAX_CANDIDATES);
+		if (from >= to) {
+			return;
+		}
+		// token indices grouped by edit distance
+		int[][] matches = new int[maxEdits + 1][];
+		int[] counts = new int[maxEdits + 1];
+		for (int i = from; i < to; i++) {
+			int distance = prefixDistance(prefix, tokens.keys[i], maxEdits);
+			if (distance > 0 && distance <= maxEdits) {
+				if (matches[distance] == null) {
+					matches[distance] = new int[16];
+				}
+				else if (counts[distance] == matches[distance].length) {
+					matches[distance] = Arrays.copyOf(matches[distance], counts[distance] * 2);
+				}
+				matches[distance][counts[distance]++] = i;
+			}
+		}
+		BitSet seen = new BitSet(terms.length);
+		for (int ordinal : exact) {
+			seen.set(ordinal);
+		}
+		for (int distance = 1; distance <= maxEdits && results.size() < maxCount; distance++) {
+			if (counts[distance] > 0) {
+				int[] lists = Arrays.copyOf(matches[distance], counts[distance]);
+				int[] ordinals = merge(tokens.postings, lists, maxCount - results.size(), seen);
+				// lower score for fuzzy matches
+				float score = 1.0f / (distance + 1);
+				for (int ordinal : ordinals) {
+					results.add(new SearchResult(terms[ordinal], lengths[ordinal], score));
+					seen.set(ordinal);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculate the minimum edit distance between the query and any prefix
+	 * of the token. The calculation stops, if the distance is greater than
+	 * maxEdits.
+	 * 
+	 * @param query
+	 * @param token
+	 * @param maxEdits
+	 * @return distance, any value greater than maxEdits, if there is no match
+	 */
+	static int prefixDistance(String query, String token, int maxEdits) {
+		final int m = query.length();
+		final int n = Math.min(token.length(), m + maxEdits);
+		// column over the query for the current token prefix
+		int[] previous = new int[m + 1];
+		int[] current = new int[m + 1];
+		for (int i = 0; i <= m; i++) {
+			previous[i] = i;
+		}
+		int best = previous[m];
+		for (int j = 1; j <= n; j++) {
+			current[0] = j;
+			int columnMin = current[0];
+			char c = token.charAt(j - 1);
+			for (int i = 1; i <= m; i++) {
+				int cost = query.charAt(i - 1) == c ? 0 : 1;
+				int value = Math.min(previous[i - 1] + cost, Math.min(previous[i] + 1, current[i - 1] + 1));
+				current[i] = value;
+				if (value < columnMin) {
+					columnMin = value;
+				}
+			}
+			if (current[m] < best) {
+				best = current[m];
+			}
+			if (columnMin > maxEdits) {
+				// no further improvement possible
+				break;
+			}
+			int[] tmp = previous;
+			previous = current;
+			current = tmp;
+		}
+		return best;
+	}
+
+	private static int[] range(int from, int to) {
+		int[] lists = new int[to - from];
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = from + i;
+		}
+		return lists;
+	}
+
+	/**
+	 * Merge the sorted postings of the given lists and return the smallest
+	 * distinct ordinals, which are not in the excluded set.
+	 */
+	static int[] merge(int[][] postings, int[] lists, int maxCount, BitSet excluded) {
+		final int size = lists.length;
+		if (size == 1 && excluded == null) {
+			int[] single = postings[lists[0]];
+			return single.length <= maxCount ? single : Arrays.copyOf(single, maxCount);
+		}
+		// binary min-heap of list indices, ordered by the current head of each list
+		int[] heap = new int[size];
+		int[] positions = new int[size];
+		for (int i = 0; i < size; i++) {
+			heap[i] = i;
+		}
+		int heapSize = size;
+		for (int i = heapSize / 2 - 1; i >= 0; i--) {
+			siftDown(heap, heapSize, i, postings, lists, positions);
+		}
+		int[] result = new int[maxCount];
+		int count = 0;
+		int last = -1;
+		while (heapSize > 0 && count < maxCount) {
+			int list = heap[0];
+			int ordinal = postings[lists[list]][positions[list]];
+			if (ordinal != last && (excluded == null || !excluded.get(ordinal))) {
+				result[count++] = ordinal;
+				last = ordinal;
+			}
+			positions[list] += 1;
+			if (positions[list] >= postings[lists[list]].length) {
+				heapSize -= 1;
+				heap[0] = heap[heapSize];
+			}
+			siftDown(heap, heapSize, 0, postings, lists, positions);
+		}
+		return count < maxCount ? Arrays.copyOf(result, count) : result;
+	}
+
+	private static void siftDown(int[] heap, int heapSize, int i, int[][] postings, int[] lists, int[] positions) {
+		while (true) {
+			int left = 2 * i + 1;
+			if (left >= heapSize) {
+				return;
+			}
+			int smallest = left;
+			int right = left + 1;
+			if (right < heapSize && head(heap[right], postings, lists, positions) < head(heap[left], postings, lists, positions)) {
+				smallest = right;
+			}
+			if (head(heap[i], postings, lists, positions) <= head(heap[smallest], postings, lists, positions)) {
+				return;
+			}
+			int tmp = heap[i];
+			heap[i] = heap[smallest];
+			heap[smallest] = tmp;
+			i = smallest;
+		}
+	}
+
+	private static int head(int list, int[][] postings, int[] lists, int[] positions) {
+		return postings[lists[list]][positions[list]];
+	}
+
+	/**
+	 * Split the string into lower case tokens of letters and digits.
+	 *
+	 * @param s
+	 * @return tokens
+	 */
+	static List<String> tokenize(String s) {
+		List<String> tokens = new ArrayList<String>();
+		final int length = s.length();
+		int start = -1;
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				if (start < 0) {
+					start = i;
+				}
+			}
+			else if (start >= 0) {
+				tokens.add(s.substring(start, i).toLowerCase(Locale.ENGLISH));
+				start = -1;
+			}
+		}
+		if (start >= 0) {
+			tokens.add(s.substring(start).toLowerCase(Locale.ENGLISH));
+		}
+		return tokens;
+	}
+
+	/**
+	 * Sorted tokens with their postings.
+	 */
+	private static final class Tokens {
+
+		final String[] keys;
+		final int[][] postings;
+
+		Tokens(String[] keys, int[][] postings) {
+			this.keys = keys;
+			this.postings = postings;
+		}
+
+		int lowerBound(String prefix) {
+			int index = Arrays.binarySearch(keys, prefix);
+			return index >= 0 ? index : -(index + 1);
+		}
+
+		int upperBound(String prefix, int from) {
+			int low = from;
+			int high = keys.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (keys[mid].startsWith(prefix)) {
+					low = mid + 1;
+				}
+				else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * Collects the terms and creates the {@link PrefixSuggester}.
+	 */
+	public static class Builder {
+
+		private final Set<?> stopWords;
+		private final List<Entry> entries = new ArrayList<Entry>();
+
+		/**
+		 * @param stopWords tokens, which are not indexed or null
+		 */
+		public Builder(Set<?> stopWords) {
+			this.stopWords = stopWords;
+		}
+
+		/**
+		 * @param term
+		 * @param exactSynonyms
+		 * @param branchNames the names of the branches of the term or null
+		 */
+		public void add(TermSuggestion term, List<String> exactSynonyms, List<String> branchNames) {
+			Entry entry = new Entry(term, exactSynonyms, branchNames);
+			entries.add(entry);
+		}
+
+		/**
+		 * @return new suggester
+		 */
+		public PrefixSuggester build() {
+			// number the terms by weight
+			Collections.sort(entries, new Comparator<Entry>() {
+
+				@Override
+				public int compare(Entry e1, Entry e2) {
+					int l1 = e1.term.getLabel().length();
+					int l2 = e2.term.getLabel().length();
+					if (l1 != l2) {
+						return l1 < l2 ? -1 : 1;
+					}
+					return e1.term.getLabel().compareTo(e2.term.getLabel());
+				}
+			});
+			final int size = entries.size();
+			TermSuggestion[] terms = new TermSuggestion[size];
+			int[] lengths = new int[size];
+			TreeMap<String, List<Integer>> allTokens = new TreeMap<String, List<Integer>>();
+			Map<String, TreeMap<String, List<Integer>>> branchTokens = new HashMap<String, TreeMap<String, List<Integer>>>();
+			for (int ordinal = 0; ordinal < size; ordinal++) {
+				Entry entry = entries.get(ordinal);
+				terms[ordinal] = entry.term;
+				lengths[ordinal] = entry.term.getLabel().length();
+				List<String> tokens = getTokens(entry);
+				addPostings(allTokens, tokens, ordinal);
+				if (entry.branchNames != null) {
+					for (String branchName : entry.branchNames) {
+						TreeMap<String, List<Integer>> current = branchTokens.get(branchName);
+						if (current == null) {
+							current = new TreeMap<String, List<Integer>>();
+							branchTokens.put(branchName, current);
+						}
+						addPostings(current, tokens, ordinal);
+					}
+				}
+			}
+			entries.clear();
+			Map<String, Tokens> branches = new HashMap<String, Tokens>();
+			for (Map.Entry<String, TreeMap<String, List<Integer>>> mapEntry : branchTokens.entrySet()) {
+				branches.put(mapEntry.getKey(), createTokens(mapEntry.getValue()));
+			}
+			return new PrefixSuggester(terms, lengths, createTokens(allTokens), branches);
+		}
+
+		private List<String> getTokens(Entry entry) {
+			List<String> tokens = new ArrayList<String>();
+			addTokens(tokens, entry.term.getLabel());
+			if (entry.exactSynonyms != null) {
+				for (String synonym : entry.exactSynonyms) {
+					addTokens(tokens, synonym);
+				}
+			}
+			return tokens;
+		}
+
+		private void addTokens(List<String> tokens, String s) {
+			for (String token : tokenize(s)) {
+				if (stopWords == null || !stopWords.contains(token)) {
+					tokens.add(token);
+				}
+			}
+		}
+
+		private static void addPostings(TreeMap<String, List<Integer>> map, List<String> tokens, int ordinal) {
+			for (String token : tokens) {
+				List<Integer> postings = map.get(token);
+				if (postings == null) {
+					postings = new ArrayList<Integer>(2);
+					map.put(token, postings);
+				}
+				// ordinals are added in ascending order
+				if (postings.isEmpty() || postings.get(postings.size() - 1).intValue() != ordinal) {
+					postings.add(Integer.valueOf(ordinal));
+				}
+			}
+		}
+
+		private static Tokens createTokens(TreeMap<String, List<Integer>> map) {
+			String[] keys = new String[map.size()];
+			int[][] postings = new int[map.size()][];
+			int pos = 0;
+			for (Map.Entry<String, List<Integer>> mapEntry : map.entrySet()) {
+				keys[pos] = mapEntry.getKey();
+				List<Integer> list = mapEntry.getValue();
+				int[] ordinals = new int[list.size()];
+				for (int i = 0; i < ordinals.length; i++) {
+					ordinals[i] = list.get(i).intValue();
+				}
+				postings[pos] = ordinals;
+				pos += 1;
+			}
+			return new Tokens(keys, postings);
+		}
+	}
+
+	private static final class Entry {
+
+		final TermSuggestion term;
+		final List<String> exactSynonyms;
+		final List<String> branchNames;
+
+		Entry(TermSuggestion term, List<String> exactSynonyms, List<String> branchNames) {
+			this.term = term;
+			this.exactSynonyms = exactSynonyms;
+			this.branchNames = branchNames;
+		}
+	}
+}
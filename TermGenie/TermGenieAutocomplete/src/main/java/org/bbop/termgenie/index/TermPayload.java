@@ -0,0 +1,212 @@
+package org.bbop.termgenie.index;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bbop.termgenie.core.TermSuggestion;
+
+/**
+ * Compact binary encoding of the stored data of a term. The payload starts
+ * with the length of the label as fixed size int, followed by the
+ * identifier, label, definition and synonyms as length-prefixed UTF-8
+ * strings. The synonyms are ordered by scope, the exact synonyms first.<br>
+ * The label length can be read without decoding the remaining payload.
+ */
+final class TermPayload {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private TermPayload() {
+		// no instances
+	}
+
+	/**
+	 * @param identifier
+	 * @param label
+	 * @param definition or null
+	 * @param synonyms all synonyms, the exact synonyms first, or null
+	 * @param exactCount the number of exact synonyms
+	 * @return payload
+	 */
+	static byte[] encode(String identifier,
+			String label,
+			String definition,
+			List<String> synonyms,
+			int exactCount)
+	{
+		byte[][] strings = new byte[3 + (synonyms == null ? 0 : synonyms.size())][];
+		strings[0] = identifier.getBytes(UTF8);
+		strings[1] = label.getBytes(UTF8);
+		strings[2] = definition == null ? null : definition.getBytes(UTF8);
+		if (synonyms != null) {
+			for (int i = 0; i < synonyms.size(); i++) {
+				strings[3 + i] = synonyms.get(i).getBytes(UTF8);
+			}
+		}
+		int size = 4 + 10;
+		for (byte[] string : strings) {
+			size += 5 + (string == null ? 0 : string.length);
+		}
+		Output out = new Output(size);
+		out.writeInt(label.length());
+		out.writeString(strings[0]);
+		out.writeString(strings[1]);
+		// length plus one, zero for null
+		if (strings[2] == null) {
+			out.writeVInt(0);
+		}
+		else {
+			out.writeVInt(strings[2].length + 1);
+			out.writeBytes(strings[2]);
+		}
+		out.writeVInt(strings.length - 3);
+		out.writeVInt(exactCount);
+		for (int i = 3; i < strings.length; i++) {
+			out.writeString(strings[i]);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param payload
+	 * @return the length of the label
+	 */
+	static int decodeLength(byte[] payload) {
+		return ((payload[0] & 0xFF) << 24) | ((payload[1] & 0xFF) << 16) | ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF);
+	}
+
+	/**
+	 * @param payload
+	 * @return term
+	 */
+	static TermSuggestion decode(byte[] payload) {
+		Input in = new Input(payload, 4);
+		String identifier = in.readString();
+		String label = in.readString();
+		String definition = in.readNullableString();
+		int count = in.readVInt();
+		in.readVInt(); // exact count
+		List<String> synonyms = null;
+		if (count > 0) {
+			synonyms = new ArrayList<String>(count);
+			for (int i = 0; i < count; i++) {
+				synonyms.add(in.readString());
+			}
+		}
+		return new TermSuggestion(label, identifier, definition, synonyms);
+	}
+
+	/**
+	 * @param payload
+	 * @return exact synonyms or null
+	 */
+	static List<String> decodeExactSynonyms(byte[] payload) {
+		Input in = new Input(payload, 4);
+		in.skipString(); // identifier
+		in.skipString(); // label
+		in.readNullableString(); // definition
+		in.readVInt(); // count
+		int exactCount = in.readVInt();
+		if (exactCount == 0) {
+			return null;
+		}
+		List<String> synonyms = new ArrayList<String>(exactCount);
+		for (int i = 0; i < exactCount; i++) {
+			synonyms.add(in.readString());
+		}
+		return Collections.unmodifiableList(synonyms);
+	}
+
+	private static final class Output {
+
+		private byte[] bytes;
+		private int pos = 0;
+
+		Output(int size) {
+			bytes = new byte[size];
+		}
+
+		void writeInt(int value) {
+			bytes[pos++] = (byte) (value >>> 24);
+			bytes[pos++] = (byte) (value >>> 16);
+			bytes[pos++] = (byte) (value >>> 8);
+			bytes[pos++] = (byte) value;
+		}
+
+		void writeVInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[pos++] = (byte) value;
+		}
+
+		void writeBytes(byte[] value) {
+			System.arraycopy(value, 0, bytes, pos, value.length);
+			pos += value.length;
+		}
+
+		void writeString(byte[] value) {
+			writeVInt(value.length);
+			writeBytes(value);
+		}
+
+		byte[] toByteArray() {
+			if (pos == bytes.length) {
+				return bytes;
+			}
+			byte[] result = new byte[pos];
+			System.arraycopy(bytes, 0, result, 0, pos);
+			return result;
+		}
+	}
+
+	private static final class Input {
+
+		private final byte[] bytes;
+		private int pos;
+
+		Input(byte[] bytes, int pos) {
+			this.bytes = bytes;
+			this.pos = pos;
+		}
+
+		int readVInt() {
+			int value = 0;
+			int shift = 0;
+			while (true) {
+				byte b = bytes[pos++];
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+				shift += 7;
+			}
+		}
+
+		String readString() {
+			int length = readVInt();
+			String value = new String(bytes, pos, length, UTF8);
+			pos += length;
+			return value;
+		}
+
+		void skipString() {
+			int length = readVInt();
+			pos += length;
+		}
+
+		String readNullableString() {
+			int length = readVInt();
+			if (length == 0) {
+				return null;
+			}
+			length -= 1;
+			String value = new String(bytes, pos, length, UTF8);
+			pos += length;
+			return value;
+		}
+	}
+}
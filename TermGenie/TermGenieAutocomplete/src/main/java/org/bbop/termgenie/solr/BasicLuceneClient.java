@@ -1,9 +1,19 @@
 package org.bbop.termgenie.solr;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.Ontology;
 import org.bbop.termgenie.core.Ontology.OntologySubset;
 import org.bbop.termgenie.core.OntologyTermSuggestor;
@@ -12,10 +22,11 @@ import org.bbop.termgenie.core.eventbus.SecondaryOntologyChangeEvent;
 import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
 import org.bbop.termgenie.core.rules.ReasonerFactory;
 import org.bbop.termgenie.index.LuceneMemoryOntologyIndex;
+import org.bbop.termgenie.index.LuceneMemoryOntologyIndex.Batch;
 import org.bbop.termgenie.index.LuceneMemoryOntologyIndex.BranchDetails;
 import org.bbop.termgenie.index.LuceneMemoryOntologyIndex.SearchResult;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
-import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
 import org.bushe.swing.event.EventBus;
 import org.bushe.swing.event.EventSubscriber;
 
@@ -26,13 +37,22 @@ public class BasicLuceneClient implements
 		EventSubscriber<SecondaryOntologyChangeEvent>
 {
 
+	private static final Logger logger = Logger.getLogger(BasicLuceneClient.class);
+
 	private final List<String> roots;
 	private final String dlQuery;
 	private final List<BranchDetails> branches;
 	private final ReasonerFactory factory;
+	private final File location;
+	private final int maxEdits;
 
-	private LuceneMemoryOntologyIndex index;
-	
+	private final AtomicReference<IndexReference> current = new AtomicReference<IndexReference>();
+	private final AtomicReference<OntologyTaskManager> pending = new AtomicReference<OntologyTaskManager>();
+	private final ExecutorService executor;
+	private final AtomicLong generation = new AtomicLong(0);
+	// compare the key of an opened persistent index only once at startup
+	private final AtomicBoolean checkKey = new AtomicBoolean(false);
+	private final SuggestionCache cache = new SuggestionCache();
 
 	/**
 	 * Create a new instance of an {@link OntologyTermSuggestor} using a lucene
@@ -42,6 +62,27 @@ public class BasicLuceneClient implements
 	 * @param factory
 	 */
 	public BasicLuceneClient(OntologyTaskManager ontologyManager, ReasonerFactory factory)
+	{
+		this(ontologyManager, factory, null, 0);
+	}
+
+	/**
+	 * Create a new instance of an {@link OntologyTermSuggestor} using a
+	 * persistent lucene index in the given directory. An existing index is
+	 * opened directly and checked against the ontology in the background. If
+	 * there is no index, it is created in the background.
+	 * 
+	 * @param ontologyManager
+	 * @param factory
+	 * @param indexDirectory the parent directory for the index or null, for
+	 *            an in-memory index
+	 * @param maxEdits the maximum edit distance for typo-tolerant searches,
+	 *            zero for exact searches only
+	 */
+	public BasicLuceneClient(OntologyTaskManager ontologyManager,
+			ReasonerFactory factory,
+			File indexDirectory,
+			int maxEdits)
 	{
 		super();
 		Ontology ontology = ontologyManager.getOntology();
@@ -55,18 +96,72 @@ public class BasicLuceneClient implements
 		this.roots = ontology.getRoots();
 		this.dlQuery = ontology.getDlQuery();
 		this.factory = factory;
+		this.maxEdits = maxEdits;
+		if (indexDirectory != null) {
+			this.location = new File(indexDirectory, ontology.getName());
+		}
+		else {
+			this.location = null;
+		}
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "lucene-index-update");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		EventBus.subscribe(SecondaryOntologyChangeEvent.class, this);
-		setup(ontologyManager);
+		if (location == null) {
+			setup(ontologyManager);
+		}
+		else {
+			open(ontologyManager);
+		}
+	}
+
+	private void open(OntologyTaskManager manager) {
+		try {
+			if (LuceneMemoryOntologyIndex.getKey(location) != null) {
+				LuceneMemoryOntologyIndex index = LuceneMemoryOntologyIndex.open(location, roots, dlQuery, branches, factory);
+				current.set(new IndexReference(index));
+				checkKey.set(true);
+				nextGeneration();
+			}
+		} catch (IOException exception) {
+			logger.warn("Could not open index: " + location, exception);
+		}
+		// check the key, update or create the index in the background
+		schedule(manager);
 	}
 
+	/**
+	 * Build a new index and swap it with the current one. The previous index
+	 * is closed after all running searches have finished.
+	 * 
+	 * @param manager
+	 */
 	void setup(OntologyTaskManager manager) {
-		LuceneMemoryOntologyIndex old = index;
+		final LuceneMemoryOntologyIndex[] result = new LuceneMemoryOntologyIndex[1];
+		final IndexReference reference = location != null ? acquire() : null;
 		try {
-			OntologyTask task = new OntologyTask() {
+			ReadOnlyOntologyTask task = new ReadOnlyOntologyTask() {
 
 				@Override
 				protected void runCatching(OWLGraphWrapper graph) throws TaskException, Exception {
-					index = new LuceneMemoryOntologyIndex(graph, roots, dlQuery, branches, factory);
+					if (location == null) {
+						result[0] = new LuceneMemoryOntologyIndex(graph, roots, dlQuery, branches, factory);
+						return;
+					}
+					String key = LuceneMemoryOntologyIndex.createKey(graph, roots, dlQuery, branches);
+					if (reference != null) {
+						// the persistent index is locked by its writer, re-build it in place
+						reference.index.rebuild(graph, key);
+					}
+					else {
+						result[0] = new LuceneMemoryOntologyIndex(graph, roots, dlQuery, branches, factory, location, key);
+					}
 				}
 			};
 			manager.runManagedTask(task);
@@ -75,24 +170,202 @@ public class BasicLuceneClient implements
 			}
 		} catch (InvalidManagedInstanceException exception) {
 			throw new RuntimeException(exception);
-		} finally {
+		}
+		finally {
+			if (reference != null) {
+				reference.decRef();
+			}
+		}
+		if (result[0] != null) {
+			IndexReference old = current.getAndSet(new IndexReference(result[0]));
 			if (old != null) {
-				old.close();
+				old.decRef();
 			}
 		}
+		nextGeneration();
+	}
+
+	/**
+	 * Update the existing index with the changes of the ontology. Fall back
+	 * to a full re-build, if there is no index or the update fails.
+	 * 
+	 * @param manager
+	 */
+	void update(OntologyTaskManager manager) {
+		final IndexReference reference = acquire();
+		if (reference == null) {
+			setup(manager);
+			return;
+		}
+		final boolean check = checkKey.getAndSet(false);
+		ReadOnlyOntologyTask task = new ReadOnlyOntologyTask() {
+
+			@Override
+			protected void runCatching(OWLGraphWrapper graph) throws TaskException, Exception {
+				if (location == null) {
+					reference.index.update(graph);
+					return;
+				}
+				// once per loaded version
+				String key = LuceneMemoryOntologyIndex.createKey(graph, roots, dlQuery, branches);
+				if (check && key != null && key.equals(reference.index.getCommitKey())) {
+					// the index from the previous run is up-to-date
+					return;
+				}
+				reference.index.update(graph, key);
+			}
+		};
+		try {
+			manager.runManagedTask(task);
+		} catch (InvalidManagedInstanceException exception) {
+			throw new RuntimeException(exception);
+		}
+		finally {
+			reference.decRef();
+		}
+		if (task.getException() != null) {
+			logger.warn("Could not update index, re-building it.", task.getException());
+			setup(manager);
+		}
+		else {
+			nextGeneration();
+		}
+	}
+
+	/**
+	 * Start a new index generation, invalidates all cached results.
+	 */
+	private void nextGeneration() {
+		cache.invalidate(generation.incrementAndGet());
+	}
+
+	/**
+	 * @return the result cache
+	 */
+	public SuggestionCache getCache() {
+		return cache;
 	}
-	
+
 	@Override
-	public synchronized void onEvent(SecondaryOntologyChangeEvent event) {
+	public void onEvent(SecondaryOntologyChangeEvent event) {
 		// ignore event, if it's just a reset
 		if (!event.isReset()) {
-			setup(event.getManager());
+			schedule(event.getManager());
+		}
+	}
+
+	/**
+	 * Update the index in the background, searches use the current index in
+	 * the meantime.
+	 * 
+	 * @param manager
+	 */
+	private void schedule(OntologyTaskManager manager) {
+		if (pending.getAndSet(manager) == null) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					// events during the update trigger a new update
+					OntologyTaskManager next = pending.getAndSet(null);
+					if (next != null) {
+						try {
+							update(next);
+						} catch (Exception exception) {
+							logger.error("Could not update index, keeping the previous index.", exception);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return the current index with an additional reference or null
+	 */
+	private IndexReference acquire() {
+		while (true) {
+			IndexReference reference = current.get();
+			if (reference == null || reference.tryIncRef()) {
+				return reference;
+			}
+			// the reference was swapped and closed concurrently, retry
 		}
 	}
 
 	@Override
 	public List<TermSuggestion> suggestTerms(String query, String subset, int maxCount) {
-		Collection<SearchResult> searchResults = index.search(query, maxCount, subset);
+		if (query == null) {
+			return null;
+		}
+		// read the generation before the search, a concurrent update invalidates the result
+		final long currentGeneration = generation.get();
+		final String key = SuggestionCache.createKey(query, subset, maxCount);
+		List<TermSuggestion> cached = cache.get(key, currentGeneration);
+		if (cached != null) {
+			return cached.isEmpty() ? null : cached;
+		}
+		List<TermSuggestion> suggestions = search(query, subset, maxCount);
+		cache.put(key, currentGeneration, suggestions);
+		return suggestions;
+	}
+
+	private List<TermSuggestion> search(String query, String subset, int maxCount) {
+		IndexReference reference = acquire();
+		if (reference == null) {
+			return null;
+		}
+		Collection<SearchResult> searchResults;
+		try {
+			searchResults = reference.index.search(query, maxCount, subset, maxEdits);
+		}
+		finally {
+			reference.decRef();
+		}
+		return convert(searchResults);
+	}
+
+	/**
+	 * Execute all queries with one acquisition of the current index. Cached
+	 * results are used, if available.
+	 */
+	@Override
+	public List<SuggestionResult> suggestTerms(List<SuggestionQuery> queries) {
+		final List<SuggestionResult> results = new ArrayList<SuggestionResult>(queries.size());
+		// read the generation before the search, a concurrent update invalidates the result
+		final long currentGeneration = generation.get();
+		IndexReference reference = acquire();
+		Batch batch = reference != null ? reference.index.batch() : null;
+		try {
+			for (SuggestionQuery query : queries) {
+				final long start = System.nanoTime();
+				List<TermSuggestion> suggestions = null;
+				if (query.query != null) {
+					final String key = SuggestionCache.createKey(query.query, query.subset, query.maxCount);
+					List<TermSuggestion> cached = cache.get(key, currentGeneration);
+					if (cached != null) {
+						suggestions = cached.isEmpty() ? null : cached;
+					}
+					else if (batch != null) {
+						suggestions = convert(batch.search(query.query, query.maxCount, query.subset, maxEdits));
+						cache.put(key, currentGeneration, suggestions);
+					}
+				}
+				results.add(new SuggestionResult(suggestions, System.nanoTime() - start));
+			}
+		}
+		finally {
+			if (batch != null) {
+				batch.close();
+			}
+			if (reference != null) {
+				reference.decRef();
+			}
+		}
+		return results;
+	}
+
+	private static List<TermSuggestion> convert(Collection<SearchResult> searchResults) {
 		if (searchResults != null && !searchResults.isEmpty()) {
 			final List<TermSuggestion> suggestions = new ArrayList<TermSuggestion>(searchResults.size());
 			for (SearchResult searchResult : searchResults) {
@@ -103,4 +376,36 @@ public class BasicLuceneClient implements
 		return null;
 	}
 
+	/**
+	 * Reference counted holder for an index. The holder itself owns one
+	 * reference, which is released, if the index is replaced. The index is
+	 * closed, once the last reference has been released.
+	 */
+	private static final class IndexReference {
+
+		final LuceneMemoryOntologyIndex index;
+		private final AtomicInteger refCount = new AtomicInteger(1);
+
+		IndexReference(LuceneMemoryOntologyIndex index) {
+			this.index = index;
+		}
+
+		boolean tryIncRef() {
+			while (true) {
+				int count = refCount.get();
+				if (count <= 0) {
+					return false;
+				}
+				if (refCount.compareAndSet(count, count + 1)) {
+					return true;
+				}
+			}
+		}
+
+		void decRef() {
+			if (refCount.decrementAndGet() == 0) {
+				index.close();
+			}
+		}
+	}
 }
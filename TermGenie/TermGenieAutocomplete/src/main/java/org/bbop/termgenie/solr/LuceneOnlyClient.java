@@ -1,5 +1,6 @@
 package org.bbop.termgenie.solr;
 
+import java.io.File;
 import java.util.List;
 
 import org.bbop.termgenie.core.OntologyTermSuggestor;
@@ -19,13 +20,33 @@ public class LuceneOnlyClient implements OntologyTermSuggestor {
 	 * @param factory
 	 */
 	public LuceneOnlyClient(OntologyTaskManager manager, ReasonerFactory factory)
+	{
+		this(manager, factory, null, 0);
+	}
+
+	/**
+	 * @param manager
+	 * @param factory
+	 * @param indexDirectory the directory for a persistent index or null
+	 * @param maxEdits the maximum edit distance for typo-tolerant searches,
+	 *            zero to disable
+	 */
+	public LuceneOnlyClient(OntologyTaskManager manager,
+			ReasonerFactory factory,
+			File indexDirectory,
+			int maxEdits)
 	{
 		super();
-		index = new BasicLuceneClient(manager, factory);
+		index = new BasicLuceneClient(manager, factory, indexDirectory, maxEdits);
 	}
 
 	@Override
 	public List<TermSuggestion> suggestTerms(String query, String subset, int maxCount) {
 		return index.suggestTerms(query, subset, maxCount);
 	}
+
+	@Override
+	public List<SuggestionResult> suggestTerms(List<SuggestionQuery> queries) {
+		return index.suggestTerms(queries);
+	}
 }
@@ -0,0 +1,157 @@
+package org.bbop.termgenie.solr;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bbop.termgenie.core.TermSuggestion;
+
+/**
+ * Bounded LRU cache for auto-complete results. The entries are only valid
+ * for one generation of the index. Changing the generation removes all
+ * entries.
+ */
+public class SuggestionCache {
+
+	static final int DEFAULT_SIZE = 1000;
+
+	// marker for an empty result
+	private static final List<TermSuggestion> NO_RESULT = Collections.emptyList();
+
+	private final Map<String, List<TermSuggestion>> cache;
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	// guarded by cache
+	private long generation = 0;
+
+	public SuggestionCache() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * @param maxSize the maximum number of cached results
+	 */
+	public SuggestionCache(final int maxSize) {
+		cache = new LinkedHashMap<String, List<TermSuggestion>>(16, 0.75f, true) {
+
+			// generated
+			private static final long serialVersionUID = 3146375637399581470L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<String, List<TermSuggestion>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Create the cache key for a request.
+	 *
+	 * @param query
+	 * @param subset
+	 * @param maxCount
+	 * @return key
+	 */
+	static String createKey(String query, String subset, int maxCount) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(maxCount).append('\t');
+		if (subset != null) {
+			sb.append(subset);
+		}
+		sb.append('\t');
+		// normalise white spaces
+		boolean whitespace = false;
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if (Character.isWhitespace(c)) {
+				whitespace = true;
+			}
+			else {
+				if (whitespace && sb.charAt(sb.length() - 1) != '\t') {
+					sb.append(' ');
+				}
+				whitespace = false;
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Retrieve the cached result.
+	 *
+	 * @param key
+	 * @param generation the current generation of the index
+	 * @return result, {@link Collections#emptyList()} for a cached empty
+	 *         result or null, if there is no entry
+	 */
+	public List<TermSuggestion> get(String key, long generation) {
+		List<TermSuggestion> result;
+		synchronized (cache) {
+			result = this.generation == generation ? cache.get(key) : null;
+		}
+		if (result == null) {
+			misses.incrementAndGet();
+		}
+		else {
+			hits.incrementAndGet();
+		}
+		return result;
+	}
+
+	/**
+	 * Add a result to the cache. The result is ignored, if the generation is
+	 * outdated.
+	 *
+	 * @param key
+	 * @param generation the generation of the index used for the result
+	 * @param result
+	 */
+	public void put(String key, long generation, List<TermSuggestion> result) {
+		List<TermSuggestion> value = NO_RESULT;
+		if (result != null && !result.isEmpty()) {
+			value = Collections.unmodifiableList(result);
+		}
+		synchronized (cache) {
+			if (generation > this.generation) {
+				cache.clear();
+				this.generation = generation;
+			}
+			if (generation == this.generation) {
+				cache.put(key, value);
+			}
+		}
+	}
+
+	/**
+	 * Remove all entries of previous generations.
+	 *
+	 * @param generation the new generation of the index
+	 */
+	public void invalidate(long generation) {
+		synchronized (cache) {
+			if (generation > this.generation) {
+				cache.clear();
+				this.generation = generation;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+}
@@ -0,0 +1,89 @@
+package org.bbop.termgenie.index;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.bbop.termgenie.core.TermSuggestion;
+import org.bbop.termgenie.index.LuceneMemoryOntologyIndex.SearchResult;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PrefixSuggester}.
+ */
+public class PrefixSuggesterTest {
+
+	@Test
+	public void testGetPrefix() {
+		assertEquals("apop", PrefixSuggester.getPrefix(" Apop "));
+		assertNull(PrefixSuggester.getPrefix("regulation apop"));
+		assertNull(PrefixSuggester.getPrefix("GO:0008"));
+		assertNull(PrefixSuggester.getPrefix(" "));
+	}
+
+	@Test
+	public void testSuggest() {
+		PrefixSuggester.Builder builder = new PrefixSuggester.Builder(new HashSet<String>(Arrays.asList("of")));
+		add(builder, "GO:1", "regulation of apoptosis", null, "bp");
+		add(builder, "GO:2", "apoptosis", null, "bp");
+		add(builder, "GO:3", "apoptotic process involved in development", null, "bp");
+		add(builder, "GO:4", "nucleus", Arrays.asList("cell nucleus"), "cc");
+		add(builder, "GO:5", "offspring", null, "bp");
+		PrefixSuggester suggester = builder.build();
+
+		assertIds(suggester.suggest("apop", 10, null), "GO:2", "GO:1", "GO:3");
+		assertIds(suggester.suggest("apop", 2, null), "GO:2", "GO:1");
+		assertIds(suggester.suggest("apoptosis", 10, null), "GO:2", "GO:1");
+		assertIds(suggester.suggest("cell", 10, null), "GO:4");
+		assertIds(suggester.suggest("cell", 10, "bp"));
+		assertIds(suggester.suggest("nuc", 10, "cc"), "GO:4");
+		assertIds(suggester.suggest("apop", 10, "unknown"));
+		// stop words are not indexed, but used as prefix
+		assertIds(suggester.suggest("of", 10, null), "GO:5");
+	}
+
+	@Test
+	public void testPrefixDistance() {
+		assertEquals(0, PrefixSuggester.prefixDistance("mito", "mitochondrial", 1));
+		assertEquals(1, PrefixSuggester.prefixDistance("mitocon", "mitochondrial", 1));
+		assertEquals(1, PrefixSuggester.prefixDistance("mitocondrial", "mitochondrial", 2));
+		assertEquals(2, PrefixSuggester.prefixDistance("mitokondrial", "mitochondrial", 2));
+		assertTrue(PrefixSuggester.prefixDistance("nucleus", "mitochondrial", 2) > 2);
+	}
+
+	@Test
+	public void testSuggestFuzzy() {
+		PrefixSuggester.Builder builder = new PrefixSuggester.Builder(null);
+		add(builder, "GO:1", "mitochondrial membrane", null, "cc");
+		add(builder, "GO:2", "mitochondrion", null, "cc");
+		add(builder, "GO:3", "mitocondrial thing", null, "cc");
+		PrefixSuggester suggester = builder.build();
+
+		assertIds(suggester.suggest("mitocondrial", 10, null), "GO:3");
+		// exact match first
+		assertIds(suggester.suggest("mitocondrial", 10, null, 2), "GO:3", "GO:1");
+		assertIds(suggester.suggest("mitocon", 10, null, 1), "GO:3", "GO:2", "GO:1");
+		// no fuzzy matches for short prefixes
+		assertIds(suggester.suggest("mto", 10, null, 2));
+	}
+
+	private static void add(PrefixSuggester.Builder builder,
+			String id,
+			String label,
+			List<String> exactSynonyms,
+			String branch)
+	{
+		TermSuggestion term = new TermSuggestion(label, id, null, exactSynonyms);
+		builder.add(term, exactSynonyms, Collections.singletonList(branch));
+	}
+
+	private static void assertIds(List<SearchResult> results, String...ids) {
+		assertEquals(ids.length, results.size());
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(ids[i], results.get(i).term.getIdentifier());
+		}
+	}
+}
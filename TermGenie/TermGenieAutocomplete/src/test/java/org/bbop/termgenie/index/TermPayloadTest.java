@@ -0,0 +1,40 @@
+package org.bbop.termgenie.index;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bbop.termgenie.core.TermSuggestion;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TermPayload}.
+ */
+public class TermPayloadTest {
+
+	@Test
+	public void testEncodeDecode() {
+		List<String> synonyms = Arrays.asList("cell death", "apoptotic process", "type I programmed cell death");
+		byte[] payload = TermPayload.encode("GO:0006915", "apoptosis", "A programmed cell death \u00e9", synonyms, 2);
+		assertEquals(9, TermPayload.decodeLength(payload));
+
+		TermSuggestion term = TermPayload.decode(payload);
+		assertEquals("GO:0006915", term.getIdentifier());
+		assertEquals("apoptosis", term.getLabel());
+		assertEquals("A programmed cell death \u00e9", term.getDescription());
+		assertEquals(synonyms, term.getSynonyms());
+		assertEquals(synonyms.subList(0, 2), TermPayload.decodeExactSynonyms(payload));
+	}
+
+	@Test
+	public void testEncodeDecodeEmpty() {
+		byte[] payload = TermPayload.encode("GO:1", "a", null, null, 0);
+		TermSuggestion term = TermPayload.decode(payload);
+		assertEquals("GO:1", term.getIdentifier());
+		assertEquals("a", term.getLabel());
+		assertNull(term.getDescription());
+		assertNull(term.getSynonyms());
+		assertNull(TermPayload.decodeExactSynonyms(payload));
+	}
+}
@@ -0,0 +1,47 @@
+package org.bbop.termgenie.solr;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.bbop.termgenie.core.TermSuggestion;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SuggestionCache}.
+ */
+public class SuggestionCacheTest {
+
+	@Test
+	public void testCreateKey() {
+		assertEquals(SuggestionCache.createKey("regulation of", "bp", 10),
+				SuggestionCache.createKey("  regulation \t of ", "bp", 10));
+		assertFalse(SuggestionCache.createKey("regulation", "bp", 10).equals(SuggestionCache.createKey("regulation", "cc", 10)));
+		assertFalse(SuggestionCache.createKey("regulation", null, 10).equals(SuggestionCache.createKey("regulation", null, 5)));
+	}
+
+	@Test
+	public void testGenerations() {
+		SuggestionCache cache = new SuggestionCache(2);
+		List<TermSuggestion> result = Collections.singletonList(new TermSuggestion("apoptosis", "GO:1", null, null));
+		cache.put("a", 1, result);
+		cache.put("b", 1, null);
+		assertEquals(result, cache.get("a", 1));
+		assertTrue(cache.get("b", 1).isEmpty());
+		assertNull(cache.get("a", 0));
+
+		// LRU, b was used last
+		cache.put("c", 1, result);
+		assertNull(cache.get("a", 1));
+		assertNotNull(cache.get("b", 1));
+
+		// outdated results are ignored, a new generation removes all entries
+		cache.invalidate(2);
+		assertNull(cache.get("a", 2));
+		cache.put("a", 1, result);
+		assertNull(cache.get("a", 2));
+		assertEquals(3, cache.getHits());
+		assertEquals(4, cache.getMisses());
+	}
+}
@@ -5,4 +5,53 @@ import java.util.List;
 public interface OntologyTermSuggestor {
 
 	public List<TermSuggestion> suggestTerms(String query, String subset, int maxCount);
+
+	/**
+	 * Execute several queries against the same state of the index.
+	 *
+	 * @param queries
+	 * @return results, in the same order as the queries
+	 */
+	public List<SuggestionResult> suggestTerms(List<SuggestionQuery> queries);
+
+	/**
+	 * A single query of a batch request.
+	 */
+	public static class SuggestionQuery {
+
+		public final String query;
+		public final String subset;
+		public final int maxCount;
+
+		/**
+		 * @param query
+		 * @param subset
+		 * @param maxCount
+		 */
+		public SuggestionQuery(String query, String subset, int maxCount) {
+			super();
+			this.query = query;
+			this.subset = subset;
+			this.maxCount = maxCount;
+		}
+	}
+
+	/**
+	 * The result of a single query of a batch request.
+	 */
+	public static class SuggestionResult {
+
+		public final List<TermSuggestion> suggestions;
+		public final long nanos;
+
+		/**
+		 * @param suggestions the suggestions or null
+		 * @param nanos the time required for the query in nanoseconds
+		 */
+		public SuggestionResult(List<TermSuggestion> suggestions, long nanos) {
+			super();
+			this.suggestions = suggestions;
+			this.nanos = nanos;
+		}
+	}
 }
@@ -15,15 +15,18 @@ public class OntologyChangeEvent {
 
 	private final OntologyTaskManager manager;
 	private final boolean reset;
+	private final long version;
 
 	/**
 	 * @param manager
 	 * @param reset
+	 * @param version the version of the ontology after the change
 	 */
-	public OntologyChangeEvent(OntologyTaskManager manager, boolean reset) {
+	public OntologyChangeEvent(OntologyTaskManager manager, boolean reset, long version) {
 		super();
 		this.manager = manager;
 		this.reset = reset;
+		this.version = version;
 	}
 
 	/**
@@ -46,4 +49,11 @@ public class OntologyChangeEvent {
 	public boolean isReset() {
 		return reset;
 	}
+
+	/**
+	 * @return the version of the ontology after the change
+	 */
+	public long getVersion() {
+		return version;
+	}
 }
@@ -0,0 +1,59 @@
+package org.bbop.termgenie.core.eventbus;
+
+import org.bbop.termgenie.core.Ontology;
+import org.bbop.termgenie.ontology.OntologyTaskManager;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Announces a new version of an ontology, which has been loaded in the
+ * background, but is not yet published by the manager. Subscribers may prepare
+ * their derived data for the new version. The event is delivered in the thread
+ * of the loader, without holding the lock of the manager.<br>
+ * The pending version is not used by any other thread, until it is published
+ * with an {@link OntologyChangeEvent}. It must not be modified.
+ */
+public class OntologyPrepareEvent {
+
+	static {
+		/*
+		 * Call the setup in the static block. Guarantees the proper setup of
+		 * the event bus.
+		 */
+		TermGenieEventBus.setup();
+	}
+
+	private final OntologyTaskManager manager;
+	private final OWLGraphWrapper pending;
+
+	/**
+	 * @param manager
+	 * @param pending the new version of the ontology
+	 */
+	public OntologyPrepareEvent(OntologyTaskManager manager, OWLGraphWrapper pending) {
+		super();
+		this.manager = manager;
+		this.pending = pending;
+	}
+
+	/**
+	 * @return the manager
+	 */
+	public OntologyTaskManager getManager() {
+		return manager;
+	}
+
+	/**
+	 * @return the ontology
+	 */
+	public Ontology getOntology() {
+		return manager.getOntology();
+	}
+
+	/**
+	 * @return the new version of the ontology
+	 */
+	public OWLGraphWrapper getPending() {
+		return pending;
+	}
+}
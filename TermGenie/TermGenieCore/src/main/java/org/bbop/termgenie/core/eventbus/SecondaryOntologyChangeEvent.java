@@ -15,11 +15,13 @@ public class SecondaryOntologyChangeEvent {
 	
 	private final OntologyTaskManager manager;
 	private final boolean reset;
+	private final long version;
 
-	public SecondaryOntologyChangeEvent(OntologyTaskManager manager, boolean reset) {
+	public SecondaryOntologyChangeEvent(OntologyTaskManager manager, boolean reset, long version) {
 		super();
 		this.manager = manager;
 		this.reset = reset;
+		this.version = version;
 	}
 
 	/**
@@ -42,4 +44,11 @@ public class SecondaryOntologyChangeEvent {
 	public boolean isReset() {
 		return reset;
 	}
+
+	/**
+	 * @return the version of the ontology after the change
+	 */
+	public long getVersion() {
+		return version;
+	}
 }
\ No newline at end of file
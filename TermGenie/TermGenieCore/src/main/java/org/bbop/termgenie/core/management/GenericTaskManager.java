@@ -2,13 +2,20 @@ package org.bbop.termgenie.core.management;
 
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.bbop.termgenie.core.management.GenericTaskManager.ManagedTask.Modified;
 import org.bbop.termgenie.tools.Pair;
 
 /**
  * Provide basic runtime management for an instance. Allow limited concurrent
- * usage of the managed instance.
+ * usage of the managed instance.<br>
+ * In read/write mode, tasks implementing {@link ReadOnlyManagedTask} share the
+ * managed instance, all other tasks get exclusive access. The lock is fair, a
+ * waiting exclusive task blocks newly arriving read-only tasks.<br>
+ * Every new or modified managed instance increments the version of the
+ * manager, see {@link #getVersion()}.
  * 
  * @param <T> type of the managed instance
  */
@@ -16,7 +23,8 @@ public abstract class GenericTaskManager<T> {
 
 	private volatile boolean inValid = false;
 	private volatile T managed = null;
-	private final Semaphore lock;
+	private final AtomicLong version = new AtomicLong(0L);
+	private final ManagerLock lock;
 	final String name;
 
 	/**
@@ -28,6 +36,24 @@ public abstract class GenericTaskManager<T> {
 		this(name, 1); // binary and fair
 	}
 	
+	/**
+	 * Create a new manager. If readWrite is true, use a fair read/write lock:
+	 * {@link ReadOnlyManagedTask} instances run concurrently, all other tasks
+	 * require exclusive access. Otherwise use a binary and fair semaphore.
+	 * 
+	 * @param name the name of this manager
+	 * @param readWrite set to true, to enable shared access for read-only tasks
+	 */
+	public GenericTaskManager(String name, boolean readWrite) {
+		if (readWrite) {
+			this.lock = new ReadWriteManagerLock();
+		}
+		else {
+			this.lock = new SemaphoreManagerLock(1);
+		}
+		this.name = name;
+	}
+	
 	/**
 	 * Create a new manager, allowing n number of concurrent calls. Low Level,
 	 * only to be used in this package
@@ -36,10 +62,17 @@ public abstract class GenericTaskManager<T> {
 	 * @param n number of concurrent users
 	 */
 	GenericTaskManager(String name, int n) {
-		this.lock = new Semaphore(n, true); // fair
+		this.lock = new SemaphoreManagerLock(n);
 		this.name = name;
 	}
 
+	/**
+	 * @return true, if this manager allows concurrent read-only tasks.
+	 */
+	public boolean isReadWrite() {
+		return lock.isReadWrite();
+	}
+
 	/**
 	 * Low level method to lock with a timeout. Only to be used in this package
 	 * 
@@ -49,67 +82,111 @@ public abstract class GenericTaskManager<T> {
 	 * @throws InvalidManagedInstanceException 
 	 */
 	Pair<Boolean, T> getManaged(long timeout, TimeUnit timeoutUnit) throws InvalidManagedInstanceException {
+		return getManaged(false, timeout, timeoutUnit);
+	}
+	
+	/**
+	 * Low level method to lock no timeout. Only to be used in this package
+	 * 
+	 * @return pair of try lock status and managed instance (if available or null).
+	 * @throws InvalidManagedInstanceException 
+	 */
+	T getManaged() throws InvalidManagedInstanceException {
+		return getManaged(false, 0, null).getTwo();
+	}
 
+	private Pair<Boolean, T> getManaged(boolean shared, long timeout, TimeUnit timeoutUnit) throws InvalidManagedInstanceException {
+		final long deadline = timeoutUnit != null ? System.nanoTime() + timeoutUnit.toNanos(timeout) : 0L;
 		try {
-			if (timeoutUnit != null){
-				boolean success = lock.tryAcquire(timeout, timeoutUnit);
-				if (success == false) {
+			if (acquire(shared, deadline, timeoutUnit) == false) {
+				return Pair.of(Boolean.FALSE, null);
+			}
+		} catch (InterruptedException exception) {
+			throw new GenericTaskManagerException("Interrupted during wait.", exception);
+		}
+		if (managed == null && shared && lock.isReadWrite()) {
+			// the instance is created lazily, this requires exclusive access
+			lock.release(true);
+			try {
+				if (acquire(false, deadline, timeoutUnit) == false) {
 					return Pair.of(Boolean.FALSE, null);
 				}
+			} catch (InterruptedException exception) {
+				throw new GenericTaskManagerException("Interrupted during wait.", exception);
 			}
-			else {
-				lock.acquire();
+			// releases the lock in case of an error
+			createManagedIfNecessary(false);
+			lock.downgrade();
+		}
+		else {
+			createManagedIfNecessary(shared);
+		}
+		return Pair.of(Boolean.TRUE, managed);
+	}
 
-			}
-			if (inValid) {
-				lock.release();
-				throw new InvalidManagedInstanceException("Managed instance is in an invalid state");
+	/**
+	 * Acquire the lock, wait at most until the deadline, if a timeout unit is
+	 * given.
+	 * 
+	 * @param shared
+	 * @param deadline in nano seconds, see {@link System#nanoTime()}
+	 * @param timeoutUnit the unit of the original timeout or null
+	 * @return true, if the lock was acquired
+	 * @throws InterruptedException
+	 */
+	private boolean acquire(boolean shared, long deadline, TimeUnit timeoutUnit) throws InterruptedException {
+		if (timeoutUnit == null) {
+			lock.acquire(shared);
+			return true;
+		}
+		long remaining = Math.max(0L, deadline - System.nanoTime());
+		return lock.tryAcquire(shared, remaining, TimeUnit.NANOSECONDS);
+	}
+	
+	private void createManagedIfNecessary(boolean shared) throws InvalidManagedInstanceException {
+		if (inValid) {
+			lock.release(shared);
+			throw new InvalidManagedInstanceException("Managed instance is in an invalid state");
+		}
+		if (managed == null) {
+			try {
+				managed = createManaged();
+			} catch (InstanceCreationException exception) {
+				inValid = true;
+				lock.release(shared);
+				throw new InvalidManagedInstanceException("Could not create managed instance: "+exception.getMessage(), exception.getCause());
 			}
 			if (managed == null) {
-				managed = createManaged();
-				if (managed == null) {
-					lock.release();
-					throw new GenericTaskManagerException("The managed object in manager " + name + " must never be null!");
-				}
+				lock.release(shared);
+				throw new GenericTaskManagerException("The managed object in manager " + name + " must never be null!");
 			}
-			return Pair.of(Boolean.TRUE, managed);
-		} catch (InterruptedException exception) {
-			throw new GenericTaskManagerException("Interrupted during wait.", exception);
-		} catch (InstanceCreationException exception) {
-			inValid = true;
-			lock.release();
-			throw new InvalidManagedInstanceException("Could not create managed instance: "+exception.getMessage(), exception.getCause());
+			nextVersion();
 		}
 	}
 	
 	/**
-	 * Low level method to lock no timeout. Only to be used in this package
+	 * Increment the version for a new, modified or removed managed instance.
+	 * Requires the exclusive lock, or a fresh instance during creation.
+	 */
+	private void nextVersion() {
+		version.incrementAndGet();
+	}
+	
+	/**
+	 * Check, if there is currently a managed instance. This does not acquire
+	 * any lock and does not trigger the creation of the managed instance.
 	 * 
-	 * @return pair of try lock status and managed instance (if available or null).
-	 * @throws InvalidManagedInstanceException 
+	 * @return true, if the managed instance has been created
 	 */
-	T getManaged() throws InvalidManagedInstanceException {
-		try {
-			lock.acquire();
-			if (inValid) {
-				lock.release();
-				throw new InvalidManagedInstanceException("Managed instance is in an invalid state");
-			}
-			if (managed == null) {
-				managed = createManaged();
-				if (managed == null) {
-					lock.release();
-					throw new GenericTaskManagerException("The managed object in manager " + name + " must never be null!");
-				}
-			}
-			return managed;
-		} catch (InterruptedException exception) {
-			throw new GenericTaskManagerException("Interrupted during wait.", exception);
-		} catch (InstanceCreationException exception) {
-			inValid = true;
-			lock.release();
-			throw new InvalidManagedInstanceException("Could not create managed instance: "+exception.getMessage(), exception.getCause());
-		}
+	public boolean hasManaged() {
+		return managed != null;
+	}
+	
+	/**
+	 * @return the current version, incremented for each change of the managed instance
+	 */
+	public long getVersion() {
+		return version.get();
 	}
 
 	/**
@@ -120,15 +197,29 @@ public abstract class GenericTaskManager<T> {
 	 * @throws InvalidManagedInstanceException 
 	 */
 	void returnManaged(T managed, Modified modified) throws InvalidManagedInstanceException {
+		returnManaged(managed, modified, false);
+	}
+	
+	private void returnManaged(T managed, Modified modified, boolean shared) throws InvalidManagedInstanceException {
 		if (this.managed != managed) {
 			throw new GenericTaskManagerException("Trying to return the wrong managed object for manager: " + name);
 		}
+		if (shared && (modified == Modified.reset || modified == Modified.update)) {
+			// other read-only tasks may still use the instance
+			lock.release(shared);
+			throw new GenericTaskManagerException("A read-only task must not modify the managed object in manager: " + name);
+		}
 		try {
+			// notify while holding the lock, listeners may dispose resources of the old instance
 			if (modified == Modified.reset) {
 				this.managed = resetManaged(managed);
+				nextVersion();
+				setChanged(true);
 			}
 			else if (modified == Modified.update) {
 				this.managed = updateManaged(managed);
+				nextVersion();
+				setChanged(false);
 			}
 		} catch (GenericTaskManagerException exception) {
 			throw exception;
@@ -137,13 +228,7 @@ public abstract class GenericTaskManager<T> {
 			throw new InvalidManagedInstanceException("Could not create managed instance: "+exception.getMessage(), exception.getCause());
 		}
 		finally {
-			lock.release();
-			if (modified == Modified.reset) {
-				setChanged(true);
-			}
-			else if (modified == Modified.update) {
-				setChanged(false);
-			}
+			lock.release(shared);
 		}
 	}
 
@@ -190,16 +275,19 @@ public abstract class GenericTaskManager<T> {
 	public final void updateManaged() throws InvalidManagedInstanceException {
 		boolean hasLock = false;
 		try {
-			lock.acquire();
+			lock.acquire(false);
 			hasLock = true;
 			if (inValid) {
 				throw new InvalidManagedInstanceException("Managed instance is in an invalid state");
 			}
 			if (managed == null) {
 				managed = createManaged();
+				nextVersion();
 			}
 			else {
 				managed = updateManaged(managed);
+				nextVersion();
+				// notify while holding the lock, listeners may dispose resources of the old instance
 				setChanged(false);
 			}
 		} catch (InterruptedException exception) {
@@ -210,7 +298,7 @@ public abstract class GenericTaskManager<T> {
 		}
 		finally {
 			if (hasLock) {
-				lock.release();
+				lock.release(false);
 			}
 		}
 	}
@@ -228,18 +316,19 @@ public abstract class GenericTaskManager<T> {
 	public final void dispose() {
 		boolean hasLock = false;
 		try {
-			lock.acquire();
+			lock.acquire(false);
 			hasLock = true;
 			if (managed != null) {
 				dispose(managed);
 				managed = null;
+				nextVersion();
 			}
 		} catch (InterruptedException exception) {
 			throw new GenericTaskManagerException("Interrupted during wait.", exception);
 		}
 		finally {
 			if (hasLock) {
-				lock.release();
+				lock.release(false);
 			}
 		}
 	}
@@ -264,7 +353,8 @@ public abstract class GenericTaskManager<T> {
 	public final boolean runManagedTask(ManagedTask<T> task, long timeout, TimeUnit timeoutUnit) throws InvalidManagedInstanceException {
 		T managed = null;
 		Modified modified = Modified.no;
-		Pair<Boolean, T> pair = getManaged(timeout, timeoutUnit);
+		final boolean shared = task instanceof ReadOnlyManagedTask;
+		Pair<Boolean, T> pair = getManaged(shared, timeout, timeoutUnit);
 		if (Boolean.FALSE.equals(pair.getOne())) {
 			return false;
 		}
@@ -275,7 +365,7 @@ public abstract class GenericTaskManager<T> {
 		}
 		finally {
 			if (managed != null) {
-				returnManaged(managed, modified);
+				returnManaged(managed, modified, shared);
 			}
 		}
 	}
@@ -290,13 +380,14 @@ public abstract class GenericTaskManager<T> {
 	public final void runManagedTask(ManagedTask<T> task) throws InvalidManagedInstanceException {
 		T managed = null;
 		Modified modified = Modified.no;
-		managed = getManaged();
+		final boolean shared = task instanceof ReadOnlyManagedTask;
+		managed = getManaged(shared, 0, null).getTwo();
 		try {
 			modified = task.run(managed);
 		}
 		finally {
 			if (managed != null) {
-				returnManaged(managed, modified);
+				returnManaged(managed, modified, shared);
 			}
 		}
 	}
@@ -304,12 +395,13 @@ public abstract class GenericTaskManager<T> {
 	public final void recoverInvalid() {
 		boolean hasLock = false;
 		try {
-			lock.acquire();
+			lock.acquire(false);
 			hasLock = true;
 			
 			// try to silently dispose invalid instance
 			T current = managed;
 			managed = null;
+			nextVersion();
 			inValid = false;
 			
 			dispose(current);
@@ -321,7 +413,7 @@ public abstract class GenericTaskManager<T> {
 		}
 		finally {
 			if (hasLock) {
-				lock.release();
+				lock.release(false);
 			}
 		}
 	}
@@ -345,6 +437,117 @@ public abstract class GenericTaskManager<T> {
 		 */
 		public Modified run(T managed);
 	}
+	
+	/**
+	 * Marker for a task, which does not modify the managed instance. In
+	 * read/write mode, these tasks share the managed instance with other
+	 * read-only tasks. The task must return {@link Modified#no}, any other
+	 * result is rejected with a {@link GenericTaskManagerException}.
+	 * 
+	 * @param <T>
+	 */
+	public static interface ReadOnlyManagedTask<T> extends ManagedTask<T> {
+		// marker interface
+	}
+	
+	/**
+	 * Internal lock abstraction, either a semaphore (no shared mode) or a
+	 * fair read/write lock.
+	 */
+	private static abstract class ManagerLock {
+		
+		abstract boolean isReadWrite();
+		
+		abstract void acquire(boolean shared) throws InterruptedException;
+		
+		abstract boolean tryAcquire(boolean shared, long timeout, TimeUnit timeoutUnit) throws InterruptedException;
+		
+		abstract void release(boolean shared);
+		
+		/**
+		 * Convert an exclusive lock into a shared lock.
+		 */
+		abstract void downgrade();
+	}
+	
+	private static final class SemaphoreManagerLock extends ManagerLock {
+		
+		private final Semaphore semaphore;
+		
+		SemaphoreManagerLock(int n) {
+			semaphore = new Semaphore(n, true); // fair
+		}
+
+		@Override
+		boolean isReadWrite() {
+			return false;
+		}
+
+		@Override
+		void acquire(boolean shared) throws InterruptedException {
+			semaphore.acquire();
+		}
+
+		@Override
+		boolean tryAcquire(boolean shared, long timeout, TimeUnit timeoutUnit) throws InterruptedException {
+			return semaphore.tryAcquire(timeout, timeoutUnit);
+		}
+
+		@Override
+		void release(boolean shared) {
+			semaphore.release();
+		}
+
+		@Override
+		void downgrade() {
+			// do nothing, there is only one type of permit
+		}
+	}
+	
+	private static final class ReadWriteManagerLock extends ManagerLock {
+		
+		// fair: readers do not overtake a waiting writer
+		private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock(true);
+
+		@Override
+		boolean isReadWrite() {
+			return true;
+		}
+
+		@Override
+		void acquire(boolean shared) throws InterruptedException {
+			if (shared) {
+				rwLock.readLock().lockInterruptibly();
+			}
+			else {
+				rwLock.writeLock().lockInterruptibly();
+			}
+		}
+
+		@Override
+		boolean tryAcquire(boolean shared, long timeout, TimeUnit timeoutUnit) throws InterruptedException {
+			if (shared) {
+				return rwLock.readLock().tryLock(timeout, timeoutUnit);
+			}
+			return rwLock.writeLock().tryLock(timeout, timeoutUnit);
+		}
+
+		@Override
+		void release(boolean shared) {
+			if (shared) {
+				rwLock.readLock().unlock();
+			}
+			else {
+				rwLock.writeLock().unlock();
+			}
+		}
+
+		@Override
+		void downgrade() {
+			rwLock.readLock().lock();
+			rwLock.writeLock().unlock();
+		}
+	}
 
 	public static class GenericTaskManagerException extends RuntimeException {
 
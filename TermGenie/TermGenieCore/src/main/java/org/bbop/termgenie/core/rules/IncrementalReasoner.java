@@ -0,0 +1,111 @@
+package org.bbop.termgenie.core.rules;
+
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.bbop.termgenie.core.management.GenericTaskManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/**
+ * Long-lived reasoner for a scratch ontology, which imports the target
+ * ontology. The target ontology is classified once. A {@link ScratchTask} adds
+ * its candidate axioms to the scratch ontology and calls
+ * {@link OWLReasoner#flush()}, which updates the classification
+ * incrementally. After the task, all axioms are retracted from the scratch
+ * ontology again.<br>
+ * The instance must be discarded, if the target ontology changes.
+ */
+public abstract class IncrementalReasoner extends GenericTaskManager<OWLReasoner> {
+
+	private static final Logger logger = Logger.getLogger(IncrementalReasoner.class);
+
+	protected IncrementalReasoner(String name) {
+		super(name);
+	}
+
+	@Override
+	protected OWLReasoner resetManaged(OWLReasoner managed) {
+		// Do nothing as the reasoner cannot change the target ontology.
+		return managed;
+	}
+
+	@Override
+	protected void setChanged(boolean reset) {
+		// do nothing for now
+	}
+
+	/**
+	 * A task, which requires a scratch ontology and a reasoner. All changes
+	 * to the scratch ontology are only valid during the run of the task.
+	 */
+	public static interface ScratchTask {
+
+		/**
+		 * Run the task. Call {@link OWLReasoner#flush()} after modifying the
+		 * scratch ontology and before querying the reasoner.
+		 *
+		 * @param scratch the scratch ontology, importing the target ontology
+		 * @param reasoner the reasoner for the scratch ontology
+		 * @return false, if the scratch ontology or the reasoner are in an
+		 *         inconsistent state and must be re-created
+		 */
+		public boolean run(OWLOntology scratch, OWLReasoner reasoner);
+	}
+
+	/**
+	 * Run the task with the scratch ontology. Retract all axioms added by the
+	 * task afterwards. If the task reports an inconsistent state or the
+	 * retraction fails, the reasoner is re-created.
+	 *
+	 * @param task
+	 * @throws InvalidManagedInstanceException
+	 */
+	public void runScratchTask(final ScratchTask task) throws InvalidManagedInstanceException {
+		ManagedTask<OWLReasoner> managedTask = new ManagedTask<OWLReasoner>() {
+
+			@Override
+			public Modified run(OWLReasoner reasoner) {
+				OWLOntology scratch = reasoner.getRootOntology();
+				boolean valid = false;
+				boolean retracted = false;
+				try {
+					valid = task.run(scratch, reasoner);
+				}
+				finally {
+					retracted = retract(scratch, reasoner);
+				}
+				if (!valid || !retracted) {
+					// re-create reasoner and scratch ontology
+					return Modified.update;
+				}
+				return Modified.no;
+			}
+		};
+		runManagedTask(managedTask);
+	}
+
+	/**
+	 * Remove all axioms from the scratch ontology and update the reasoner.
+	 * 
+	 * @param scratch
+	 * @param reasoner
+	 * @return true, if the retraction was successful
+	 */
+	public static boolean retract(OWLOntology scratch, OWLReasoner reasoner) {
+		try {
+			Set<OWLAxiom> axioms = scratch.getAxioms();
+			if (!axioms.isEmpty()) {
+				OWLOntologyManager manager = scratch.getOWLOntologyManager();
+				manager.removeAxioms(scratch, axioms);
+				reasoner.flush();
+			}
+			return true;
+		} catch (Exception exception) {
+			logger.warn("Could not retract axioms from scratch ontology: "+scratch.getOntologyID(), exception);
+			return false;
+		}
+	}
+}
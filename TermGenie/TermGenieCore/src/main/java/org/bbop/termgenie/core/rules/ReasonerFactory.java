@@ -21,6 +21,16 @@ public interface ReasonerFactory {
 	 */
 	public SharedReasoner getSharedReasoner(OWLGraphWrapper ontology);
 
+	/**
+	 * Get a long-lived reasoner for a scratch ontology, which imports the
+	 * given ontology. Use this for checking candidate axioms without
+	 * classifying the whole ontology for each candidate.
+	 * 
+	 * @param ontology
+	 * @return incremental reasoner
+	 */
+	public IncrementalReasoner getIncrementalReasoner(OWLGraphWrapper ontology);
+
 	public OWLReasoner createReasoner(OWLOntology ontology, ProcessState state);
 
 	/**
@@ -2,16 +2,30 @@ package org.bbop.termgenie.core.rules;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.eventbus.OntologyChangeEvent;
+import org.bbop.termgenie.core.eventbus.OntologyPrepareEvent;
 import org.bbop.termgenie.core.eventbus.SecondaryOntologyChangeEvent;
+import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
 import org.bbop.termgenie.core.process.ProcessState;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
 import org.bushe.swing.event.EventBus;
 import org.bushe.swing.event.EventSubscriber;
 import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
 import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.InferenceType;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
 import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
@@ -22,6 +36,7 @@ import owltools.graph.OWLGraphWrapper;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 
 @Singleton
 public class ReasonerFactoryImpl implements ReasonerFactory, EventSubscriber<OntologyChangeEvent> {
@@ -29,12 +44,59 @@ public class ReasonerFactoryImpl implements ReasonerFactory, EventSubscriber<Ont
 	private static final Logger logger = Logger.getLogger(ReasonerFactoryImpl.class);
 	private static final OWLReasonerFactory factory = new ElkReasonerFactory();
 
-	private volatile SharedReasoner cached = null;
+	public static final String POOL_SIZE_NAME = "ReasonerFactoryPoolSize";
+	public static final String WARM_UP_NAME = "ReasonerFactoryWarmUp";
+
+	private final int poolSize;
+	private final ExecutorService warmUpExecutor;
+	private final AtomicInteger next = new AtomicInteger(0);
+
+	private volatile ReasonerTaskManagerImpl[] cachedPool = null;
+	private volatile IncrementalReasoner cachedIncremental = null;
+	
+	// classified for a pending version of the ontology, guarded by this
+	private ReasonerTaskManagerImpl preparedReasoner = null;
+	
+	// keep a reference, the event bus only holds weak references
+	private final EventSubscriber<OntologyPrepareEvent> prepareSubscriber = new EventSubscriber<OntologyPrepareEvent>() {
+
+		@Override
+		public void onEvent(OntologyPrepareEvent event) {
+			prepare(event.getPending());
+		}
+	};
 
-	@Inject
 	public ReasonerFactoryImpl() {
+		this(1, false);
+	}
+
+	/**
+	 * @param poolSize the maximum number of classified reasoner instances
+	 * @param warmUp if true, classify the reasoners in the background after
+	 *            an ontology change
+	 */
+	@Inject
+	public ReasonerFactoryImpl(@Named(POOL_SIZE_NAME) Integer poolSize,
+			@Named(WARM_UP_NAME) boolean warmUp)
+	{
 		super();
+		this.poolSize = Math.max(1, poolSize.intValue());
+		if (warmUp) {
+			warmUpExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "reasoner-warm-up");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		else {
+			warmUpExecutor = null;
+		}
 		EventBus.subscribe(OntologyChangeEvent.class, this);
+		EventBus.subscribe(OntologyPrepareEvent.class, prepareSubscriber);
 	}
 
 	@Override
@@ -60,29 +122,144 @@ public class ReasonerFactoryImpl implements ReasonerFactory, EventSubscriber<Ont
 
 	@Override
 	public SharedReasoner getSharedReasoner(OWLGraphWrapper ontology) {
+		ReasonerTaskManagerImpl[] pool;
 		synchronized (this) {
-			if (cached == null) {
-				cached = createSharedReasoner(ontology);
+			if (cachedPool == null) {
+				cachedPool = createPool(ontology);
 			}
+			pool = cachedPool;
+		}
+		return select(pool);
+	}
+
+	/**
+	 * Select a reasoner from the pool in a round robin fashion. An additional
+	 * reasoner is only classified, if the free memory is sufficient for
+	 * another instance, estimated with the memory used by the first reasoner.
+	 * 
+	 * @param pool
+	 * @return reasoner
+	 */
+	private SharedReasoner select(ReasonerTaskManagerImpl[] pool) {
+		ReasonerTaskManagerImpl first = pool[0];
+		if (pool.length == 1 || !first.hasManaged()) {
+			return first;
+		}
+		int index = (next.getAndIncrement() & Integer.MAX_VALUE) % pool.length;
+		ReasonerTaskManagerImpl candidate = pool[index];
+		if (candidate.hasManaged() || hasMemoryFor(first.getMemoryEstimate())) {
+			return candidate;
 		}
-		return cached;
+		return first;
+	}
+
+	private static boolean hasMemoryFor(long estimate) {
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		long available = runtime.maxMemory() - used;
+		// keep a safety margin for the requests
+		return available > 2 * estimate;
+	}
+	
+	@Override
+	public IncrementalReasoner getIncrementalReasoner(OWLGraphWrapper ontology) {
+		synchronized (this) {
+			if (cachedIncremental == null) {
+				OWLOntology owlOntology = ontology.getSourceOntology();
+				String name = "incremental-reasoner-manager-" + factory.getReasonerName() + "-" + owlOntology.getOntologyID();
+				cachedIncremental = new IncrementalReasonerImpl(name, factory, owlOntology);
+			}
+		}
+		return cachedIncremental;
 	}
 	
 	@Override
 	public void dispose() {
 		synchronized (this) {
-			if (cached != null) {
-				cached.dispose();
-				cached = null;
+			disposeCached();
+			disposePrepared();
+		}
+	}
+	
+	private void disposeCached() {
+		if (cachedPool != null) {
+			for (ReasonerTaskManagerImpl reasoner : cachedPool) {
+				reasoner.dispose();
 			}
+			cachedPool = null;
+		}
+		if (cachedIncremental != null) {
+			cachedIncremental.dispose();
+			cachedIncremental = null;
+		}
+	}
+	
+	private void disposePrepared() {
+		if (preparedReasoner != null) {
+			preparedReasoner.dispose();
+			preparedReasoner = null;
 		}
 	}
 	
-	private SharedReasoner createSharedReasoner(OWLGraphWrapper graph) {
+	private ReasonerTaskManagerImpl[] createPool(OWLGraphWrapper graph) {
 		OWLOntology ontology = graph.getSourceOntology();
-		String name = "reasoner-manager-" + factory.getReasonerName() + "-" + ontology.getOntologyID();
+		ReasonerTaskManagerImpl[] pool = new ReasonerTaskManagerImpl[poolSize];
+		int start = 0;
+		if (preparedReasoner != null) {
+			if (preparedReasoner.ontology == ontology) {
+				// use the reasoner, which has been classified before the swap
+				pool[0] = preparedReasoner;
+				preparedReasoner = null;
+				start = 1;
+			}
+			else {
+				// outdated, the pending version has not been published
+				disposePrepared();
+			}
+		}
+		for (int i = start; i < poolSize; i++) {
+			pool[i] = createReasoner(ontology, i);
+		}
+		return pool;
+	}
+	
+	private ReasonerTaskManagerImpl createReasoner(OWLOntology ontology, int i) {
+		String name = "reasoner-manager-" + factory.getReasonerName() + "-" + i + "-" + ontology.getOntologyID();
 		return new ReasonerTaskManagerImpl(name, factory, ontology);
 	}
+	
+	/**
+	 * Classify a reasoner for the pending version of an ontology, before the
+	 * new version is published. The reasoner becomes the first reasoner in
+	 * the pool, once the new version is in use. Skipped, if the free memory is
+	 * not sufficient for an additional reasoner.
+	 * 
+	 * @param pending
+	 */
+	void prepare(OWLGraphWrapper pending) {
+		ReasonerTaskManagerImpl[] pool = cachedPool;
+		if (pool != null && !hasMemoryFor(pool[0].getMemoryEstimate())) {
+			logger.info("Skip preparation of reasoner for pending ontology, insufficient memory");
+			return;
+		}
+		ReasonerTaskManagerImpl reasoner = createReasoner(pending.getSourceOntology(), 0);
+		try {
+			// classifies the ontology and builds the taxonomy
+			reasoner.getTaxonomy();
+		} catch (Exception exception) {
+			logger.warn("Could not prepare reasoner for pending ontology", exception);
+			reasoner.dispose();
+			return;
+		}
+		ReasonerTaskManagerImpl old;
+		synchronized (this) {
+			old = preparedReasoner;
+			preparedReasoner = reasoner;
+		}
+		if (old != null) {
+			old.dispose();
+		}
+	}
 
 	/**
 	 * Handle an ontology change. This assumes that an ontology change can only
@@ -96,24 +273,72 @@ public class ReasonerFactoryImpl implements ReasonerFactory, EventSubscriber<Ont
 	@Override
 	public void onEvent(OntologyChangeEvent event) {
 		synchronized (this) {
-			if (cached != null) {
-				cached.dispose();
-				cached = null;
-			}
+			disposeCached();
+		}
+		EventBus.publish(new SecondaryOntologyChangeEvent(event.getManager(), event.isReset(), event.getVersion()));
+		if (warmUpExecutor != null) {
+			scheduleWarmUp(event.getManager());
 		}
-		EventBus.publish(new SecondaryOntologyChangeEvent(event.getManager(), event.isReset()));
+	}
+
+	/**
+	 * Classify the reasoners of the pool in the background. The ontology may
+	 * still be locked by the caller of the event, so the warm-up has to wait
+	 * for the shared ontology lock in a separate thread.
+	 * 
+	 * @param manager
+	 */
+	private void scheduleWarmUp(final OntologyTaskManager manager) {
+		warmUpExecutor.submit(new Runnable() {
+
+			@Override
+			public void run() {
+				ReadOnlyOntologyTask task = new ReadOnlyOntologyTask() {
+
+					@Override
+					protected void runCatching(OWLGraphWrapper graph) throws TaskException, Exception {
+						ReasonerTaskManagerImpl[] pool;
+						synchronized (ReasonerFactoryImpl.this) {
+							if (cachedPool == null) {
+								cachedPool = createPool(graph);
+							}
+							pool = cachedPool;
+						}
+						for (int i = 0; i < pool.length; i++) {
+							if (i > 0 && !hasMemoryFor(pool[0].getMemoryEstimate())) {
+								logger.info("Skip warm-up of reasoner "+i+", insufficient memory");
+								break;
+							}
+							// classifies the ontology and builds the taxonomy
+							pool[i].getTaxonomy();
+						}
+					}
+				};
+				try {
+					manager.runManagedTask(task);
+					if (task.getException() != null) {
+						logger.warn("Could not warm-up reasoners", task.getException());
+					}
+				} catch (InvalidManagedInstanceException exception) {
+					logger.warn("Could not warm-up reasoners", exception);
+				}
+			}
+		});
 	}
 	
 	static final class ReasonerTaskManagerImpl extends SharedReasoner {
 	
 		private final OWLReasonerFactory reasonerFactory;
 		private final OWLOntology ontology;
+		private final String name;
+		private volatile long memoryEstimate = 0;
 	
 		ReasonerTaskManagerImpl(String name,
 				OWLReasonerFactory reasonerFactory,
 				OWLOntology ontology)
 		{
 			super(name);
+			this.name = name;
 			this.reasonerFactory = reasonerFactory;
 			this.ontology = ontology;
 		}
@@ -130,9 +355,23 @@ public class ReasonerFactoryImpl implements ReasonerFactory, EventSubscriber<Ont
 		protected OWLReasoner createManaged() {
 			int count = ontology.getAxiomCount();
 			logger.info("Create reasoner: " + reasonerFactory.getReasonerName() + " for ontology: " + ontology.getOntologyID()+" axiom count: "+count);
+			Runtime runtime = Runtime.getRuntime();
+			long before = runtime.totalMemory() - runtime.freeMemory();
 			OWLReasoner reasoner = reasonerFactory.createReasoner(ontology);
+			reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY);
+			long after = runtime.totalMemory() - runtime.freeMemory();
+			// rough estimate, the garbage collector may run in between
+			memoryEstimate = Math.max(0, after - before);
+			logger.info("Finished classification for reasoner: "+name+" estimated memory: "+(memoryEstimate / (1024 * 1024))+" MB");
 			return reasoner;
 		}
+
+		/**
+		 * @return estimated memory usage of the last created reasoner in bytes
+		 */
+		long getMemoryEstimate() {
+			return memoryEstimate;
+		}
 	
 		@Override
 		protected OWLReasoner resetManaged(OWLReasoner managed) {
@@ -147,6 +386,56 @@ public class ReasonerFactoryImpl implements ReasonerFactory, EventSubscriber<Ont
 		}
 	}
 	
+	static final class IncrementalReasonerImpl extends IncrementalReasoner {
+		
+		private final OWLReasonerFactory reasonerFactory;
+		private final OWLOntology ontology;
+		
+		IncrementalReasonerImpl(String name,
+				OWLReasonerFactory reasonerFactory,
+				OWLOntology ontology)
+		{
+			super(name);
+			this.reasonerFactory = reasonerFactory;
+			this.ontology = ontology;
+		}
+
+		@Override
+		protected OWLReasoner createManaged() throws InstanceCreationException {
+			OWLOntologyManager manager = ontology.getOWLOntologyManager();
+			try {
+				OWLOntology scratch = manager.createOntology(IRI.generateDocumentIRI());
+				OWLOntologyID id = ontology.getOntologyID();
+				OWLImportsDeclaration importDeclaration = manager.getOWLDataFactory().getOWLImportsDeclaration(id.getDefaultDocumentIRI().orNull());
+				manager.applyChange(new AddImport(scratch, importDeclaration));
+				logger.info("Create incremental reasoner: " + reasonerFactory.getReasonerName() + " for ontology: " + id);
+				// buffering reasoner, changes are processed incrementally during a flush
+				OWLReasoner reasoner = reasonerFactory.createReasoner(scratch);
+				reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY);
+				return reasoner;
+			} catch (OWLOntologyCreationException exception) {
+				throw new InstanceCreationException("Could not create scratch ontology for incremental reasoner", exception);
+			}
+		}
+
+		@Override
+		protected OWLReasoner updateManaged(OWLReasoner managed) throws InstanceCreationException {
+			if (managed != null) {
+				dispose(managed);
+			}
+			return createManaged();
+		}
+
+		@Override
+		protected void dispose(OWLReasoner managed) {
+			if (managed != null) {
+				OWLOntology scratch = managed.getRootOntology();
+				managed.dispose();
+				scratch.getOWLOntologyManager().removeOntology(scratch);
+			}
+		}
+	}
+	
 	private static final class ReasonerProgressWriter implements ReasonerProgressMonitor {
 
 		// generated
@@ -6,6 +6,9 @@ import org.bbop.termgenie.core.ioc.IOCModule;
 
 public class ReasonerModule extends IOCModule {
 
+	private int poolSize = 1;
+	private boolean warmUp = true;
+
 	/**
 	 * @param applicationProperties
 	 */
@@ -13,9 +16,26 @@ public class ReasonerModule extends IOCModule {
 		super(applicationProperties);
 	}
 
+	/**
+	 * @param poolSize the maximum number of classified reasoner instances
+	 */
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * @param warmUp true, if the reasoners should be classified in the
+	 *            background after an ontology change
+	 */
+	public void setWarmUp(boolean warmUp) {
+		this.warmUp = warmUp;
+	}
+
 	@Override
 	protected void configure() {
 		bind(ReasonerFactory.class, ReasonerFactoryImpl.class);
+		bind(ReasonerFactoryImpl.POOL_SIZE_NAME, Integer.valueOf(poolSize));
+		bind(ReasonerFactoryImpl.WARM_UP_NAME, warmUp);
 	}
 	
 }
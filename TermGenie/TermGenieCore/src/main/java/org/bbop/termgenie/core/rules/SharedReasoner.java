@@ -28,6 +28,8 @@ public abstract class SharedReasoner extends GenericTaskManager<OWLReasoner> {
 
 	private static final Logger logger = Logger.getLogger(SharedReasoner.class);
 	
+	private volatile TaxonomyIndex taxonomy = null;
+	
 	protected SharedReasoner(String name) {
 		super(name);
 	}
@@ -50,9 +52,74 @@ public abstract class SharedReasoner extends GenericTaskManager<OWLReasoner> {
 		// intentionally empty
 	}
 
+	/**
+	 * Retrieve the taxonomy for the current reasoner instance. The index is
+	 * computed once per classification, i.e. per version of the managed
+	 * reasoner. Queries on the index require no lock.
+	 * 
+	 * @return taxonomy, never null
+	 */
+	public TaxonomyIndex getTaxonomy() {
+		TaxonomyIndex current = taxonomy;
+		if (current != null && current.getVersion() == getVersion()) {
+			return current;
+		}
+		final TaxonomyIndex[] result = new TaxonomyIndex[1];
+		ReasonerTask task = new ReasonerTask() {
+
+			@Override
+			public Modified run(OWLReasoner managed) {
+				// the version is stable, while holding the lock
+				long version = getVersion();
+				TaxonomyIndex index = taxonomy;
+				if (index == null || index.getVersion() != version) {
+					index = TaxonomyIndex.create(managed, version);
+					taxonomy = index;
+				}
+				result[0] = index;
+				return Modified.no;
+			}
+		};
+		try {
+			runManagedTask(task);
+		} catch (InvalidManagedInstanceException exception) {
+			throw new RuntimeException(exception);
+		}
+		return result[0];
+	}
+
 	// implement some common reasoner tasks.
 
+	/**
+	 * Check, if x is a strict sub class of parent. Uses the
+	 * {@link TaxonomyIndex}.
+	 * 
+	 * @param x
+	 * @param parent
+	 * @param wrapper
+	 * @return true, if parent is an ancestor of x
+	 */
+	public boolean isSubClassOf(OWLObject x, OWLObject parent, OWLGraphWrapper wrapper) {
+		OWLClass cls = wrapper.getOWLClass(x);
+		OWLClass parentCls = wrapper.getOWLClass(parent);
+		if (cls == null || parentCls == null) {
+			return false;
+		}
+		TaxonomyIndex index = getTaxonomy();
+		if (index.contains(cls)) {
+			return index.isSubClassOf(cls, parentCls);
+		}
+		return getAncestors(x, wrapper).contains(parent);
+	}
+
 	public Collection<OWLObject> getDescendants(final OWLObject x, final OWLGraphWrapper wrapper) {
+		OWLClass cls = wrapper.getOWLClass(x);
+		if (cls != null) {
+			Collection<OWLObject> descendants = getTaxonomy().getDescendants(cls);
+			if (descendants != null) {
+				return descendants;
+			}
+		}
 		final Collection<OWLObject> result = new HashSet<OWLObject>();
 		ReasonerTask task = new ReasonerTask() {
 
@@ -72,6 +139,13 @@ public abstract class SharedReasoner extends GenericTaskManager<OWLReasoner> {
 	}
 
 	public Collection<OWLObject> getAncestors(final OWLObject x, final OWLGraphWrapper wrapper) {
+		OWLClass cls = wrapper.getOWLClass(x);
+		if (cls != null) {
+			Collection<OWLObject> ancestors = getTaxonomy().getAncestors(cls);
+			if (ancestors != null) {
+				return ancestors;
+			}
+		}
 		final Collection<OWLObject> result = new HashSet<OWLObject>();
 		ReasonerTask task = new ReasonerTask() {
 
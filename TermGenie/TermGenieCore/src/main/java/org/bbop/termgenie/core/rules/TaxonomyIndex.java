@@ -0,0 +1,278 @@
+package org.bbop.termgenie.core.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/**
+ * Immutable snapshot of the inferred class hierarchy of a reasoner. Each class
+ * has an ordinal, the direct parents and children are stored as int arrays and
+ * the ancestors as sorted int array. Queries are answered without the
+ * reasoner and without any lock.<br>
+ * The results are strict, as for {@link OWLReasoner#getSuperClasses(
+ * org.semanticweb.owlapi.model.OWLClassExpression, boolean)}: the class itself
+ * and its equivalent classes are not included.
+ */
+public final class TaxonomyIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	private final long version;
+	private final OWLClass[] classes;
+	private final Map<OWLClass, Integer> ordinals;
+	private final int[][] parents;
+	private final int[][] children;
+	private final int[][] ancestors;
+
+	private TaxonomyIndex(long version,
+			OWLClass[] classes,
+			Map<OWLClass, Integer> ordinals,
+			int[][] parents,
+			int[][] children,
+			int[][] ancestors)
+	{
+		this.version = version;
+		this.classes = classes;
+		this.ordinals = ordinals;
+		this.parents = parents;
+		this.children = children;
+		this.ancestors = ancestors;
+	}
+
+	/**
+	 * Create the index for the classes in the imports closure of the root
+	 * ontology of the reasoner. The reasoner is only accessed during this
+	 * call.
+	 *
+	 * @param reasoner
+	 * @param version the version of the reasoner instance
+	 * @return index
+	 */
+	public static TaxonomyIndex create(OWLReasoner reasoner, long version) {
+		OWLOntology ontology = reasoner.getRootOntology();
+		OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+		Set<OWLClass> signature = new HashSet<OWLClass>();
+		for (OWLOntology current : ontology.getImportsClosure()) {
+			signature.addAll(current.getClassesInSignature());
+		}
+		List<OWLClass> classList = new ArrayList<OWLClass>(signature.size() + 2);
+		classList.add(factory.getOWLThing());
+		classList.add(factory.getOWLNothing());
+		for (OWLClass cls : signature) {
+			if (!cls.isOWLThing() && !cls.isOWLNothing()) {
+				classList.add(cls);
+			}
+		}
+		final int size = classList.size();
+		OWLClass[] classes = classList.toArray(new OWLClass[size]);
+		Map<OWLClass, Integer> ordinals = new HashMap<OWLClass, Integer>(size * 2);
+		for (int i = 0; i < size; i++) {
+			ordinals.put(classes[i], Integer.valueOf(i));
+		}
+
+		// direct parents
+		int[][] parents = new int[size][];
+		int[] childCounts = new int[size];
+		for (int i = 0; i < size; i++) {
+			Set<OWLClass> superClasses = reasoner.getSuperClasses(classes[i], true).getFlattened();
+			int[] p = toOrdinals(superClasses, ordinals);
+			parents[i] = p;
+			for (int parent : p) {
+				childCounts[parent] += 1;
+			}
+		}
+
+		// direct children, inverse of the parents
+		int[][] children = new int[size][];
+		for (int i = 0; i < size; i++) {
+			children[i] = childCounts[i] == 0 ? EMPTY : new int[childCounts[i]];
+		}
+		int[] positions = new int[size];
+		for (int i = 0; i < size; i++) {
+			for (int parent : parents[i]) {
+				children[parent][positions[parent]++] = i;
+			}
+		}
+
+		// ancestors, memoized over the direct parents
+		int[][] ancestors = new int[size][];
+		BitSet buffer = new BitSet(size);
+		for (int i = 0; i < size; i++) {
+			computeAncestors(i, parents, ancestors, buffer);
+		}
+		return new TaxonomyIndex(version, classes, ordinals, parents, children, ancestors);
+	}
+
+	private static int[] toOrdinals(Set<OWLClass> classes, Map<OWLClass, Integer> ordinals) {
+		if (classes.isEmpty()) {
+			return EMPTY;
+		}
+		int[] result = new int[classes.size()];
+		int count = 0;
+		for (OWLClass cls : classes) {
+			Integer ordinal = ordinals.get(cls);
+			if (ordinal != null) {
+				result[count++] = ordinal.intValue();
+			}
+		}
+		if (count < result.length) {
+			result = Arrays.copyOf(result, count);
+		}
+		return result;
+	}
+
+	private static int[] computeAncestors(int i, int[][] parents, int[][] ancestors, BitSet buffer) {
+		if (ancestors[i] != null) {
+			return ancestors[i];
+		}
+		int[] p = parents[i];
+		if (p.length == 0) {
+			ancestors[i] = EMPTY;
+			return EMPTY;
+		}
+		// the hierarchy is acyclic, the depth of the recursion is limited by the depth of the hierarchy
+		for (int parent : p) {
+			computeAncestors(parent, parents, ancestors, buffer);
+		}
+		buffer.clear();
+		for (int parent : p) {
+			buffer.set(parent);
+			for (int ancestor : ancestors[parent]) {
+				buffer.set(ancestor);
+			}
+		}
+		int[] result = new int[buffer.cardinality()];
+		int pos = 0;
+		for (int bit = buffer.nextSetBit(0); bit >= 0; bit = buffer.nextSetBit(bit + 1)) {
+			result[pos++] = bit;
+		}
+		ancestors[i] = result;
+		return result;
+	}
+
+	/**
+	 * @return the version of the reasoner instance used to build this index
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param cls
+	 * @return true, if the class is part of this index
+	 */
+	public boolean contains(OWLClass cls) {
+		return ordinals.containsKey(cls);
+	}
+
+	/**
+	 * Check, if sub is a strict sub class of sup.
+	 *
+	 * @param sub
+	 * @param sup
+	 * @return true, if sup is an ancestor of sub
+	 */
+	public boolean isSubClassOf(OWLClass sub, OWLClass sup) {
+		Integer subOrdinal = ordinals.get(sub);
+		Integer supOrdinal = ordinals.get(sup);
+		if (subOrdinal == null || supOrdinal == null) {
+			return false;
+		}
+		return Arrays.binarySearch(ancestors[subOrdinal.intValue()], supOrdinal.intValue()) >= 0;
+	}
+
+	/**
+	 * @param cls
+	 * @return all strict ancestors or null, if the class is unknown
+	 */
+	public Collection<OWLObject> getAncestors(OWLClass cls) {
+		Integer ordinal = ordinals.get(cls);
+		if (ordinal == null) {
+			return null;
+		}
+		return toClasses(ancestors[ordinal.intValue()]);
+	}
+
+	/**
+	 * @param cls
+	 * @return direct parents or null, if the class is unknown
+	 */
+	public Collection<OWLObject> getParents(OWLClass cls) {
+		Integer ordinal = ordinals.get(cls);
+		if (ordinal == null) {
+			return null;
+		}
+		return toClasses(parents[ordinal.intValue()]);
+	}
+
+	/**
+	 * @param cls
+	 * @return direct children or null, if the class is unknown
+	 */
+	public Collection<OWLObject> getChildren(OWLClass cls) {
+		Integer ordinal = ordinals.get(cls);
+		if (ordinal == null) {
+			return null;
+		}
+		return toClasses(children[ordinal.intValue()]);
+	}
+
+	/**
+	 * @param cls
+	 * @return all strict descendants or null, if the class is unknown
+	 */
+	public Collection<OWLObject> getDescendants(OWLClass cls) {
+		Integer ordinal = ordinals.get(cls);
+		if (ordinal == null) {
+			return null;
+		}
+		BitSet visited = new BitSet(classes.length);
+		int[] queue = new int[16];
+		int head = 0;
+		int tail = 0;
+		List<OWLObject> result = new ArrayList<OWLObject>();
+		for (int child : children[ordinal.intValue()]) {
+			if (!visited.get(child)) {
+				visited.set(child);
+				if (tail == queue.length) {
+					queue = Arrays.copyOf(queue, queue.length * 2);
+				}
+				queue[tail++] = child;
+			}
+		}
+		while (head < tail) {
+			int current = queue[head++];
+			result.add(classes[current]);
+			for (int child : children[current]) {
+				if (!visited.get(child)) {
+					visited.set(child);
+					if (tail == queue.length) {
+						queue = Arrays.copyOf(queue, queue.length * 2);
+					}
+					queue[tail++] = child;
+				}
+			}
+		}
+		return result;
+	}
+
+	private Collection<OWLObject> toClasses(int[] ordinals) {
+		List<OWLObject> result = new ArrayList<OWLObject>(ordinals.length);
+		for (int ordinal : ordinals) {
+			result.add(classes[ordinal]);
+		}
+		return result;
+	}
+}
@@ -101,13 +101,25 @@ public abstract class OntologyTaskManager extends GenericTaskManager<OWLGraphWra
 		}
 	}
 
+	/**
+	 * A task which requires an ontology, but does not modify it. In contrast
+	 * to an {@link OntologyTask}, multiple read-only tasks may run
+	 * concurrently.
+	 */
+	public static abstract class ReadOnlyOntologyTask extends OntologyTask implements ReadOnlyManagedTask<OWLGraphWrapper> {
+		
+		protected ReadOnlyOntologyTask() {
+			super(Modified.no);
+		}
+	}
+
 	protected final Ontology ontology;
 	private String ontologyId = null;
 
 	public OntologyTaskManager(Ontology ontology) throws InvalidManagedInstanceException {
-		super("OntologyTaskManager-" + ontology.getName());
+		super("OntologyTaskManager-" + ontology.getName(), true); // read/write mode
 		this.ontology = ontology;
-		runManagedTask(new OntologyTask() {
+		runManagedTask(new ReadOnlyOntologyTask() {
 
 			@Override
 			protected void runCatching(OWLGraphWrapper managed) {
@@ -122,7 +134,7 @@ public abstract class OntologyTaskManager extends GenericTaskManager<OWLGraphWra
 
 	@Override
 	protected void setChanged(boolean reset) {
-		EventBus.publish(new OntologyChangeEvent(this, reset));
+		EventBus.publish(new OntologyChangeEvent(this, reset, getVersion()));
 	}
 
 	@Override
@@ -32,10 +32,26 @@ public class BaseOntologyLoader {
 
 	protected synchronized OWLGraphWrapper getResource(Ontology ontology)
 			throws Throwable
+	{
+		return getResource(ontology, pw);
+	}
+
+	/**
+	 * Load the ontology using the given parser. Use a parser from
+	 * {@link #createParserWrapper()} to load a new copy of the ontology,
+	 * while the current copy is still in use.
+	 * 
+	 * @param ontology
+	 * @param parser
+	 * @return graph
+	 * @throws Throwable
+	 */
+	protected OWLGraphWrapper getResource(Ontology ontology, ParserWrapper parser)
+			throws Throwable
 	{
 		OWLGraphWrapper w;
 		try {
-			w = load(ontology.getSource());
+			w = load(ontology.getSource(), parser);
 		} catch (Throwable exception) {
 			logger.error("Could not load ontology: "+ontology.getSource(), exception);
 			throw exception;
@@ -50,7 +66,7 @@ public class BaseOntologyLoader {
 			for (String support : supports) {
 				OWLOntology owl;
 				try {
-					owl = loadOwl(support);
+					owl = loadOwl(support, parser);
 				} catch (Throwable exception) {
 					logger.error("Could not load support ontology: "+support, exception);
 					throw exception;
@@ -86,23 +102,60 @@ public class BaseOntologyLoader {
 		// always use a clean new Wrapper
 		// there are still issues with cleaning a manager from all previous ontologies
 		
-		// Step 1: try to clean up existing manager
+		// Step 1: create a new wrapper and transfer IRI mappers
+		ParserWrapper newWrapper = createParserWrapper();
+		
+		// Step 2: try to clean up existing manager
+		disposeParserWrapper(pw);
+		pw = newWrapper;
+	}
+
+	/**
+	 * Create a new parser with a separate ontology manager and the same IRI
+	 * mappers as the current parser.
+	 * 
+	 * @return parser
+	 */
+	protected synchronized ParserWrapper createParserWrapper() {
 		List<OWLOntologyIRIMapper> mappers = new ArrayList<OWLOntologyIRIMapper>(pw.getIRIMappers());
-		OWLOntologyManager oldManager = pw.getManager();
+		ParserWrapper newWrapper = new ParserWrapper();
+		newWrapper.addIRIMappers(mappers);
+		return newWrapper;
+	}
+
+	/**
+	 * Replace the current parser with a parser, which has been used to load a
+	 * new copy of the ontology. The ontologies of the current parser are
+	 * disposed.
+	 * 
+	 * @param parser
+	 */
+	protected synchronized void replaceParserWrapper(ParserWrapper parser) {
+		ParserWrapper old = pw;
+		pw = parser;
+		disposeParserWrapper(old);
+	}
+
+	/**
+	 * Remove all ontologies and IRI mappers from the manager of the parser.
+	 * 
+	 * @param parser
+	 */
+	protected static void disposeParserWrapper(ParserWrapper parser) {
+		OWLOntologyManager oldManager = parser.getManager();
 		Set<OWLOntology> ontologies = oldManager.getOntologies();
 		for (OWLOntology ontology : ontologies) {
 			oldManager.removeOntology(ontology);
 		}
 		oldManager.getIRIMappers().clear();
-		
-		// Step 2: create a new wrapper and transfer IRI mappers
-		ParserWrapper newWrapper = new ParserWrapper();
-		newWrapper.addIRIMappers(mappers);
-		pw = newWrapper;
 	}
 
 	protected OWLGraphWrapper load(String url) throws Exception {
-		OWLOntology owlOntology = loadOwl(url);
+		return load(url, pw);
+	}
+	
+	protected OWLGraphWrapper load(String url, ParserWrapper parser) throws Exception {
+		OWLOntology owlOntology = loadOwl(url, parser);
 		if (owlOntology == null) {
 			return null;
 		}
@@ -110,7 +163,11 @@ public class BaseOntologyLoader {
 	}
 	
 	protected OWLOntology loadOwl(String url) throws Exception {
-		return pw.parse(url);
+		return loadOwl(url, pw);
+	}
+	
+	protected OWLOntology loadOwl(String url, ParserWrapper parser) throws Exception {
+		return parser.parse(url);
 	}
 
 }
@@ -3,17 +3,23 @@ package org.bbop.termgenie.ontology.impl;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.Ontology;
+import org.bbop.termgenie.core.eventbus.OntologyPrepareEvent;
 import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
 import org.bbop.termgenie.ontology.OntologyConfiguration;
 import org.bbop.termgenie.ontology.OntologyLoader;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
+import org.bbop.termgenie.tools.Pair;
+import org.bushe.swing.event.EventBus;
 import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
 
 import owltools.graph.OWLGraphWrapper;
+import owltools.io.ParserWrapper;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -23,7 +29,13 @@ import com.google.inject.name.Named;
  * Load ontologies into memory and reload them from the source periodically.
  * Changed ontologies are recovered, by reloading the ontology from the source.
  * The source and local copy of an ontology are controlled by the configured
- * {@link OWLOntologyIRIMapper}.
+ * {@link OWLOntologyIRIMapper}.<br>
+ * A reload loads the new version of the ontology into a separate ontology
+ * manager, while the current version is still in use. Subscribers of the
+ * {@link OntologyPrepareEvent} prepare their data for the new version, before
+ * it replaces the current one in one short exclusive step. Updates requested
+ * via the manager, e.g. after a commit, reload the ontology while holding the
+ * exclusive lock, so the changes are visible as soon as the lock is released.
  */
 @Singleton
 class ReloadingOntologyLoader extends BaseOntologyLoader implements OntologyLoader {
@@ -31,6 +43,11 @@ class ReloadingOntologyLoader extends BaseOntologyLoader implements OntologyLoad
 	protected final static Logger LOGGER = Logger.getLogger(ReloadingOntologyLoader.class);
 
 	private final OntologyTaskManager manager;
+	private final Object reloadLock = new Object();
+	private final ScheduledExecutorService scheduler;
+	
+	// new version of the ontology, loaded in the background and not yet in use
+	private final AtomicReference<Pair<ParserWrapper, OWLGraphWrapper>> pending = new AtomicReference<Pair<ParserWrapper,OWLGraphWrapper>>(null);
 
 	@Inject
 	ReloadingOntologyLoader(OntologyConfiguration configuration,
@@ -45,6 +62,15 @@ class ReloadingOntologyLoader extends BaseOntologyLoader implements OntologyLoad
 		} catch (InvalidManagedInstanceException exception) {
 			throw new RuntimeException(exception);
 		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ontology-reload");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		// use invalid settings to de-activate the reloading
 		if (period > 0 && unit != null) {
 			// use java.concurrent to schedule periodic task of reloading the
@@ -57,7 +83,6 @@ class ReloadingOntologyLoader extends BaseOntologyLoader implements OntologyLoad
 					reloadOntologies();
 				}
 			};
-			ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 			scheduler.scheduleWithFixedDelay(command, period, period, unit);
 		}
 		else {
@@ -66,20 +91,52 @@ class ReloadingOntologyLoader extends BaseOntologyLoader implements OntologyLoad
 	}
 
 	@Override
-	public synchronized void reloadOntologies() {
-		try {
-			manager.updateManaged();
-		} catch (InvalidManagedInstanceException first) {
-			LOGGER.info("Trying to recover an invalid ontology state during ontology reload.");
-			manager.recoverInvalid();
+	public void reloadOntologies() {
+		synchronized (reloadLock) {
+			// load without holding the lock of the manager
+			Pair<ParserWrapper, OWLGraphWrapper> loaded = loadSeparateOntology(manager.getOntology());
+			if (loaded == null) {
+				// keep the current version
+				return;
+			}
+			// prepare reasoner and indices, while the current version is still in use
+			EventBus.publish(new OntologyPrepareEvent(manager, loaded.getTwo()));
+			pending.set(loaded);
+			try {
+				// swap the current version with the pending one
+				manager.updateManaged();
+			} catch (InvalidManagedInstanceException first) {
+				LOGGER.info("Trying to recover an invalid ontology state during ontology reload.");
+				manager.recoverInvalid();
+			}
 		}
 	}
 
 	@Override
-	public synchronized OntologyTaskManager getOntologyManager() {
+	public OntologyTaskManager getOntologyManager() {
 		return manager;
 	}
 
+	/**
+	 * Load the ontology into a new ontology manager.
+	 * 
+	 * @param ontology
+	 * @return pair of parser and graph or null, if the load failed
+	 */
+	private Pair<ParserWrapper, OWLGraphWrapper> loadSeparateOntology(Ontology ontology) {
+		ParserWrapper parser = createParserWrapper();
+		try {
+			LOGGER.info("Start loading new version of ontology: "+ontology.getName());
+			OWLGraphWrapper graph = getResource(ontology, parser);
+			LOGGER.info("Finished loading new version of ontology: "+ontology.getName());
+			return Pair.of(parser, graph);
+		} catch (Throwable exception) {
+			LOGGER.error("Could not load new version of ontology: "+ontology.getName(), exception);
+			disposeParserWrapper(parser);
+			return null;
+		}
+	}
+
 	private OWLGraphWrapper loadOntology(Ontology ontology) {
 		try {
 			OWLGraphWrapper w = getResource(ontology);
@@ -98,18 +155,29 @@ class ReloadingOntologyLoader extends BaseOntologyLoader implements OntologyLoad
 	
 		@Override
 		protected OWLGraphWrapper createManaged() throws InstanceCreationException {
+			Pair<ParserWrapper, OWLGraphWrapper> loaded = pending.getAndSet(null);
+			if (loaded != null) {
+				replaceParserWrapper(loaded.getOne());
+				return loaded.getTwo();
+			}
 			OWLGraphWrapper graph = loadOntology(getOntology());
 			return graph;
 		}
 	
 		@Override
 		protected OWLGraphWrapper updateManaged(OWLGraphWrapper managed) throws InstanceCreationException {
-			// do not load the ontology immediately
-			// this is a blocking call, while returning the ontology after the commit
-			disposeOntologies();
-			return null;
+			Pair<ParserWrapper, OWLGraphWrapper> loaded = pending.getAndSet(null);
+			if (loaded == null) {
+				// no background reload, e.g. after a commit
+				// reload now, the following tasks must see the committed changes
+				disposeOntologies();
+				return loadOntology(getOntology());
+			}
+			// also disposes the ontologies of the current version
+			replaceParserWrapper(loaded.getOne());
+			return loaded.getTwo();
 		}
-	
+		
 		@Override
 		protected void dispose(OWLGraphWrapper managed) {
 			disposeOntologies();
@@ -5,6 +5,8 @@ import static org.junit.Assert.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
 import org.junit.Test;
@@ -59,11 +61,125 @@ public class GenericTaskManagerTest {
 				result.toArray(new String[0]));
 	}
 
+	/**
+	 * Read-only tasks share the managed instance in read/write mode. Both
+	 * tasks must be able to pass the barrier at the same time.
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testReadOnlyTasksConcurrent() throws InterruptedException {
+		TestTaskManager manager = new TestTaskManager(true);
+		List<String> result = Collections.synchronizedList(new ArrayList<String>());
+		CyclicBarrier barrier = new CyclicBarrier(2);
+
+		TestGenericReadOnlyTask t1 = new TestGenericReadOnlyTask("t1", manager, 100, 0, barrier, result);
+		TestGenericReadOnlyTask t2 = new TestGenericReadOnlyTask("t2", manager, 100, 0, barrier, result);
+		t1.start();
+		t2.start();
+		t1.join();
+		t2.join();
+		assertEquals(2, result.size());
+		assertTrue(result.contains("t1v1"));
+		assertTrue(result.contains("t2v1"));
+	}
+
+	/**
+	 * A waiting modifying task blocks read-only tasks, which arrive later.
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testReadOnlyTasksWriterPreference() throws InterruptedException {
+		TestTaskManager manager = new TestTaskManager(true);
+		List<String> result = Collections.synchronizedList(new ArrayList<String>());
+
+		new TestGenericReadOnlyTask("t1", manager, 100, 150, null, result).start();
+		new TestGenericModifyingTask("t2", manager, 150, 100, result).start();
+		TestGenericReadOnlyTask thread = new TestGenericReadOnlyTask("t3", manager, 200, 0, null, result);
+		thread.start();
+
+		thread.join();
+		assertArrayEquals(new String[] { "t1v1", "t2v1", "t3r1" },
+				result.toArray(new String[0]));
+	}
+
+	/**
+	 * A read-only task must not update or reset the managed instance. The
+	 * lock is released nonetheless.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testReadOnlyTaskModificationRejected() throws Exception {
+		TestTaskManager manager = new TestTaskManager(true);
+		try {
+			manager.runManagedTask(new GenericTaskManager.ReadOnlyManagedTask<String>() {
+
+				@Override
+				public Modified run(String managed) {
+					return Modified.reset;
+				}
+			});
+			fail("Expected a GenericTaskManagerException");
+		} catch (GenericTaskManager.GenericTaskManagerException exception) {
+			// expected
+		}
+		final List<String> result = new ArrayList<String>();
+		boolean locked = manager.runManagedTask(new GenericTaskManager.ManagedTask<String>() {
+
+			@Override
+			public Modified run(String managed) {
+				result.add(managed);
+				return Modified.no;
+			}
+		}, 1, TimeUnit.SECONDS);
+		assertTrue(locked);
+		assertEquals(Collections.singletonList("v1"), result);
+	}
+
+	/**
+	 * Every update or reset increments the version.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testVersion() throws Exception {
+		TestTaskManager manager = new TestTaskManager(true);
+		assertFalse(manager.hasManaged());
+		
+		manager.updateManaged(); // creates the instance
+		assertTrue(manager.hasManaged());
+		long v1 = manager.getVersion();
+		
+		manager.updateManaged();
+		long v2 = manager.getVersion();
+		assertTrue(v2 > v1);
+		
+		manager.runManagedTask(new GenericTaskManager.ManagedTask<String>() {
+
+			@Override
+			public Modified run(String managed) {
+				return Modified.reset;
+			}
+		});
+		long v3 = manager.getVersion();
+		assertTrue(v3 > v2);
+		
+		manager.dispose();
+		assertFalse(manager.hasManaged());
+		assertTrue(manager.getVersion() > v3);
+	}
+
 	private static class TestTaskManager extends GenericTaskManager<String> {
 
 		public TestTaskManager() {
 			super("TestTaskManager");
 		}
+		
+		public TestTaskManager(boolean readWrite) {
+			super("TestTaskManager", readWrite);
+		}
 
 		@Override
 		protected String createManaged() {
@@ -138,6 +254,60 @@ public class GenericTaskManagerTest {
 		}
 	}
 
+	private static class TestGenericReadOnlyTask extends Thread {
+
+		private final GenericTaskManager<String> manager;
+		private final long startSleep;
+		private final long workSleep;
+		private final CyclicBarrier barrier;
+		private final List<String> result;
+		private final String name;
+
+		TestGenericReadOnlyTask(String name,
+				GenericTaskManager<String> manager,
+				long startSleep,
+				long workSleep,
+				CyclicBarrier barrier,
+				List<String> result)
+		{
+			super();
+			this.name = name;
+			this.manager = manager;
+			this.startSleep = startSleep;
+			this.workSleep = workSleep;
+			this.barrier = barrier;
+			this.result = result;
+		}
+
+		@Override
+		public void run() {
+			try {
+				sleep(startSleep);
+				manager.runManagedTask(new GenericTaskManager.ReadOnlyManagedTask<String>() {
+
+					@Override
+					public Modified run(String managed) {
+						try {
+							if (barrier != null) {
+								// fails with a timeout, if the tasks are not concurrent
+								barrier.await(1, TimeUnit.SECONDS);
+							}
+							result.add(name + managed);
+							sleep(workSleep);
+							return Modified.no;
+						} catch (Exception exception) {
+							throw new RuntimeException(exception);
+						}
+					}
+				});
+			} catch (InterruptedException exception) {
+				throw new RuntimeException(exception);
+			} catch (InvalidManagedInstanceException exception) {
+				throw new RuntimeException(exception);
+			}
+		}
+	}
+
 	private static class TestGenericModifyingTask extends Thread {
 
 		private final GenericTaskManager<String> manager;
@@ -0,0 +1,109 @@
+package org.bbop.termgenie.core.rules;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bbop.termgenie.core.rules.IncrementalReasoner.ScratchTask;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.semanticweb.elk.owlapi.ElkReasonerFactory;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import owltools.graph.OWLGraphWrapper;
+import owltools.io.CatalogXmlIRIMapper;
+import owltools.io.ParserWrapper;
+
+/**
+ * Tests for {@link IncrementalReasoner}. The inferences for the candidate
+ * axioms must match a fresh reasoner and the scratch ontology must be empty
+ * after each task.
+ */
+public class IncrementalReasonerTest {
+
+	private static OWLGraphWrapper graph = null;
+	private static IncrementalReasoner incrementalReasoner = null;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ParserWrapper parser = new ParserWrapper();
+		parser.addIRIMapper(new CatalogXmlIRIMapper("src/test/resources/ontologies/import-test-case/catalog-v001.xml"));
+		graph = new OWLGraphWrapper(parser.parse("http://test.purl.obolibrary.org/obo/base.obo"));
+		graph.mergeOntology(parser.parse("http://purl.obolibrary.org/obo/go/extensions/bio-chebi.owl"));
+		incrementalReasoner = new ReasonerFactoryImpl().getIncrementalReasoner(graph);
+	}
+
+	@Test
+	public void testRunScratchTask() throws Exception {
+		OWLDataFactory factory = graph.getDataFactory();
+		OWLClass foo1 = graph.getOWLClassByIdentifier("FOO:0001");
+		OWLClass foo2 = graph.getOWLClassByIdentifier("FOO:0002");
+		assertNotNull(foo1);
+		assertNotNull(foo2);
+		final OWLClass sub = factory.getOWLClass(IRI.create("http://purl.obolibrary.org/obo/FOO_9001"));
+		final OWLClass equivalent = factory.getOWLClass(IRI.create("http://purl.obolibrary.org/obo/FOO_9002"));
+		final Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+		axioms.add(factory.getOWLDeclarationAxiom(sub));
+		axioms.add(factory.getOWLDeclarationAxiom(equivalent));
+		axioms.add(factory.getOWLSubClassOfAxiom(sub, foo2));
+		axioms.add(factory.getOWLEquivalentClassesAxiom(equivalent, foo1));
+
+		// reference: fresh reasoner for a copy of the ontology and the candidates
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		Set<OWLAxiom> all = new HashSet<OWLAxiom>(axioms);
+		for (OWLOntology ontology : graph.getSourceOntology().getImportsClosure()) {
+			all.addAll(ontology.getAxioms());
+		}
+		OWLReasoner fresh = new ElkReasonerFactory().createReasoner(manager.createOntology(all));
+		final List<Set<OWLClass>> expected = inferences(fresh, sub, equivalent);
+		fresh.dispose();
+
+		// run twice, the second run must not see any leftovers of the first
+		for (int i = 0; i < 2; i++) {
+			final List<Set<OWLClass>> actual = new ArrayList<Set<OWLClass>>();
+			incrementalReasoner.runScratchTask(new ScratchTask() {
+
+				@Override
+				public boolean run(OWLOntology scratch, OWLReasoner reasoner) {
+					assertTrue(scratch.getAxioms().isEmpty());
+					scratch.getOWLOntologyManager().addAxioms(scratch, axioms);
+					reasoner.flush();
+					actual.addAll(inferences(reasoner, sub, equivalent));
+					return true;
+				}
+			});
+			assertEquals(expected, actual);
+		}
+
+		// the scratch ontology is empty and the reasoner is up-to-date
+		incrementalReasoner.runScratchTask(new ScratchTask() {
+
+			@Override
+			public boolean run(OWLOntology scratch, OWLReasoner reasoner) {
+				assertTrue(scratch.getAxioms().isEmpty());
+				assertFalse(reasoner.getSubClasses(graph.getOWLClassByIdentifier("FOO:0002"), true).getFlattened().contains(sub));
+				return true;
+			}
+		});
+	}
+
+	private static List<Set<OWLClass>> inferences(OWLReasoner reasoner, OWLClass sub, OWLClass equivalent) {
+		List<Set<OWLClass>> result = new ArrayList<Set<OWLClass>>();
+		result.add(reasoner.getSuperClasses(sub, true).getFlattened());
+		result.add(reasoner.getSuperClasses(sub, false).getFlattened());
+		result.add(reasoner.getEquivalentClasses(equivalent).getEntities());
+		result.add(reasoner.getSubClasses(equivalent, true).getFlattened());
+		result.add(reasoner.getSubClasses(equivalent, false).getFlattened());
+		return result;
+	}
+}
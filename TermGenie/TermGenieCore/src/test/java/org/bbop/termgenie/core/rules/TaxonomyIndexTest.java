@@ -0,0 +1,86 @@
+package org.bbop.termgenie.core.rules;
+
+import static org.junit.Assert.*;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.bbop.termgenie.core.rules.SharedReasoner.ReasonerTask;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+import owltools.graph.OWLGraphWrapper;
+import owltools.io.CatalogXmlIRIMapper;
+import owltools.io.ParserWrapper;
+
+/**
+ * Tests for {@link TaxonomyIndex} and the {@link SharedReasoner} methods
+ * using it. All answers must match the reasoner.
+ */
+public class TaxonomyIndexTest {
+
+	private static OWLGraphWrapper graph = null;
+	private static SharedReasoner reasoner = null;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ParserWrapper parser = new ParserWrapper();
+		parser.addIRIMapper(new CatalogXmlIRIMapper("src/test/resources/ontologies/import-test-case/catalog-v001.xml"));
+		graph = new OWLGraphWrapper(parser.parse("http://test.purl.obolibrary.org/obo/base.obo"));
+		graph.mergeOntology(parser.parse("http://purl.obolibrary.org/obo/go/extensions/bio-chebi.owl"));
+		reasoner = new ReasonerFactoryImpl().getSharedReasoner(graph);
+	}
+
+	@Test
+	public void testTaxonomy() throws Exception {
+		final TaxonomyIndex index = reasoner.getTaxonomy();
+		assertSame(index, reasoner.getTaxonomy());
+		final Set<OWLClass> classes = new HashSet<OWLClass>();
+		for (OWLOntology ontology : graph.getSourceOntology().getImportsClosure()) {
+			classes.addAll(ontology.getClassesInSignature());
+		}
+		assertFalse(classes.isEmpty());
+		reasoner.runManagedTask(new ReasonerTask() {
+
+			@Override
+			public Modified run(OWLReasoner managed) {
+				for (OWLClass cls : classes) {
+					assertTrue(index.contains(cls));
+					assertClasses(managed.getSuperClasses(cls, true).getFlattened(), index.getParents(cls));
+					assertClasses(managed.getSubClasses(cls, true).getFlattened(), index.getChildren(cls));
+					Set<OWLClass> ancestors = managed.getSuperClasses(cls, false).getFlattened();
+					assertClasses(ancestors, index.getAncestors(cls));
+					assertClasses(managed.getSubClasses(cls, false).getFlattened(), index.getDescendants(cls));
+					for (OWLClass other : classes) {
+						assertEquals(ancestors.contains(other), index.isSubClassOf(cls, other));
+					}
+				}
+				return Modified.no;
+			}
+		});
+	}
+
+	@Test
+	public void testSharedReasoner() throws Exception {
+		OWLObject foo1 = graph.getOWLObjectByIdentifier("FOO:0001");
+		OWLObject foo2 = graph.getOWLObjectByIdentifier("FOO:0002");
+		assertNotNull(foo1);
+		assertNotNull(foo2);
+		assertTrue(reasoner.isSubClassOf(foo2, foo1, graph));
+		assertFalse(reasoner.isSubClassOf(foo1, foo2, graph));
+		assertFalse(reasoner.isSubClassOf(foo1, foo1, graph));
+		assertTrue(reasoner.getAncestors(foo2, graph).contains(foo1));
+		assertTrue(reasoner.getDescendants(foo1, graph).contains(foo2));
+		assertFalse(reasoner.getDescendants(foo2, graph).contains(foo1));
+	}
+
+	private static void assertClasses(Set<OWLClass> expected, Collection<OWLObject> actual) {
+		assertNotNull(actual);
+		assertEquals(expected, new HashSet<OWLObject>(actual));
+	}
+}
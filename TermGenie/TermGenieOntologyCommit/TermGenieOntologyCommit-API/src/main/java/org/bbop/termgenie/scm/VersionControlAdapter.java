@@ -28,7 +28,10 @@ public interface VersionControlAdapter extends Closeable {
 	public void close() throws IOException;
 
 	/**
-	 * Checkout the given files from the VC repository.
+	 * Checkout the given files from the VC repository. If the target folder
+	 * already contains a working copy of the repository, it is updated
+	 * instead and all local modifications are discarded. A working copy, which
+	 * can not be updated, is replaced with a new checkout.
 	 * 
 	 * @see #connect()
 	 * @see #close()
@@ -13,6 +13,8 @@ public abstract class AbstractCommitModule extends IOCModule {
 	@Override
 	protected void configure() {
 		bind(CommitHistoryStore.class, CommitHistoryStoreImpl.class);
+		// optional persistent working copy, default: new checkout for each commit
+		bind(ScmHelper.WORKING_COPY_PARAM, null, true, true);
 	}
 
 }
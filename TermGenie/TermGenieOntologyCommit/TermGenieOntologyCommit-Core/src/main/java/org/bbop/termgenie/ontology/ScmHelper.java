@@ -5,6 +5,8 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.process.ProcessState;
@@ -14,6 +16,9 @@ import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
 
 import owltools.graph.OWLGraphWrapper;
 
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
 /**
  * Main steps for committing ontology changes to an ontology file in an SCM
  * repository.
@@ -22,9 +27,12 @@ import owltools.graph.OWLGraphWrapper;
 public abstract class ScmHelper<ONTOLOGY> {
 	
 	private static final Logger LOG = Logger.getLogger(ScmHelper.class);
+	
+	public static final String WORKING_COPY_PARAM = "CommitAdapterScmWorkingCopy";
 
 	private final String targetOntologyFileName;
 	private final List<OWLOntologyIRIMapper> defaultMappers;
+	private File workingCopy = null;
 
 	protected ScmHelper(String svnOntologyFileName, List<OWLOntologyIRIMapper> defaultMappers)
 	{
@@ -56,10 +64,33 @@ public abstract class ScmHelper<ONTOLOGY> {
 		}
 	}
 
+	/**
+	 * Use a persistent working copy for all commits, instead of a new
+	 * checkout in the temporary work folder. The working copy is updated and
+	 * reset before each commit, see {@link VersionControlAdapter#checkout}.
+	 * Commits are expected to run sequentially.
+	 * 
+	 * @param workingCopy the folder for the working copy or null
+	 */
+	@Inject(optional=true)
+	public void setWorkingCopy(@Nullable @Named(WORKING_COPY_PARAM) String workingCopy) {
+		if (workingCopy == null) {
+			this.workingCopy = null;
+		}
+		else {
+			this.workingCopy = new File(workingCopy).getAbsoluteFile();
+		}
+	}
+
 	public ScmCommitData prepareWorkflow(File workFolder) throws CommitException {
 		final ScmCommitData data = new ScmCommitData();
 
-		data.scmFolder = createFolder(workFolder, "scm");
+		if (workingCopy != null) {
+			data.scmFolder = createFolder(workingCopy.getParentFile(), workingCopy.getName());
+		}
+		else {
+			data.scmFolder = createFolder(workFolder, "scm");
+		}
 		final File patchedFolder = createFolder(workFolder, "patched");
 		data.scmFile = new File(data.scmFolder, targetOntologyFileName);
 		data.patchFile = new File(patchedFolder, targetOntologyFileName);
@@ -2,18 +2,24 @@ package org.bbop.termgenie.git;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.process.ProcessState;
 import org.bbop.termgenie.scm.VersionControlAdapter;
+import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.CommitCommand;
+import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.PullCommand;
 import org.eclipse.jgit.api.PullResult;
 import org.eclipse.jgit.api.PushCommand;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.TransportCommand;
 import org.eclipse.jgit.api.TransportConfigCallback;
 import org.eclipse.jgit.api.errors.CanceledException;
@@ -29,6 +35,8 @@ import org.eclipse.jgit.api.errors.RejectCommitException;
 import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.api.errors.UnmergedPathsException;
 import org.eclipse.jgit.api.errors.WrongRepositoryStateException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.transport.CredentialsProvider;
@@ -99,7 +107,8 @@ public class GitTool implements VersionControlAdapter {
 	
 	private Git gitInstance = null;
 	
-	
+	private boolean sparseCheckout = false;
+	private List<String> sparsePaths = null;
 	
 	GitTool(String repositoryURL, File targetFolder, CredentialsProvider credentialsProvider, TransportConfigCallback sshCallback) {
 		super();
@@ -113,6 +122,21 @@ public class GitTool implements VersionControlAdapter {
 		return targetFolder;
 	}
 	
+	/**
+	 * Only write the target files and the additional paths to the working
+	 * tree, instead of the complete tree of the branch. The index still
+	 * contains all files, so commits of the target files are not affected.<br>
+	 * If the sparse checkout fails, the complete tree is checked out.
+	 * 
+	 * @param sparseCheckout
+	 * @param additionalPaths files or folders, relative to the working tree,
+	 *            e.g., a catalog and the imports; may be null
+	 */
+	public void setSparseCheckout(boolean sparseCheckout, List<String> additionalPaths) {
+		this.sparseCheckout = sparseCheckout;
+		this.sparsePaths = additionalPaths;
+	}
+	
 	@Override
 	public void connect() throws IOException {
 		// do nothing
@@ -120,7 +144,18 @@ public class GitTool implements VersionControlAdapter {
 
 	@Override
 	public void close() throws IOException {
-		// do nothing
+		// release the repository, it is opened again on demand
+		if (gitInstance != null) {
+			gitInstance.getRepository().close();
+			gitInstance = null;
+		}
+	}
+	
+	private Git getGit() throws IOException {
+		if (gitInstance == null) {
+			gitInstance = Git.open(targetFolder);
+		}
+		return gitInstance;
 	}
 
 	private void setCredentials(TransportCommand<?, ?> c) {
@@ -132,8 +167,126 @@ public class GitTool implements VersionControlAdapter {
 		}
 	}
 	
+	/**
+	 * Checkout the given files. If the target folder already contains a clone
+	 * of the repository, it is reused: fetch the remote branch and reset the
+	 * working copy, discarding all local commits and modifications. If the
+	 * existing clone can not be used, it is deleted and cloned again.
+	 */
 	@Override
 	public boolean checkout(List<String> targetFiles, ProcessState state) throws IOException {
+		if (new File(targetFolder, Constants.DOT_GIT).isDirectory()) {
+			try {
+				if (refresh(targetFiles, state)) {
+					return true;
+				}
+				LOGGER.warn("Missing target files in the git working copy: "+targetFolder);
+			} catch (IOException exception) {
+				LOGGER.warn("Could not reuse the git working copy: "+targetFolder, exception);
+			} catch (GitAPIException exception) {
+				LOGGER.warn("Could not reuse the git working copy: "+targetFolder, exception);
+			} catch (RuntimeException exception) {
+				LOGGER.warn("Could not reuse the git working copy: "+targetFolder, exception);
+			}
+			ProcessState.addMessage(state, "Could not reuse the existing git working copy, starting a new git clone.");
+			close();
+			FileUtils.deleteDirectory(targetFolder);
+		}
+		return cloneRepository(targetFiles, state);
+	}
+	
+	/**
+	 * Fetch and hard reset an existing clone to the remote tracking branch.
+	 * 
+	 * @param targetFiles
+	 * @param state
+	 * @return true, if all target files exist after the reset
+	 * @throws IOException
+	 * @throws GitAPIException
+	 */
+	private boolean refresh(List<String> targetFiles, ProcessState state) throws IOException, GitAPIException {
+		Git git = getGit();
+		Repository repository = git.getRepository();
+		
+		// integrity checks: same remote, valid branch
+		String remoteURL = repository.getConfig().getString("remote", "origin", "url");
+		if (repositoryURL.equals(remoteURL) == false) {
+			throw new IOException("The working copy has a different remote: "+remoteURL);
+		}
+		String branch = repository.getBranch();
+		if (branch == null || ObjectId.isId(branch)) {
+			throw new IOException("The working copy has no current branch");
+		}
+		
+		String msg = "Start git fetch for files: "+targetFiles+" URL: "+repositoryURL;
+		LOGGER.info(msg+" into folder: "+targetFolder);
+		ProcessState.addMessage(state, msg);
+		FetchCommand fetch = git.fetch().setRemote("origin").setProgressMonitor(new GitProgressMonitor(state));
+		setCredentials(fetch);
+		fetch.call();
+		
+		// discard local commits and changes, e.g., from a failed push
+		String remoteBranch = Constants.R_REMOTES + "origin/" + branch;
+		if (repository.resolve(remoteBranch) == null) {
+			throw new IOException("Could not resolve remote branch: "+remoteBranch);
+		}
+		if (sparseCheckout) {
+			checkoutSparse(git, remoteBranch, targetFiles);
+		}
+		else {
+			git.reset().setMode(ResetType.HARD).setRef(remoteBranch).call();
+		}
+		git.clean().setCleanDirectories(true).call();
+		
+		if (checkTargetFiles(repository.getWorkTree(), targetFiles) == false) {
+			return false;
+		}
+		msg = "Finished update of existing working copy for files: "+targetFiles;
+		ProcessState.addMessage(state, msg);
+		LOGGER.info(msg);
+		return true;
+	}
+	
+	/**
+	 * Set the index to the given commit and only write the target files and
+	 * sparse paths to the working tree. Fall back to a hard reset, if this
+	 * fails.
+	 * 
+	 * @param git
+	 * @param ref
+	 * @param targetFiles
+	 * @throws GitAPIException
+	 */
+	private void checkoutSparse(Git git, String ref, List<String> targetFiles) throws GitAPIException {
+		List<String> paths = new ArrayList<String>(targetFiles);
+		if (sparsePaths != null) {
+			paths.addAll(sparsePaths);
+		}
+		try {
+			git.reset().setMode(ResetType.MIXED).setRef(ref).call();
+			CheckoutCommand checkout = git.checkout();
+			for (String path : paths) {
+				checkout.addPath(path);
+			}
+			checkout.call();
+			LOGGER.info("Finished sparse checkout for paths: "+paths);
+		} catch (GitAPIException exception) {
+			LOGGER.warn("Sparse checkout failed for paths: "+paths+", using a full checkout.", exception);
+			git.reset().setMode(ResetType.HARD).setRef(ref).call();
+		}
+	}
+	
+	private static boolean checkTargetFiles(File workTree, List<String> targetFiles) {
+		for (String targetFile : targetFiles) {
+			File file = new File(workTree, targetFile);
+			if (file.exists() == false) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private boolean cloneRepository(List<String> targetFiles, ProcessState state) throws IOException {
 		try {
 			if (ProcessState.NO != state || LOGGER.isInfoEnabled()) {
 				String msg = "Start git clone for files: "+targetFiles+" URL: "+repositoryURL;
@@ -144,16 +297,16 @@ public class GitTool implements VersionControlAdapter {
 			CloneCommand clone = Git.cloneRepository()
 			        .setURI(repositoryURL)
 			        .setDirectory(targetFolder)
+			        .setNoCheckout(sparseCheckout)
 			        .setProgressMonitor(new GitProgressMonitor(state));
 			setCredentials(clone);
 			gitInstance = clone.call();
+			if (sparseCheckout) {
+				checkoutSparse(gitInstance, Constants.HEAD, targetFiles);
+			}
 			Repository repository = gitInstance.getRepository();
-			final File workTree = repository.getWorkTree();
-			for (String targetFile : targetFiles) {
-				File file = new File(workTree, targetFile);
-				if (file.exists() == false) {
-					return false;
-				}
+			if (checkTargetFiles(repository.getWorkTree(), targetFiles) == false) {
+				return false;
 			}
 			if (ProcessState.NO != state || LOGGER.isInfoEnabled()) {
 				String msg = "Finished checkout for files: "+targetFiles;
@@ -176,7 +329,7 @@ public class GitTool implements VersionControlAdapter {
 	{
 		LOGGER.info("Start git commit for targets: "+targetFiles+" URL: "+repositoryURL);
 		// git commit
-		CommitCommand commit = gitInstance.commit().setMessage(message).
+		CommitCommand commit = getGit().commit().setMessage(message).
 				setAuthor(user, userEmail).
 				setCommitter(user, userEmail);
 		for (String targetFile : targetFiles) {
@@ -203,7 +356,7 @@ public class GitTool implements VersionControlAdapter {
 		
 		LOGGER.info("Start git push to URL: "+repositoryURL);
 		// git push
-		PushCommand push = gitInstance.push().setProgressMonitor(new GitProgressMonitor(state));
+		PushCommand push = getGit().push().setProgressMonitor(new GitProgressMonitor(state));
 		setCredentials(push);
 		try {
 			push.call();
@@ -220,9 +373,17 @@ public class GitTool implements VersionControlAdapter {
 
 	@Override
 	public boolean update(List<String> targetFiles, ProcessState state) throws IOException {
+		if (sparseCheckout) {
+			// a merge would write all changed files, fetch and reset instead
+			try {
+				return refresh(targetFiles != null ? targetFiles : Collections.<String>emptyList(), state);
+			} catch (GitAPIException exception) {
+				throw new IOException(exception);
+			}
+		}
 		LOGGER.info("Start git pull for URL: "+repositoryURL);
 		// git pull
-		PullCommand pull = gitInstance.pull().setProgressMonitor(new GitProgressMonitor(state));
+		PullCommand pull = getGit().pull().setProgressMonitor(new GitProgressMonitor(state));
 		setCredentials(pull);
 		try {
 			PullResult pullResult = pull.call();
@@ -34,6 +34,8 @@ abstract class AbstractCommitGitModule extends AbstractCommitModule {
 		super.configure();
 		bind("CommitAdapterGitRepositoryUrl", gitRepository);
 		bind("CommitAdapterGitOntologyFileName", gitOntologyFileName);
+		// default: check out the complete tree
+		bind(GitHelper.SPARSE_CHECKOUT_PARAM, false);
 		bindScmHelper();
 	}
 
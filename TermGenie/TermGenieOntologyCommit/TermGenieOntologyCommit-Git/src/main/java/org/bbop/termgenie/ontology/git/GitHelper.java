@@ -1,6 +1,7 @@
 package org.bbop.termgenie.ontology.git;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -18,11 +19,14 @@ import com.google.inject.name.Named;
 
 
 public class GitHelper {
+	
+	public static final String SPARSE_CHECKOUT_PARAM = "CommitAdapterGitSparseCheckout";
 
 	@Singleton
 	public static final class OboGitHelperPassword extends OboScmHelper {
 
 		private final String GitRepository;
+		private final boolean sparseCheckout;
 		private final String GitUsername;
 		private final String GitPassword;
 
@@ -31,10 +35,12 @@ public class GitHelper {
 				@Named("DefaultIRIMappers") List<OWLOntologyIRIMapper> defaultMappers,
 				@Named("CommitAdapterGitRepositoryUrl") String GitRepository,
 				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName,
+				@Named(SPARSE_CHECKOUT_PARAM) boolean sparseCheckout,
 				@Named("CommitAdapterGitUsername") String GitUsername,
 				@Named("CommitAdapterGitPassword") String GitPassword)
 		{
 			super(GitOntologyFileName, defaultMappers);
+			this.sparseCheckout = sparseCheckout;
 			this.GitRepository = GitRepository;
 			this.GitUsername = GitUsername;
 			this.GitPassword = GitPassword;
@@ -44,7 +50,7 @@ public class GitHelper {
 		public VersionControlAdapter createSCM(File GitFolder)
 		{
 			GitTool Git = GitTool.createUsernamePasswordGit(GitFolder, GitRepository, GitUsername, GitPassword);
-			return Git;
+			return configureSparseCheckout(Git, sparseCheckout, null);
 		}
 	}
 	
@@ -52,6 +58,7 @@ public class GitHelper {
 	public static final class OboGitHelperToken extends OboScmHelper {
 
 		private final String GitRepository;
+		private final boolean sparseCheckout;
 		private final String GitToken;
 
 		@Inject
@@ -59,9 +66,11 @@ public class GitHelper {
 				@Named("DefaultIRIMappers") List<OWLOntologyIRIMapper> defaultMappers,
 				@Named("CommitAdapterGitRepositoryUrl") String GitRepository,
 				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName,
+				@Named(SPARSE_CHECKOUT_PARAM) boolean sparseCheckout,
 				@Named("CommitAdapterGitToken") String GitToken)
 		{
 			super(GitOntologyFileName, defaultMappers);
+			this.sparseCheckout = sparseCheckout;
 			this.GitRepository = GitRepository;
 			this.GitToken = GitToken;
 		}
@@ -70,7 +79,7 @@ public class GitHelper {
 		public VersionControlAdapter createSCM(File GitFolder)
 		{
 			GitTool Git = GitTool.createUsernamePasswordGit(GitFolder, GitRepository, GitToken, "");
-			return Git;
+			return configureSparseCheckout(Git, sparseCheckout, null);
 		}
 	}
 	
@@ -78,6 +87,8 @@ public class GitHelper {
 	public static final class OwlGitHelperPassword extends OwlScmHelper {
 
 		private final String GitRepository;
+		private final boolean sparseCheckout;
+		private final String catalogXml;
 		private final String GitUsername;
 		private final String GitPassword;
 
@@ -87,10 +98,13 @@ public class GitHelper {
 				@Nullable @Named("CommitAdapterGitCatalogXml") String catalogXml,
 				@Named("CommitAdapterGitRepositoryUrl") String GitRepository,
 				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName,
+				@Named(SPARSE_CHECKOUT_PARAM) boolean sparseCheckout,
 				@Named("CommitAdapterGitUsername") String GitUsername,
 				@Named("CommitAdapterGitPassword") String GitPassword)
 		{
 			super(GitOntologyFileName, defaultMappers, catalogXml);
+			this.sparseCheckout = sparseCheckout;
+			this.catalogXml = catalogXml;
 			this.GitRepository = GitRepository;
 			this.GitUsername = GitUsername;
 			this.GitPassword = GitPassword;
@@ -100,7 +114,7 @@ public class GitHelper {
 		public VersionControlAdapter createSCM(File GitFolder)
 		{
 			GitTool Git = GitTool.createUsernamePasswordGit(GitFolder, GitRepository, GitUsername, GitPassword);
-			return Git;
+			return configureSparseCheckout(Git, sparseCheckout, catalogXml);
 		}
 	}
 	
@@ -108,6 +122,8 @@ public class GitHelper {
 	public static final class OwlGitHelperToken extends OwlScmHelper {
 
 		private final String GitRepository;
+		private final boolean sparseCheckout;
+		private final String catalogXml;
 		private final String GitToken;
 
 		@Inject
@@ -116,9 +132,12 @@ public class GitHelper {
 				@Nullable @Named("CommitAdapterGitCatalogXml") String catalogXml,
 				@Named("CommitAdapterGitRepositoryUrl") String GitRepository,
 				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName,
+				@Named(SPARSE_CHECKOUT_PARAM) boolean sparseCheckout,
 				@Named("CommitAdapterGitToken") String GitToken)
 		{
 			super(GitOntologyFileName, defaultMappers, catalogXml);
+			this.sparseCheckout = sparseCheckout;
+			this.catalogXml = catalogXml;
 			this.GitRepository = GitRepository;
 			this.GitToken = GitToken;
 		}
@@ -127,7 +146,7 @@ public class GitHelper {
 		public VersionControlAdapter createSCM(File GitFolder)
 		{
 			GitTool Git = GitTool.createUsernamePasswordGit(GitFolder, GitRepository, GitToken, "");
-			return Git;
+			return configureSparseCheckout(Git, sparseCheckout, catalogXml);
 		}
 	}
 
@@ -135,21 +154,25 @@ public class GitHelper {
 	public static final class OboGitHelperAnonymous extends OboScmHelper {
 
 		private final String GitRepository;
+		private final boolean sparseCheckout;
 
 		@Inject
 		OboGitHelperAnonymous(
 				@Named("DefaultIRIMappers") List<OWLOntologyIRIMapper> defaultMappers,
 				@Named("CommitAdapterGitRepositoryUrl") String GitRepository,
-				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName)
+				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName,
+				@Named(SPARSE_CHECKOUT_PARAM) boolean sparseCheckout)
 		{
 			super(GitOntologyFileName, defaultMappers);
+			this.sparseCheckout = sparseCheckout;
 			this.GitRepository = GitRepository;
 		}
 
 		@Override
 		public VersionControlAdapter createSCM(File GitFolder) throws CommitException
 		{
-			return GitTool.createAnonymousGit(GitFolder, GitRepository);
+			GitTool Git = GitTool.createAnonymousGit(GitFolder, GitRepository);
+			return configureSparseCheckout(Git, sparseCheckout, null);
 		}
 
 	}
@@ -158,22 +181,28 @@ public class GitHelper {
 	public static final class OwlGitHelperAnonymous extends OwlScmHelper {
 
 		private final String GitRepository;
+		private final boolean sparseCheckout;
+		private final String catalogXml;
 
 		@Inject
 		OwlGitHelperAnonymous(
 				@Named("DefaultIRIMappers") List<OWLOntologyIRIMapper> defaultMappers,
 				@Nullable @Named("CommitAdapterGitCatalogXml") String catalogXml,
 				@Named("CommitAdapterGitRepositoryUrl") String GitRepository,
-				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName)
+				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName,
+				@Named(SPARSE_CHECKOUT_PARAM) boolean sparseCheckout)
 		{
 			super(GitOntologyFileName, defaultMappers, catalogXml);
+			this.sparseCheckout = sparseCheckout;
+			this.catalogXml = catalogXml;
 			this.GitRepository = GitRepository;
 		}
 
 		@Override
 		public VersionControlAdapter createSCM(File GitFolder) throws CommitException
 		{
-			return GitTool.createAnonymousGit(GitFolder, GitRepository);
+			GitTool Git = GitTool.createAnonymousGit(GitFolder, GitRepository);
+			return configureSparseCheckout(Git, sparseCheckout, catalogXml);
 		}
 
 	}
@@ -182,6 +211,7 @@ public class GitHelper {
 	public static final class OboGitHelperKeyFile extends OboScmHelper {
 	
 		private final String GitRepository;
+		private final boolean sparseCheckout;
 		private final File GitKeyFile;
 		private final String GitPassword;
 	
@@ -190,10 +220,12 @@ public class GitHelper {
 				@Named("DefaultIRIMappers") List<OWLOntologyIRIMapper> defaultMappers,
 				@Named("CommitAdapterGitRepositoryUrl") String GitRepository,
 				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName,
+				@Named(SPARSE_CHECKOUT_PARAM) boolean sparseCheckout,
 				@Named("CommitAdapterGitKeyFile") File GitKeyFile,
 				@Nullable @Named("CommitAdapterGitPassword") String GitPassword)
 		{
 			super(GitOntologyFileName, defaultMappers);
+			this.sparseCheckout = sparseCheckout;
 			this.GitRepository = GitRepository;
 			this.GitKeyFile = GitKeyFile;
 			this.GitPassword = GitPassword;
@@ -203,7 +235,7 @@ public class GitHelper {
 		public VersionControlAdapter createSCM(File GitFolder)
 		{
 			GitTool Git = GitTool.createSSHKeyGit(GitFolder, GitRepository, GitKeyFile, GitPassword);
-			return Git;
+			return configureSparseCheckout(Git, sparseCheckout, null);
 		}
 	
 	}
@@ -212,6 +244,8 @@ public class GitHelper {
 	public static final class OwlGitHelperKeyFile extends OwlScmHelper {
 	
 		private final String GitRepository;
+		private final boolean sparseCheckout;
+		private final String catalogXml;
 		private final File GitKeyFile;
 		private final String GitPassword;
 	
@@ -221,10 +255,13 @@ public class GitHelper {
 				@Nullable @Named("CommitAdapterGitCatalogXml") String catalogXml,
 				@Named("CommitAdapterGitRepositoryUrl") String GitRepository,
 				@Named("CommitAdapterGitOntologyFileName") String GitOntologyFileName,
+				@Named(SPARSE_CHECKOUT_PARAM) boolean sparseCheckout,
 				@Named("CommitAdapterGitKeyFile") File GitKeyFile,
 				@Nullable @Named("CommitAdapterGitPassword") String GitPassword)
 		{
 			super(GitOntologyFileName, defaultMappers, catalogXml);
+			this.sparseCheckout = sparseCheckout;
+			this.catalogXml = catalogXml;
 			this.GitRepository = GitRepository;
 			this.GitKeyFile = GitKeyFile;
 			this.GitPassword = GitPassword;
@@ -234,11 +271,38 @@ public class GitHelper {
 		public VersionControlAdapter createSCM(File GitFolder)
 		{
 			GitTool Git = GitTool.createSSHKeyGit(GitFolder, GitRepository, GitKeyFile, GitPassword);
-			return Git;
+			return configureSparseCheckout(Git, sparseCheckout, catalogXml);
 		}
 	
 	}
 
+	/**
+	 * Configure the sparse checkout for the given git tool. In addition to
+	 * the ontology file, the folder of the catalog xml is checked out, as it
+	 * usually also contains the imports.
+	 * 
+	 * @param git
+	 * @param sparseCheckout
+	 * @param catalogXml the relative path of the catalog xml or null
+	 * @return git
+	 */
+	public static GitTool configureSparseCheckout(GitTool git, boolean sparseCheckout, String catalogXml) {
+		if (sparseCheckout) {
+			List<String> additionalPaths = null;
+			if (catalogXml != null) {
+				int pos = catalogXml.lastIndexOf('/');
+				if (pos > 0) {
+					additionalPaths = Collections.singletonList(catalogXml.substring(0, pos));
+				}
+				else {
+					additionalPaths = Collections.singletonList(catalogXml);
+				}
+			}
+			git.setSparseCheckout(true, additionalPaths);
+		}
+		return git;
+	}
+
 	private GitHelper() {
 		// no instances
 	}
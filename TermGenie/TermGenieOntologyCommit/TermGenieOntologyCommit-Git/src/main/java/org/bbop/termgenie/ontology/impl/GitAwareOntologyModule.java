@@ -10,6 +10,7 @@ import java.util.Properties;
 import javax.annotation.Nullable;
 
 import org.bbop.termgenie.git.GitTool;
+import org.bbop.termgenie.ontology.git.GitHelper;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
 
@@ -49,6 +50,7 @@ public class GitAwareOntologyModule extends OntologyModule {
 	private Map<IRI, String> gitAwareMappedIRIs = Collections.emptyMap();
 	private String gitAwareCatalogXML = null;
 	private String gitAwareWorkFolder = null;
+	private boolean gitAwareSparseCheckout = false;
 	
 	private GitAwareOntologyModule(String configFile, Properties applicationProperties) {
 		super(applicationProperties, configFile);
@@ -70,10 +72,19 @@ public class GitAwareOntologyModule extends OntologyModule {
 		this.gitAwareWorkFolder = workFolder;
 	}
 	
+	/**
+	 * @param sparseCheckout if true, only check out the mapped files and the
+	 *            folder of the catalog xml
+	 */
+	public void setGitAwareSparseCheckout(boolean sparseCheckout) {
+		this.gitAwareSparseCheckout = sparseCheckout;
+	}
+	
 	static final String GitAwareIRIMapperRepositoryURL = "GitAwareIRIMapperRepositoryURL";
 	static final String GitAwareIRIMapperWorkFolder = "GitAwareIRIMapperWorkFolder";
 	static final String GitAwareIRIMapperMappedIRIs = "GitAwareIRIMapperMappedIRIs";
 	static final String GitAwareIRIMapperCatalogXML = "GitAwareIRIMapperCatalogXML";
+	static final String GitAwareIRIMapperSparseCheckout = "GitAwareIRIMapperSparseCheckout";
 	
 	@Override
 	protected void bindIRIMappers() {
@@ -82,6 +93,7 @@ public class GitAwareOntologyModule extends OntologyModule {
 		bind(GitAwareIRIMapperWorkFolder, gitAwareWorkFolder);
 		bindIRIMap(GitAwareIRIMapperMappedIRIs, gitAwareMappedIRIs);
 		bind(GitAwareIRIMapperCatalogXML, gitAwareCatalogXML, true, true);
+		bind(GitAwareIRIMapperSparseCheckout, gitAwareSparseCheckout);
 		bindAdditional();
 	}
 	
@@ -102,10 +114,12 @@ public class GitAwareOntologyModule extends OntologyModule {
 				@Named(GitAwareIRIMapperRepositoryURL) String repositoryURL,
 				@Named(GitAwareIRIMapperCatalogXML) @Nullable String catalogXML,
 				@Named(GitAwareIRIMapperMappedIRIs) Map<IRI, String> mappedIRIs,
-				@Named(GitAwareIRIMapperWorkFolder) @Nullable String gitWorkFolder)
+				@Named(GitAwareIRIMapperWorkFolder) @Nullable String gitWorkFolder,
+				@Named(GitAwareIRIMapperSparseCheckout) boolean sparseCheckout)
 		{
 			final File workFolderFile = new File(gitWorkFolder);
 			final GitTool git = GitTool.createAnonymousGit(workFolderFile, repositoryURL);
+			GitHelper.configureSparseCheckout(git, sparseCheckout, catalogXML);
 			List<String> checkout = new ArrayList<String>(mappedIRIs.values());
 			GitIRIMapper gitMapper = new GitIRIMapper(git, checkout, mappedIRIs, mappedIRIs.keySet(), catalogXML);
 			return gitMapper;
@@ -142,10 +156,12 @@ public class GitAwareOntologyModule extends OntologyModule {
 				@Named(GitAwareIRIMapperMappedIRIs) Map<IRI, String> mappedIRIs,
 				@Named(GitAwareIRIMapperWorkFolder) @Nullable String workFolder,
 				@Named(GitAwareIRIMapperUsername) String gitUsername,
-				@Named(GitAwareIRIMapperPassword) String gitPassword)
+				@Named(GitAwareIRIMapperPassword) String gitPassword,
+				@Named(GitAwareIRIMapperSparseCheckout) boolean sparseCheckout)
 		{
 			final File workFolderFile = new File(workFolder);
 			final GitTool git = GitTool.createUsernamePasswordGit(workFolderFile, repositoryURL, gitUsername, gitPassword);
+			GitHelper.configureSparseCheckout(git, sparseCheckout, catalogXML);
 			List<String> checkout = new ArrayList<String>(mappedIRIs.values());
 			GitIRIMapper gitMapper = new GitIRIMapper(git, checkout, mappedIRIs, mappedIRIs.keySet(), catalogXML);
 			return gitMapper;
@@ -192,11 +208,13 @@ public class GitAwareOntologyModule extends OntologyModule {
 				@Named(GitAwareIRIMapperMappedIRIs) Map<IRI, String> mappedIRIs,
 				@Named(GitAwareIRIMapperWorkFolder) @Nullable String workFolder,
 				@Named(GitAwareIRIMapperKeyFile) String gitKeyFile,
-				@Named(GitAwareIRIMapperPassword) @Nullable String gitPassword)
+				@Named(GitAwareIRIMapperPassword) @Nullable String gitPassword,
+				@Named(GitAwareIRIMapperSparseCheckout) boolean sparseCheckout)
 		{
 			final File workFolderFile = new File(workFolder);
 			final File keyFile = new File(gitKeyFile);
 			final GitTool git = GitTool.createSSHKeyGit(workFolderFile, repositoryURL, keyFile, gitPassword);
+			GitHelper.configureSparseCheckout(git, sparseCheckout, catalogXML);
 			List<String> checkout = new ArrayList<String>(mappedIRIs.values());
 			GitIRIMapper gitMapper = new GitIRIMapper(git, checkout, mappedIRIs, mappedIRIs.keySet(), catalogXML);
 			return gitMapper;
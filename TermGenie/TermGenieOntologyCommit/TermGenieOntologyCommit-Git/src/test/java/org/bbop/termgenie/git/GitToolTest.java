@@ -0,0 +1,102 @@
+package org.bbop.termgenie.git;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.bbop.termgenie.core.process.ProcessState;
+import org.eclipse.jgit.api.Git;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class GitToolTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+	private File repository = null;
+	private File workingCopy = null;
+	private final List<String> targetFiles = Collections.singletonList("test.txt");
+
+	@Before
+	public void before() throws Exception {
+		File currentFolder = testFolder.newFolder();
+		repository = new File(currentFolder, "repository");
+		workingCopy = new File(currentFolder, "working-copy");
+		FileUtils.forceMkdir(repository);
+		Git git = Git.init().setDirectory(repository).call();
+		commit(git, "first");
+	}
+
+	private static void commit(Git git, String content) throws Exception {
+		File file = new File(git.getRepository().getWorkTree(), "test.txt");
+		FileUtils.write(file, content);
+		git.add().addFilepattern("test.txt").call();
+		git.commit().setAuthor("test-user", "foo@foo.foo").setMessage(content).call();
+	}
+
+	private String checkout() throws Exception {
+		return checkout(false);
+	}
+
+	private String checkout(boolean sparse) throws Exception {
+		GitTool tool = GitTool.createAnonymousGit(workingCopy, repository.getAbsolutePath());
+		tool.setSparseCheckout(sparse, null);
+		try {
+			tool.connect();
+			assertTrue(tool.checkout(targetFiles, ProcessState.NO));
+		}
+		finally {
+			tool.close();
+		}
+		return FileUtils.readFileToString(new File(workingCopy, "test.txt"));
+	}
+
+	@Test
+	public void testReuseWorkingCopy() throws Exception {
+		assertEquals("first", checkout());
+
+		// local commit, which has not been pushed
+		Git local = Git.open(workingCopy);
+		commit(local, "local");
+		local.getRepository().close();
+
+		// new commit in the remote repository
+		Git remote = Git.open(repository);
+		commit(remote, "second");
+		remote.getRepository().close();
+
+		assertEquals("second", checkout());
+	}
+
+	@Test
+	public void testCorruptWorkingCopy() throws Exception {
+		assertEquals("first", checkout());
+
+		FileUtils.forceDelete(new File(workingCopy, ".git/HEAD"));
+		assertEquals("first", checkout());
+		assertTrue(new File(workingCopy, ".git/HEAD").isFile());
+	}
+
+	@Test
+	public void testSparseCheckout() throws Exception {
+		Git remote = Git.open(repository);
+		FileUtils.write(new File(repository, "other/other.txt"), "other");
+		remote.add().addFilepattern("other/other.txt").call();
+		remote.commit().setAuthor("test-user", "foo@foo.foo").setMessage("other").call();
+
+		assertEquals("first", checkout(true));
+		assertFalse(new File(workingCopy, "other/other.txt").exists());
+
+		commit(remote, "second");
+		remote.getRepository().close();
+
+		assertEquals("second", checkout(true));
+		assertFalse(new File(workingCopy, "other/other.txt").exists());
+	}
+}
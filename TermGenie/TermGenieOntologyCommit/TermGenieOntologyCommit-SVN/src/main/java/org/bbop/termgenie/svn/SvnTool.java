@@ -3,9 +3,11 @@ package org.bbop.termgenie.svn;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.process.ProcessState;
 import org.bbop.termgenie.scm.VersionControlAdapter;
@@ -18,11 +20,15 @@ import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
 import org.tmatesoft.svn.core.wc.ISVNEventHandler;
 import org.tmatesoft.svn.core.wc.ISVNOptions;
+import org.tmatesoft.svn.core.wc.ISVNStatusHandler;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
 import org.tmatesoft.svn.core.wc.SVNCommitClient;
 import org.tmatesoft.svn.core.wc.SVNEvent;
 import org.tmatesoft.svn.core.wc.SVNEventAction;
+import org.tmatesoft.svn.core.wc.SVNInfo;
 import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc.SVNStatus;
+import org.tmatesoft.svn.core.wc.SVNStatusType;
 import org.tmatesoft.svn.core.wc.SVNUpdateClient;
 import org.tmatesoft.svn.core.wc.SVNWCClient;
 import org.tmatesoft.svn.core.wc.SVNWCUtil;
@@ -122,9 +128,106 @@ public class SvnTool implements VersionControlAdapter {
 		}
 	}
 
+	/**
+	 * Checkout the given files. If the target folder already contains a
+	 * working copy of the repository, it is reused: cleanup, revert all local
+	 * modifications, remove unversioned files and update to HEAD. If the existing working copy can not
+	 * be used, it is deleted and checked out again.
+	 */
 	@Override
 	public boolean checkout(List<String> targetFiles, final ProcessState state) throws IOException {
 		checkConnection();
+		if (SVNWCUtil.isVersionedDirectory(targetFolder)) {
+			try {
+				if (refresh(targetFiles, state)) {
+					return true;
+				}
+				logger.warn("Missing target files in the svn working copy: "+targetFolder);
+			} catch (SVNException exception) {
+				logger.warn("Could not reuse the svn working copy: "+targetFolder, exception);
+			} catch (IOException exception) {
+				logger.warn("Could not reuse the svn working copy: "+targetFolder, exception);
+			}
+			ProcessState.addMessage(state, "Could not reuse the existing svn working copy, starting a new checkout.");
+			FileUtils.deleteDirectory(targetFolder);
+		}
+		return fullCheckout(targetFiles, state);
+	}
+	
+	/**
+	 * Cleanup, revert, remove unversioned files and update an existing
+	 * working copy.
+	 * 
+	 * @param targetFiles
+	 * @param state
+	 * @return true, if all target files are available after the update
+	 * @throws SVNException
+	 * @throws IOException
+	 */
+	private boolean refresh(List<String> targetFiles, ProcessState state) throws SVNException, IOException {
+		SVNWCClient wcClient = ourClientManager.getWCClient();
+		
+		// integrity check: same repository URL
+		SVNInfo info = wcClient.doInfo(targetFolder, SVNRevision.WORKING);
+		if (repositoryURL.equals(info.getURL()) == false) {
+			throw new IOException("The working copy has a different URL: "+info.getURL());
+		}
+		String startMessage = "Start update of existing working copy for files: "+targetFiles+" URL: "+repositoryURL;
+		ProcessState.addMessage(state, startMessage);
+		logger.info(startMessage+" Folder: "+targetFolder);
+		
+		// release stale locks from an interrupted operation and discard local modifications
+		wcClient.doCleanup(targetFolder);
+		wcClient.doRevert(new File[]{ targetFolder }, SVNDepth.INFINITY, null);
+		removeUnversioned();
+		
+		SVNUpdateClient updateClient = ourClientManager.getUpdateClient();
+		updateClient.setIgnoreExternals(!loadExternal);
+		updateClient.doUpdate(targetFolder, SVNRevision.HEAD, SVNDepth.INFINITY, true, false);
+		
+		boolean success = checkTargetFiles(targetFiles);
+		String endMessage = "Finished update of existing working copy for files: "+targetFiles;
+		ProcessState.addMessage(state, endMessage);
+		logger.info(endMessage);
+		return success;
+	}
+	
+	/**
+	 * Delete all unversioned and ignored files and folders in the working
+	 * copy. This includes files, which were scheduled for addition before the
+	 * revert.
+	 * 
+	 * @throws SVNException
+	 * @throws IOException
+	 */
+	private void removeUnversioned() throws SVNException, IOException {
+		final List<File> unversioned = new ArrayList<File>();
+		ourClientManager.getStatusClient().doStatus(targetFolder, SVNRevision.WORKING, SVNDepth.INFINITY, false, false, true, false, new ISVNStatusHandler() {
+
+			@Override
+			public void handleStatus(SVNStatus status) throws SVNException {
+				SVNStatusType type = status.getNodeStatus();
+				if (SVNStatusType.STATUS_UNVERSIONED.equals(type) || SVNStatusType.STATUS_IGNORED.equals(type)) {
+					unversioned.add(status.getFile());
+				}
+			}
+		}, null);
+		for (File file : unversioned) {
+			logger.info("Removing unversioned file: "+getRelativePath(file));
+			FileUtils.forceDelete(file);
+		}
+	}
+	
+	private boolean checkTargetFiles(List<String> targetFiles) {
+		boolean success = true;
+		for(String targetFile : targetFiles) {
+			File file = new File(targetFolder, targetFile);
+			success = success && file.isFile() && file.canRead() && file.canWrite();
+		}
+		return success;
+	}
+	
+	private boolean fullCheckout(List<String> targetFiles, final ProcessState state) throws IOException {
 		try {
 			String startMessage = "Start checkout for files: "+targetFiles+" URL: "+repositoryURL;
 			ProcessState.addMessage(state, startMessage);
@@ -165,11 +268,7 @@ public class SvnTool implements VersionControlAdapter {
 			updateClient.doCheckout(repositoryURL, targetFolder, pegRevision, revision, depth, true);
 			
 			
-			boolean success = true;
-			for(String targetFile : targetFiles) {
-				File file = new File(targetFolder, targetFile);
-				success = success && file.isFile() && file.canRead() && file.canWrite();
-			}
+			boolean success = checkTargetFiles(targetFiles);
 			String endMessage = "Finished checkout for files: "+targetFiles;
 			ProcessState.addMessage(state, endMessage);
 			logger.info(endMessage);
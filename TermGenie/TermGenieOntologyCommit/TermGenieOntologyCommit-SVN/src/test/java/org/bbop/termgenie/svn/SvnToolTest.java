@@ -5,11 +5,16 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.bbop.termgenie.core.process.ProcessState;
+import org.bbop.termgenie.tools.Triple;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
 
 
 public class SvnToolTest {
@@ -38,4 +43,54 @@ public class SvnToolTest {
 		svnTool.close();
 	}
 
+	@Test
+	public void testReuseWorkingCopy() throws Exception {
+		File currentFolder = folder.newFolder();
+		File repository = new File(currentFolder, "repository");
+		File staging = new File(currentFolder, "staging");
+		File workingCopy = new File(currentFolder, "working-copy");
+		FileUtils.forceMkdir(repository);
+		FileUtils.write(new File(staging, "test.txt"), "first");
+		Triple<SvnTool, SVNURL, ISVNAuthenticationManager> svnTools = SvnRepositoryTools.createLocalRepository(repository, staging, workingCopy);
+		List<String> targetFiles = Collections.singletonList("test.txt");
+
+		SvnTool tool = svnTools.getOne();
+		tool.connect();
+		try {
+			assertTrue(tool.checkout(targetFiles, ProcessState.NO));
+			assertEquals("first", FileUtils.readFileToString(new File(workingCopy, "test.txt")));
+
+			// local modification, added and unversioned files, which have not been committed
+			FileUtils.write(new File(workingCopy, "test.txt"), "local");
+			FileUtils.write(new File(workingCopy, "added.txt"), "added");
+			assertTrue(tool.add("added.txt", ProcessState.NO));
+			FileUtils.write(new File(workingCopy, "unversioned/unversioned.txt"), "unversioned");
+		}
+		finally {
+			tool.close();
+		}
+
+		// new commit in the repository
+		SvnTool other = new SvnTool(new File(currentFolder, "other"), svnTools.getTwo(), svnTools.getThree(), true);
+		other.connect();
+		try {
+			assertTrue(other.checkout(targetFiles, ProcessState.NO));
+			FileUtils.write(new File(other.getTargetFolder(), "test.txt"), "second");
+			assertTrue(other.commit("second", targetFiles, "test-user", "foo@foo.foo", ProcessState.NO));
+		}
+		finally {
+			other.close();
+		}
+
+		tool.connect();
+		try {
+			assertTrue(tool.checkout(targetFiles, ProcessState.NO));
+			assertEquals("second", FileUtils.readFileToString(new File(workingCopy, "test.txt")));
+			assertFalse(new File(workingCopy, "added.txt").exists());
+			assertFalse(new File(workingCopy, "unversioned").exists());
+		}
+		finally {
+			tool.close();
+		}
+	}
 }
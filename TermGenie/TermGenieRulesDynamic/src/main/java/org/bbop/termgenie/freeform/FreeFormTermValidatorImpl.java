@@ -3,6 +3,7 @@ package org.bbop.termgenie.freeform;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -12,6 +13,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.annotation.Nullable;
 
@@ -20,16 +26,22 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
 import org.bbop.termgenie.core.process.ProcessState;
+import org.bbop.termgenie.core.rules.IncrementalReasoner;
+import org.bbop.termgenie.core.rules.IncrementalReasoner.ScratchTask;
 import org.bbop.termgenie.core.rules.ReasonerFactory;
 import org.bbop.termgenie.core.rules.SharedReasoner;
 import org.bbop.termgenie.freeform.FreeFormTermRequest.Xref;
 import org.bbop.termgenie.ontology.OntologyLoader;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
 import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
 import org.bbop.termgenie.ontology.obo.OboTools;
 import org.bbop.termgenie.ontology.obo.OwlTranslatorTools;
 import org.bbop.termgenie.owl.InferAllRelationshipsTask;
 import org.bbop.termgenie.owl.InferredRelations;
+import org.bbop.termgenie.owl.LabelIndex;
+import org.bbop.termgenie.owl.LabelIndex.Match;
+import org.bbop.termgenie.owl.LabelIndexProvider;
 import org.bbop.termgenie.rules.TemporaryIdentifierTools;
 import org.bbop.termgenie.rules.TermGenieScriptRunner;
 import org.bbop.termgenie.rules.impl.TextualDefinitionTool;
@@ -40,17 +52,12 @@ import org.obolibrary.oboformat.model.Clause;
 import org.obolibrary.oboformat.model.Frame;
 import org.obolibrary.oboformat.model.Frame.FrameType;
 import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
-import org.semanticweb.owlapi.model.AddImport;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLDataFactory;
-import org.semanticweb.owlapi.model.OWLImportsDeclaration;
-import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.model.OWLOntology;
-import org.semanticweb.owlapi.model.OWLOntologyCreationException;
-import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.reasoner.Node;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
@@ -70,9 +77,12 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 	static final String SUBSET_PARAM = "FreeFormTermValidatorSubsetTag";
 	static final String SUPPORTED_NAMESPACES = "FreeFormValidatorOboNamespaces";
 	static final String ADDITIONAL_RELATIONS = "FreeFormAdditionalRelations";
+	static final String THREADS_PARAM = "FreeFormTermValidatorThreads";
 	
 	private final OntologyTaskManager ontology;
 	private final ReasonerFactory factory;
+	private final LabelIndexProvider labelIndexProvider;
+	private final ExecutorService executor;
 	private final boolean useIsInferred;
 	private final boolean addSubsetTag;
 	
@@ -86,7 +96,9 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 	public FreeFormTermValidatorImpl(OntologyLoader loader,
 			@Named(ADD_SUBSET_TAG_PARAM) boolean addSubsetTag,
 			@Named(TermGenieScriptRunner.USE_IS_INFERRED_BOOLEAN_NAME) boolean useIsInferred,
-			ReasonerFactory factory)
+			ReasonerFactory factory,
+			LabelIndexProvider labelIndexProvider,
+			@Named(THREADS_PARAM) Integer threads)
 	{
 		super();
 		this.addSubsetTag = addSubsetTag;
@@ -94,6 +106,16 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 		this.factory = factory;
 		this.useIsInferred = useIsInferred;
 		this.idPrefix = TemporaryIdentifierTools.getTempIdPrefix(ontology);
+		this.labelIndexProvider = labelIndexProvider;
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threads.intValue()), new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "free-form-validation");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 	}
 
 	
@@ -171,7 +193,33 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 			requireLiteratureReference = false;
 			checkLabelLength = false;
 		}
-		ValidationTask task = new ValidationTask(request, checkLabelLength, requireLiteratureReference, useIsInferred, subset, idPrefix, oboNamespaces, factory, state);
+		// the stages run in parallel, while holding the shared lock
+		CheckTask checkTask = new CheckTask(new ValidationTask(request, checkLabelLength, requireLiteratureReference, useIsInferred, subset, idPrefix, oboNamespaces, factory, labelIndexProvider, state));
+		FreeFormValidationResponse failed = runTask(checkTask);
+		if (failed != null) {
+			return failed;
+		}
+		if (checkTask.ready == false) {
+			return createResponse(checkTask.task);
+		}
+		
+		// the reasoner modifies the scratch ontology in the shared
+		// OWLOntologyManager, which is not safe for concurrent changes
+		ReasoningTask reasoningTask = new ReasoningTask(checkTask.task, checkTask.version);
+		failed = runTask(reasoningTask);
+		if (failed != null) {
+			return failed;
+		}
+		return createResponse(reasoningTask.task);
+	}
+	
+	/**
+	 * Run the task with the ontology.
+	 * 
+	 * @param task
+	 * @return error response or null, if the task finished without an exception
+	 */
+	private FreeFormValidationResponse runTask(OntologyTask task) {
 		try {
 			ontology.runManagedTask(task);
 		} catch (InvalidManagedInstanceException exception) {
@@ -179,6 +227,64 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 			logger.error(message, exception);
 			return error(message);
 		}
+		if (task.getException() != null) {
+			String message = "Error during term validation";
+			logger.error(message, task.getException());
+			return error(message);
+		}
+		return null;
+	}
+	
+	/**
+	 * Run the validation stages, which only read the ontology. Remember the
+	 * version of the ontology for the reasoning step.
+	 */
+	private class CheckTask extends ReadOnlyOntologyTask {
+		
+		private final ValidationTask task;
+		private long version = -1L;
+		private boolean ready = false;
+		
+		CheckTask(ValidationTask task) {
+			this.task = task;
+		}
+
+		@Override
+		protected void runCatching(OWLGraphWrapper managed) {
+			version = ontology.getVersion();
+			ready = task.check(managed, executor);
+		}
+	}
+	
+	/**
+	 * Create the term with the reasoner, while holding the exclusive lock.
+	 * If the ontology has changed since the validation stages, the whole
+	 * validation is repeated with a new {@link ValidationTask}.
+	 */
+	private class ReasoningTask extends OntologyTask {
+		
+		private ValidationTask task;
+		private final long version;
+		
+		ReasoningTask(ValidationTask task, long version) {
+			this.task = task;
+			this.version = version;
+		}
+		
+		@Override
+		protected void runCatching(OWLGraphWrapper managed) {
+			if (ontology.getVersion() != version) {
+				ProcessState.addMessage(task.state, "The ontology has changed, restarting validation.");
+				task = task.copy();
+				if (task.check(managed, executor) == false) {
+					return;
+				}
+			}
+			task.createTerm(managed);
+		}
+	}
+	
+	private FreeFormValidationResponse createResponse(ValidationTask task) {
 		if (task.errors == null || task.errors.isEmpty()) {
 			if (task.term == null) {
 				return error("No term was generated from your request");
@@ -188,9 +294,96 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 		return error(task.errors);
 	}
 
-	static class ValidationTask extends OntologyTask
+	/**
+	 * Collected errors and warnings of a validation or a single stage.
+	 */
+	static class Hints {
+		
+		List<FreeFormHint> errors = null;
+		List<FreeFormHint> warnings = null;
+		
+		/**
+		 * Append the errors and warnings of the given stage.
+		 * 
+		 * @param stage
+		 */
+		void merge(Hints stage) {
+			errors = concat(errors, stage.errors);
+			warnings = concat(warnings, stage.warnings);
+		}
+		
+		private static List<FreeFormHint> concat(List<FreeFormHint> first, List<FreeFormHint> second) {
+			if (second == null) {
+				return first;
+			}
+			if (first == null) {
+				return second;
+			}
+			List<FreeFormHint> result = new ArrayList<FreeFormHint>(first.size() + second.size());
+			result.addAll(first);
+			result.addAll(second);
+			return result;
+		}
+		
+		void addHint(boolean error, String field, String message) {
+			if (error) {
+				addError(field, message);
+			}
+			else {
+				addWarning(field, message);
+			}
+		}
+		
+		void setCharacterError(String field, String msgPrefix, Set<Character> chars) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(msgPrefix);
+			if (chars.size() == 1) {
+				sb.append(" contains a non-ASCII character:");
+			}
+			else {
+				sb.append(" contains non-ASCII characters:");
+			}
+			for (Character character : chars) {
+				sb.append(' ');
+				sb.append('\'');
+				sb.append(character);
+				sb.append('\'');
+			}
+			setError(field, sb.toString());
+		}
+		
+		void setError(String field, String messge) {
+			errors = Collections.singletonList(new FreeFormHint(field, messge));
+		}
+		
+		void addError(String field, String message) {
+			if (errors == null) {
+				errors = new ArrayList<FreeFormHint>();
+			}
+			errors.add(new FreeFormHint(field, message));
+		}
+		
+		void addWarning(String field, String message) {
+			if (warnings == null) {
+				warnings = new ArrayList<FreeFormHint>();
+			}
+			warnings.add(new FreeFormHint(field, message));
+		}
+	}
+
+	/**
+	 * Validation of a single request in stages: The lexical checks (labels,
+	 * synonyms) run in parallel to the parent and relation resolution and
+	 * the definition checks. The reasoner is only used, if none of these
+	 * stages reported an error. The ontology is only read, the axioms of the
+	 * new term are added to the scratch ontology of the
+	 * {@link IncrementalReasoner}. The reasoning stage requires the exclusive
+	 * lock, see {@link #createTerm(OWLGraphWrapper)}.
+	 */
+	static class ValidationTask extends Hints
 	{
 		private final ReasonerFactory reasonerFactory;
+		private final LabelIndexProvider labelIndexProvider;
 		private final FreeFormTermRequest request;
 		private final boolean checkLabelLength;
 		private final boolean requireLiteratureReference;
@@ -198,13 +391,21 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 		private final List<String> namespaces;
 		private final ProcessState state;
 		
-		List<FreeFormHint> errors = null;
-		List<FreeFormHint> warnings = null;
 		Pair<Frame, Set<OWLAxiom>> term;
 		
 		private final String subset;
 		private final String idPrefix;
-		private Modified modified = Modified.no;
+		
+		// results of the stages
+		private String requestedLabel = null;
+		private String normalizedLabel = null;
+		private List<ISynonym> checkedSynonyms = null;
+		private Map<String, Pair<String, String>> proposedSynonyms = null;
+		private String namespace = null;
+		private Set<OWLClass> superClasses = null;
+		private Map<OWLObjectProperty, Set<OWLClass>> additionalRelations = null;
+		private String def = null;
+		private Set<String> defXrefs = null;
 	
 		ValidationTask(FreeFormTermRequest request,
 				boolean checkLabelLength,
@@ -214,6 +415,7 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 				String idPrefix,
 				List<String> namespaces,
 				ReasonerFactory factory,
+				LabelIndexProvider labelIndexProvider,
 				ProcessState state)
 		{
 			this.request = request;
@@ -225,11 +427,28 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 			this.idPrefix = idPrefix;
 			this.namespaces = namespaces;
 			this.reasonerFactory = factory;
+			this.labelIndexProvider = labelIndexProvider;
 			this.state = state;
 		}
+		
+		/**
+		 * @return new task for the same request, without any results
+		 */
+		ValidationTask copy() {
+			return new ValidationTask(request, checkLabelLength, requireLiteratureReference, useIsInferred, subset, idPrefix, namespaces, reasonerFactory, labelIndexProvider, state);
+		}
 	
-		@Override
-		public Modified runCatchingMod(OWLGraphWrapper graph)
+		/**
+		 * Check the ontology and run the validation stages, except the
+		 * reasoning. The caller must hold the lock of the ontology, the
+		 * parallel stages finish before this method returns.
+		 * 
+		 * @param graph
+		 * @param executor for the parallel stages, may be null
+		 * @return true, if all stages passed and the term can be created with
+		 *         {@link #createTerm(OWLGraphWrapper)}
+		 */
+		boolean check(OWLGraphWrapper graph, ExecutorService executor)
 		{
 			ProcessState.addMessage(state, "Checking state of current ontology.");
 			SharedReasoner manager = reasonerFactory.getSharedReasoner(graph);
@@ -240,40 +459,102 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 					this.errors.add(new FreeFormHint("ontology", 
 							"Cannot safely create term, due to the following ontology error: "+error));
 				}
+				return false;
+			}
+			return checkStages(graph, executor);
+		}
+		
+		/**
+		 * Run all stages and create the term in the current thread.
+		 * 
+		 * @param graph
+		 */
+		void runInternal(OWLGraphWrapper graph) {
+			if (checkStages(graph, null)) {
+				createTerm(graph);
+			}
+		}
+		
+		private boolean checkStages(final OWLGraphWrapper graph, ExecutorService executor) {
+			if (prepareLabels() == false) {
+				return false;
+			}
+			final Hints lexical = new Hints();
+			Runnable lexicalStage = new Runnable() {
+
+				@Override
+				public void run() {
+					checkLabels(graph, lexical);
+				}
+			};
+			Future<?> future = null;
+			if (executor != null) {
+				future = executor.submit(lexicalStage);
 			}
 			else {
-				runInternal(graph);
+				lexicalStage.run();
+			}
+			Hints relations = new Hints();
+			resolveRelations(graph, relations);
+			Hints definition = new Hints();
+			checkDefinition(definition);
+			if (future != null) {
+				await(future);
+			}
+			
+			// merge in the order of the stages, stop at the first stage with errors
+			for (Hints stage : Arrays.asList(lexical, relations, definition)) {
+				merge(stage);
+				if (errors != null) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		private static void await(Future<?> future) {
+			try {
+				future.get();
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(exception);
+			} catch (ExecutionException exception) {
+				Throwable cause = exception.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new RuntimeException(cause);
 			}
-			return modified;
 		}
 		
-		void runInternal(final OWLGraphWrapper graph) {
+		/**
+		 * Check the requested label and synonyms, without the ontology.
+		 * 
+		 * @return false, if the validation can not continue
+		 */
+		boolean prepareLabels() {
 			ProcessState.addMessage(state, "Prepare label.");
 			// check label
-			String requestedLabel = StringUtils.trimToNull(request.getLabel());
+			requestedLabel = StringUtils.trimToNull(request.getLabel());
 			if (requestedLabel == null) {
 				setError("label", "A label is required for a free from request.");
-				return;
+				return false;
 			}
 			requestedLabel = StringUtils.normalizeSpace(requestedLabel);
 			
 			if (checkLabelLength && requestedLabel.length() < 7) {
 				setError("label", "The provided label is too short.");
-				return;
+				return false;
 			}
 			
 			Set<Character> nonAscii = hasNonAscii(requestedLabel);
 			if (!nonAscii.isEmpty()) {
 				setCharacterError("label", "The label '"+requestedLabel+"'", nonAscii);
-				return;
+				return false;
 			}
 
 			// search for similar labels and synonyms in the ontology 
-			final CharSequence normalizedLabel = normalizeLabel(requestedLabel);
-			
-			// check proposed synonyms at the same time 
-			List<ISynonym> checkedSynonyms = null;
-			Map<CharSequence, Pair<String, String>> proposedSynonyms = null;
+			normalizedLabel = LabelIndex.normalize(requestedLabel);
 			
 			// each synonym has to have:
 			//  * label
@@ -283,7 +564,7 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 			if (iSynonyms != null && !iSynonyms.isEmpty()) {
 				ProcessState.addMessage(state, "Prepare synonyms.");
 				checkedSynonyms = new ArrayList<ISynonym>();
-				proposedSynonyms = new HashMap<CharSequence, Pair<String, String>>();
+				proposedSynonyms = new HashMap<String, Pair<String, String>>();
 				Set<String> done = new HashSet<String>();
 				for (ISynonym jsonSynonym : iSynonyms) {
 					String synLabel = StringUtils.trimToNull(jsonSynonym.getLabel());
@@ -294,7 +575,7 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 					nonAscii = hasNonAscii(synLabel);
 					if (!nonAscii.isEmpty()) {
 						setCharacterError("synonyms", "The synonym '"+synLabel+"'", nonAscii);
-						return;
+						return false;
 					}
 					
 					String lowerCase = synLabel.toLowerCase();
@@ -312,98 +593,69 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 						}
 					}
 					checkedSynonyms.add(jsonSynonym);
-					proposedSynonyms.put(normalizeLabel(synLabel), Pair.of(synLabel, scope));
+					proposedSynonyms.put(LabelIndex.normalize(synLabel), Pair.of(synLabel, scope));
 					done.add(lowerCase);
 				}
 			}
-			
+			return true;
+		}
+		
+		/**
+		 * Lexical stage: search for existing terms with equal or similar
+		 * labels and synonyms.
+		 * 
+		 * @param graph
+		 * @param hints
+		 */
+		void checkLabels(OWLGraphWrapper graph, Hints hints) {
 			ProcessState.addMessage(state, "Start - Search for existing terms with similar labels.");
-			// iterate over all objects
-			for(OWLObject current : graph.getAllOWLObjects()) {
-				String currentLabel = graph.getLabel(current);
-				if (currentLabel == null) {
-					continue;
-				}
-				final CharSequence currentNormalizedLabel = normalizeLabel(currentLabel);
-				if (equals(normalizedLabel, currentNormalizedLabel)) {
-					addError("label", "The requested label is equal to the term: "+graph.getIdentifier(current)+" '"+currentLabel+"'");
-					return;
-				}
-				else if (similar(normalizedLabel, currentNormalizedLabel)) {
-					addWarning("label", "The requested label is similar to the term: "+graph.getIdentifier(current)+" '"+currentLabel+"'");
-				}
-				if (proposedSynonyms != null) {
-					for (Entry<CharSequence, Pair<String, String>> entry : proposedSynonyms.entrySet()) {
-						if (equals(currentNormalizedLabel, entry.getKey())) {
-							Pair<String, String> pair = entry.getValue();
-							String orig = pair.getOne();
-							String origScope = pair.getTwo();
-							if (OboFormatTag.TAG_EXACT.getTag().equals(origScope)) {
-								addError("synonym", "The requested synonym '"+orig+"' is equal to the term: "+graph.getIdentifier(current)+" '"+currentLabel+"'");	
-							}
-							else {
-								addWarning("synonym", "The requested synonym '"+orig+"' is equal to the term: "+graph.getIdentifier(current)+" '"+currentLabel+"'");	
-							}
+			// lookup the normalized labels and EXACT synonyms of all terms
+			LabelIndex labelIndex = labelIndexProvider.getIndex(graph);
+			List<Match> equalTerms = labelIndex.find(normalizedLabel);
+			if (!equalTerms.isEmpty()) {
+				hints.addError("label", "The requested label is equal to the " + describe(equalTerms.get(0)));
+				return;
+			}
+			for (Match match : labelIndex.findSimilar(normalizedLabel)) {
+				hints.addWarning("label", "The requested label is similar to the " + describe(match));
+			}
+			if (proposedSynonyms != null) {
+				for (Entry<String, Pair<String, String>> entry : proposedSynonyms.entrySet()) {
+					Pair<String, String> pair = entry.getValue();
+					String orig = pair.getOne();
+					String origScope = pair.getTwo();
+					for (Match match : labelIndex.find(entry.getKey())) {
+						if (OboFormatTag.TAG_EXACT.getTag().equals(origScope)) {
+							hints.addError("synonym", "The requested synonym '"+orig+"' is equal to the " + describe(match));
 						}
-						else if (similar(currentNormalizedLabel, entry.getKey())) {
-							addWarning("synonym", "The requested synonym '"+entry.getValue().getOne()+"' is similar to the term: "+graph.getIdentifier(current)+" '"+currentLabel+"'");
+						else {
+							hints.addWarning("synonym", "The requested synonym '"+orig+"' is equal to the " + describe(match));
 						}
 					}
-				}
-				List<ISynonym> oboSynonyms = graph.getOBOSynonyms(current);
-				if (oboSynonyms != null) {
-					for (ISynonym synonym : oboSynonyms) {
-						if (OboFormatTag.TAG_EXACT.getTag().equals(synonym.getScope()) == false) {
-							// skip any non EXACT synonyms
-							continue;
-						}
-						String synLabel = synonym.getLabel();
-						CharSequence normalizedSynLabel = normalizeLabel(synLabel);
-						if (equals(normalizedLabel, normalizedSynLabel)) {
-							addError("label",
-									"The requested label is equal to the synonym: '" + synLabel + "' of term: " + graph.getIdentifier(current) + " '" + currentLabel + "'");
-							return;
-						}
-						else if (similar(normalizedLabel, normalizedSynLabel)) {
-							addWarning("label",
-									"The requested label is similar to the synonym: '" + synLabel + "' of term: " + graph.getIdentifier(current) + " '" + currentLabel + "'");
-						}
-						if (proposedSynonyms != null) {
-							for (Entry<CharSequence, Pair<String, String>> entry : proposedSynonyms.entrySet()) {
-								if (equals(normalizedSynLabel, entry.getKey())) {
-									Pair<String, String> pair = entry.getValue();
-									String orig = pair.getOne();
-									String origScope = pair.getTwo();
-									if (OboFormatTag.TAG_EXACT.getTag().equals(origScope)) {
-										addError("synonym", "The requested synonym '"+orig+"' is equal to the synonym: '" + synLabel + "' of term: " + graph.getIdentifier(current) + " '" + currentLabel + "'");
-									}
-									else {
-										addWarning("synonym", "The requested synonym '"+orig+"' is equal to the synonym: '" + synLabel + "' of term: " + graph.getIdentifier(current) + " '" + currentLabel + "'");
-									}
-								}
-								if (similar(normalizedSynLabel, entry.getKey())) {
-									addWarning("synonym", "The requested synonym '"+entry.getValue().getOne()+"' is similar to the synonym: '" + synLabel + "' of term: " + graph.getIdentifier(current) + " '" + currentLabel + "'");
-								}
-							}
-						}
+					for (Match match : labelIndex.findSimilar(entry.getKey())) {
+						hints.addWarning("synonym", "The requested synonym '"+orig+"' is similar to the " + describe(match));
 					}
 				}
 			}
 			ProcessState.addMessage(state, "Finished - Search for existing terms with similar labels.");
-			if (errors != null) {
-				return;
-			}
-			
-			String comment = StringUtils.trimToNull(request.getComment());
-			
+		}
+		
+		/**
+		 * Relation stage: check the namespace and resolve the requested
+		 * parents and additional relations.
+		 * 
+		 * @param graph
+		 * @param hints
+		 */
+		void resolveRelations(OWLGraphWrapper graph, Hints hints) {
 			// TODO check requested terms in the queue
 			// TODO check blacklist
 
 			// check namespace
-			String namespace = StringUtils.trimToNull(request.getNamespace());
+			namespace = StringUtils.trimToNull(request.getNamespace());
 			if (namespaces != null) {
 				if (namespace == null || namespace.isEmpty()) {
-					setError("namespace", "A namespace is required for request: "+requestedLabel);
+					hints.setError("namespace", "A namespace is required for request: "+requestedLabel);
 					return;
 				}
 			}
@@ -413,18 +665,18 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 			// at least one is_a parent in correct namespace
 			final List<String> parents = request.getIsA();
 			if (parents == null || parents.isEmpty()) {
-				setError("parents", "At least one is_a parent required for request: "+requestedLabel);
+				hints.setError("parents", "At least one is_a parent required for request: "+requestedLabel);
 				return;
 			}
-			Set<OWLClass> superClasses = new HashSet<OWLClass>();
+			superClasses = new HashSet<OWLClass>();
 			for (String parentId : parents) {
 				if (parentId == null) {
-					addError("is_a parent", "null parent");
+					hints.addError("is_a parent", "null parent");
 					continue;
 				}
 				OWLClass cls = graph.getOWLClassByIdentifier(parentId);
 				if (cls == null) {
-					addError("is_a parent", "parent not found in ontology: "+parentId);
+					hints.addError("is_a parent", "parent not found in ontology: "+parentId);
 					continue;
 				}
 				String parentNamespace = graph.getNamespace(cls);
@@ -432,17 +684,16 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 					superClasses.add(cls);
 				}
 				else {
-					addError("is_a parent", "namespace conflict parent namespace: '"+parentNamespace+"' requested namespace: '"+namespace+"'");
+					hints.addError("is_a parent", "namespace conflict parent namespace: '"+parentNamespace+"' requested namespace: '"+namespace+"'");
 				}
 			}
-			if (errors != null) {
+			if (hints.errors != null) {
 				return;
 			}
 			
 			// TODO should we test for too high level parents? blacklist?
 			
 			// additional relations (i.e. part_of, has_part, ...)
-			Map<OWLObjectProperty, Set<OWLClass>> additionalRelations = null;
 			Map<String, List<String>> requestedRelations = request.getAdditionalRelations();
 			if (requestedRelations != null && !requestedRelations.isEmpty()) {
 				additionalRelations = new HashMap<OWLObjectProperty, Set<OWLClass>>();
@@ -451,7 +702,7 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 					// first: find property
 					final OWLObjectProperty prop = graph.getOWLObjectPropertyByIdentifier(relId);
 					if (prop == null) {
-						setError(relId, "Could not find the "+relId+" property.");
+						hints.setError(relId, "Could not find the "+relId+" property.");
 						return;
 					}
 					
@@ -463,12 +714,12 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 					final Set<OWLClass> classes = new HashSet<OWLClass>();
 					for(String id : ids) {
 						if (id == null) {
-							addError(relId+" parent", "null parent");
+							hints.addError(relId+" parent", "null parent");
 							continue;
 						}
 						OWLClass cls = graph.getOWLClassByIdentifier(id);
 						if (cls == null) {
-							addError(relId+" parent", "parent not found in ontology: "+id);
+							hints.addError(relId+" parent", "parent not found in ontology: "+id);
 							continue;
 						}
 						classes.add(cls);
@@ -478,28 +729,32 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 					}
 				}
 			}
-			
-			if (errors != null) {
-				return;
-			}
-			
+		}
+		
+		/**
+		 * Definition stage: check the definition, the definition xrefs and
+		 * the general xrefs, without the ontology.
+		 * 
+		 * @param hints
+		 */
+		void checkDefinition(Hints hints) {
 			// check definition
-			String def = StringUtils.trimToNull(request.getDefinition());
+			def = StringUtils.trimToNull(request.getDefinition());
 			if (def == null || def.length() < 20) {
 				// check that the definition is at least X amount of chars long
-				setError("definition", "Please enter a valid definition");
+				hints.setError("definition", "Please enter a valid definition");
 				return;
 			}
-			nonAscii = hasNonAscii(def);
+			Set<Character> nonAscii = hasNonAscii(def);
 			if (!nonAscii.isEmpty()) {
-				setCharacterError("definition", "The definition", nonAscii);
+				hints.setCharacterError("definition", "The definition", nonAscii);
 				return;
 			}
 			
 			// Check definition
 			String definitionErrors = TextualDefinitionTool.validateDefinition(def);
 			if (definitionErrors != null) {
-				setError("definition", definitionErrors);
+				hints.setError("definition", definitionErrors);
 				return;
 			}
 			
@@ -508,12 +763,12 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 			// require at least on def db xref, ideally includes PMID
 			List<String> defXRefsList = request.getDbxrefs();
 			if (defXRefsList == null || defXRefsList.isEmpty()) {
-				setError("definition db xref", "Please enter at least one valid definition db xref");
+				hints.setError("definition db xref", "Please enter at least one valid definition db xref");
 				return;
 			}
 			
 			ProcessState.addMessage(state, "Check Def Xrefs.");
-			Set<String> defXrefs = new HashSet<String>();
+			defXrefs = new HashSet<String>();
 			boolean hasLiteratureReference = false;
 			for(String  xref : defXRefsList) {
 				String dbxref = StringUtils.trimToNull(xref);
@@ -522,7 +777,7 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 				}
 				String xrefError = XrefTools.checkXref(xref);
 				if (xrefError != null) {
-					addError("definition db xref", xrefError);
+					hints.addError("definition db xref", xrefError);
 					continue;
 				}
 				if (hasLiteratureReference == false) {
@@ -531,15 +786,15 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 				defXrefs.add(dbxref);
 			}
 			if (hasLiteratureReference == false) {
-				addHint(requireLiteratureReference, "definition db xref", XrefTools.getLiteratureReferenceErrorString(false));
+				hints.addHint(requireLiteratureReference, "definition db xref", XrefTools.getLiteratureReferenceErrorString(false));
 			}
 			
 			if (defXrefs.isEmpty()) {
-				setError("definition db xref", "Please enter at least one valid definition db xref");
+				hints.setError("definition db xref", "Please enter at least one valid definition db xref");
 				return;
 			}
 			
-			if (errors != null) {
+			if (hints.errors != null) {
 				return;
 			}
 			
@@ -550,31 +805,35 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 					String idref = xref.getIdRef();
 					String error = XrefTools.checkXref(idref);
 					if (error != null) {
-						addError("xref", error);
+						hints.addError("xref", error);
 					}
 				}
 			}
-			
-			if (errors != null) {
-				return;
-			}
-			
-			// all checks passed, create term
+		}
+		
+		/**
+		 * Reasoning stage: all checks passed, create the term and use the
+		 * shared {@link IncrementalReasoner} to infer the relations. The
+		 * axioms of the term are only added to its scratch ontology, which
+		 * imports the loaded ontology. This modifies the shared
+		 * OWLOntologyManager, the caller must hold the exclusive lock.
+		 * 
+		 * @param graph
+		 */
+		void createTerm(final OWLGraphWrapper graph) {
 			ProcessState.addMessage(state, "Start - Use reasoner to check constraints and relations.");
 			
-			String owlNewId = getNewId();
-			String oboNewId = Owl2Obo.getIdentifier(IRI.create(owlNewId));
+			final String owlNewId = getNewId();
 			
 			// minimal OWL
-			Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
-			OWLOntologyManager owlManager = graph.getManager();
-			OWLDataFactory factory = owlManager.getOWLDataFactory();
-			IRI iri = IRI.create(owlNewId);
+			final Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+			OWLDataFactory factory = graph.getDataFactory();
+			final IRI iri = IRI.create(owlNewId);
 			OWLClass owlClass = factory.getOWLClass(iri);
 			axioms.add(factory.getOWLDeclarationAxiom(owlClass));
 			axioms.add(OwlTranslatorTools.createLabelAxiom(owlNewId, requestedLabel, graph));
 			
-			Set<OWLAxiom> preliminaryAxioms = new HashSet<OWLAxiom>();
+			final Set<OWLAxiom> preliminaryAxioms = new HashSet<OWLAxiom>();
 			for(OWLClass superClass : superClasses) {
 				preliminaryAxioms.add(factory.getOWLSubClassOfAxiom(owlClass, superClass));
 			}
@@ -589,207 +848,122 @@ public class FreeFormTermValidatorImpl implements FreeFormTermValidator {
 			}
 			preliminaryAxioms.addAll(axioms);
 			
-			// add relationships to graph and use reasoner to infer relationships (remove redundant ones)
-			final OWLOntology owlOntology = graph.getSourceOntology();
-			final OWLOntology disposable;
+			// add relationships to the scratch ontology and use reasoner to infer relationships (remove redundant ones)
+			ScratchTask task = new ScratchTask() {
+
+				@Override
+				public boolean run(OWLOntology scratch, OWLReasoner reasoner) {
+					scratch.getOWLOntologyManager().addAxioms(scratch, preliminaryAxioms);
+					// incremental update of the classification
+					reasoner.flush();
+					inferRelations(graph, owlNewId, iri, axioms, scratch, reasoner);
+					return true;
+				}
+			};
 			try {
-				disposable = owlManager.createOntology(IRI.generateDocumentIRI());
-				owlManager.addAxioms(disposable, owlOntology.getAxioms());
-				for(OWLImportsDeclaration decl : owlOntology.getImportsDeclarations()) {
-					owlManager.applyChange(new AddImport(disposable, decl));
-				}
-				//owlManager.applyChange(new AddImport(disposable, factory.getOWLImportsDeclaration(owlOntology.getOntologyID().getDefaultDocumentIRI().orNull())));
-			} catch (OWLOntologyCreationException e) {
-				setError("Ontology", "Could not create test setup for relation inference: "+e.getMessage());
-				return;
-			}
-			try {
-				// add axioms
-				owlManager.addAxioms(disposable, preliminaryAxioms);
-				OWLReasoner reasoner = reasonerFactory.createReasoner(disposable, state);
-				ProcessState.addMessage(state, "Check for ontology consistency.");
-				if (reasoner.isConsistent() == false) {
-					setError("Ontology", "The ontology is inconsistent. No safe inferences are possible.");
-					return;
-				}
-				ProcessState.addMessage(state, "Check for unsatisfiable classes");
-				Node<OWLClass> unsatisfiableClasses = reasoner.getUnsatisfiableClasses();
-				final Set<OWLClass> unsatisfiable = unsatisfiableClasses.getEntitiesMinusBottom();
-				if (unsatisfiable.contains(graph.getOWLClass(iri))) {
-					setError("relations", "Cannot create class, the requested class is not satisfiable.");
-				}
-				else if (unsatisfiable.isEmpty() == false) {
-					setError("Ontology", "No safe inferences are possible. The ontology has unsatisfiable classes: "+unsatisfiable);
-				}
-				final InferAllRelationshipsTask task = new InferAllRelationshipsTask(disposable, graph, iri, idPrefix, state, useIsInferred);
-				try {
-					task.run(reasoner);
-				}
-				finally {
-					reasoner.dispose();
-				}
-				InferredRelations inferredRelations = task.getInferredRelations();
-				Set<OWLClass> equivalentClasses = inferredRelations.getEquivalentClasses();
-				if (equivalentClasses != null && !equivalentClasses.isEmpty()) {
-					StringBuilder sb = new StringBuilder();
-					for (OWLClass equivalentClass : equivalentClasses) {
-						sb.append(' ').append(equivalentClass.getIRI());
-					}
-					setError("relations", "Cannot create class, there are equivalent named classes:"+sb);
-					return;
-				}
-				Set<OWLAxiom> classRelationAxioms = inferredRelations.getClassRelationAxioms();
-				if (classRelationAxioms == null || classRelationAxioms.isEmpty()) {
-					setError("relations", "Could not create relations. The resoner returned no relation axioms.");
-					return;
-				}
-				axioms.addAll(classRelationAxioms);
-				
-				// OBO
-				Frame frame = new Frame(FrameType.TERM);
-	
-				OboTools.addTermLabel(frame, requestedLabel);
-				OboTools.addDefinition(frame, def, defXrefs);
-				frame.addClause(new Clause(OboFormatTag.TAG_CREATION_DATE, getDate()));
-				frame.addClause(new Clause(OboFormatTag.TAG_CREATED_BY, "TermGenie"));
-				if (comment != null) {
-					frame.addClause(new Clause(OboFormatTag.TAG_COMMENT, comment));
-				}
-				if (namespace != null) {
-					frame.addClause(new Clause(OboFormatTag.TAG_NAMESPACE, namespace));
-				}
-				if (xrefs != null) {
-					for (Xref xref : xrefs) {
-						Clause cl = new Clause(OboFormatTag.TAG_XREF);
-						String idref = xref.getIdRef();
-						cl.addValue(idref);
-						String annotation = xref.getAnnotation();
-						if (annotation != null) {
-							cl.addValue(annotation);
-						}
-						frame.addClause(cl);
-					}
-				}
-				if (checkedSynonyms != null) {
-					for(ISynonym synonym : checkedSynonyms) {
-						OboTools.addSynonym(frame, synonym.getLabel(), synonym.getScope(), synonym.getXrefs());
-					}
-				}
-				if (subset != null) {
-					frame.addClause(new Clause(OboFormatTag.TAG_SUBSET, subset));
-				}
-	
-				OboTools.addTermId(frame, oboNewId);
-				
-				for (Clause cl : inferredRelations.getClassRelations()) {
-					frame.addClause(cl);
-				}
-				
-				term = Pair.of(frame, axioms);
+				IncrementalReasoner reasoner = reasonerFactory.getIncrementalReasoner(graph);
+				reasoner.runScratchTask(task);
+			} catch (InvalidManagedInstanceException exception) {
+				setError("Ontology", "Could not create test setup for relation inference: "+exception.getMessage());
 			}
 			finally {
 				ProcessState.addMessage(state, "Finished - Use reasoner to check constraints and relations.");
-				owlManager.removeOntology(disposable);
-			}
-			return;
-		}
-
-		void addHint(boolean error, String field, String message) {
-			if (error) {
-				addError(field, message);
-			}
-			else {
-				addWarning(field, message);
 			}
 		}
 		
-		void setCharacterError(String field, String msgPrefix, Set<Character> chars) {
-			StringBuilder sb = new StringBuilder();
-			sb.append(msgPrefix);
-			if (chars.size() == 1) {
-				sb.append(" contains a non-ASCII character:");
+		private void inferRelations(OWLGraphWrapper graph,
+				String owlNewId,
+				IRI iri,
+				Set<OWLAxiom> axioms,
+				OWLOntology scratch,
+				OWLReasoner reasoner)
+		{
+			ProcessState.addMessage(state, "Check for ontology consistency.");
+			if (reasoner.isConsistent() == false) {
+				setError("Ontology", "The ontology is inconsistent. No safe inferences are possible.");
+				return;
 			}
-			else {
-				sb.append(" contains non-ASCII characters:");
+			ProcessState.addMessage(state, "Check for unsatisfiable classes");
+			Node<OWLClass> unsatisfiableClasses = reasoner.getUnsatisfiableClasses();
+			final Set<OWLClass> unsatisfiable = unsatisfiableClasses.getEntitiesMinusBottom();
+			if (unsatisfiable.contains(graph.getDataFactory().getOWLClass(iri))) {
+				setError("relations", "Cannot create class, the requested class is not satisfiable.");
+			}
+			else if (unsatisfiable.isEmpty() == false) {
+				setError("Ontology", "No safe inferences are possible. The ontology has unsatisfiable classes: "+unsatisfiable);
+			}
+			final InferAllRelationshipsTask task = new InferAllRelationshipsTask(scratch, graph, iri, idPrefix, state, useIsInferred);
+			task.run(reasoner);
+			InferredRelations inferredRelations = task.getInferredRelations();
+			Set<OWLClass> equivalentClasses = inferredRelations.getEquivalentClasses();
+			if (equivalentClasses != null && !equivalentClasses.isEmpty()) {
+				StringBuilder sb = new StringBuilder();
+				for (OWLClass equivalentClass : equivalentClasses) {
+					sb.append(' ').append(equivalentClass.getIRI());
+				}
+				setError("relations", "Cannot create class, there are equivalent named classes:"+sb);
+				return;
 			}
-			for (Character character : chars) {
-				sb.append(' ');
-				sb.append('\'');
-				sb.append(character);
-				sb.append('\'');
+			Set<OWLAxiom> classRelationAxioms = inferredRelations.getClassRelationAxioms();
+			if (classRelationAxioms == null || classRelationAxioms.isEmpty()) {
+				setError("relations", "Could not create relations. The resoner returned no relation axioms.");
+				return;
 			}
-			setError(field, sb.toString());
-		}
-		
-		void setError(String field, String messge) {
-			errors = Collections.singletonList(new FreeFormHint(field, messge));
-		}
-		
-		void addError(String field, String message) {
-			if (errors == null) {
-				errors = new ArrayList<FreeFormHint>();
+			axioms.addAll(classRelationAxioms);
+			
+			// OBO
+			String comment = StringUtils.trimToNull(request.getComment());
+			List<Xref> xrefs = request.getXrefs();
+			String oboNewId = Owl2Obo.getIdentifier(IRI.create(owlNewId));
+			Frame frame = new Frame(FrameType.TERM);
+
+			OboTools.addTermLabel(frame, requestedLabel);
+			OboTools.addDefinition(frame, def, defXrefs);
+			frame.addClause(new Clause(OboFormatTag.TAG_CREATION_DATE, getDate()));
+			frame.addClause(new Clause(OboFormatTag.TAG_CREATED_BY, "TermGenie"));
+			if (comment != null) {
+				frame.addClause(new Clause(OboFormatTag.TAG_COMMENT, comment));
 			}
-			errors.add(new FreeFormHint(field, message));
-		}
-		
-		void addWarning(String field, String message) {
-			if (warnings == null) {
-				warnings = new ArrayList<FreeFormHint>();
+			if (namespace != null) {
+				frame.addClause(new Clause(OboFormatTag.TAG_NAMESPACE, namespace));
 			}
-			warnings.add(new FreeFormHint(field, message));
-		}
-		
-		void setReset() {
-			modified = Modified.reset;
-		}
-		
-		static CharSequence normalizeLabel(CharSequence cs) {
-			StringBuilder sb = new StringBuilder();
-			for (int i = 0; i < cs.length(); i++) {
-				char c = cs.charAt(i);
-				c = Character.toLowerCase(c);
-				if (Character.isLetterOrDigit(c) == false) {
-					c = '*';
+			if (xrefs != null) {
+				for (Xref xref : xrefs) {
+					Clause cl = new Clause(OboFormatTag.TAG_XREF);
+					String idref = xref.getIdRef();
+					cl.addValue(idref);
+					String annotation = xref.getAnnotation();
+					if (annotation != null) {
+						cl.addValue(annotation);
+					}
+					frame.addClause(cl);
 				}
-				sb.append(c);
 			}
-			return sb;
-		}
-		
-		static boolean equals(CharSequence cs1, CharSequence cs2) {
-			/*
-			 * Warning: StringBuilder do not overwrite hashcode and equals. 
-			 * Do *not* use cs1.equals(c2).
-			 * 
-			 * Example:
-			 * 
-			 * CharSequence cs1 = new StringBuilder("test");
-			 * CharSequence cs2 = new StringBuilder("test");
-			 * 
-			 * cs1.equals(cs2) ==> false 
-			 * 
-			 */
-			int l1 = cs1.length();
-			int l2 = cs2.length();
-			if (l1 == l2) {
-				for (int i = 0; i < l1; i++) {
-					char c1 = cs1.charAt(i);
-					char c2 = cs2.charAt(i);
-					if (c1 != c2) {
-						return false;
-					}
+			if (checkedSynonyms != null) {
+				for(ISynonym synonym : checkedSynonyms) {
+					OboTools.addSynonym(frame, synonym.getLabel(), synonym.getScope(), synonym.getXrefs());
 				}
-				return true;
 			}
-			return false;
+			if (subset != null) {
+				frame.addClause(new Clause(OboFormatTag.TAG_SUBSET, subset));
+			}
+
+			OboTools.addTermId(frame, oboNewId);
+			
+			for (Clause cl : inferredRelations.getClassRelations()) {
+				frame.addClause(cl);
+			}
+			
+			term = Pair.of(frame, axioms);
 		}
 		
-		static boolean similar(CharSequence cs1, CharSequence cs2) {
-			int distance = StringUtils.getLevenshteinDistance(cs1, cs2);
-			// TODO make this threshold relative to the string length
-			return distance <= 1;
+		static String describe(Match match) {
+			if (match.synonym == null) {
+				return "term: " + match.identifier + " '" + match.label + "'";
+			}
+			return "synonym: '" + match.synonym + "' of term: " + match.identifier + " '" + match.label + "'";
 		}
-		
+
 		static boolean isOboScope(String s) {
 			return (OboFormatTag.TAG_RELATED.getTag().equals(s)) ||
 					(OboFormatTag.TAG_NARROW.getTag().equals(s)) ||
@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.Properties;
 
 import org.bbop.termgenie.core.ioc.IOCModule;
+import org.bbop.termgenie.owl.LabelIndex;
+import org.bbop.termgenie.owl.LabelIndexProvider;
 
 public class FreeFormTermValidatorModule extends IOCModule {
 
@@ -32,6 +34,8 @@ public class FreeFormTermValidatorModule extends IOCModule {
 		bindList(FreeFormTermValidatorImpl.SUPPORTED_NAMESPACES, defaultOboNamespaces, true);
 		bind(FreeFormTermValidatorImpl.SUBSET_PARAM, defaultSubset, true);
 		bindList(FreeFormTermValidatorImpl.ADDITIONAL_RELATIONS, defaultAdditionalRelations, true);
+		bind(FreeFormTermValidatorImpl.THREADS_PARAM, Integer.valueOf(2));
+		bind(LabelIndexProvider.SIMILARITY_DISTANCE_PARAM, Integer.valueOf(LabelIndex.DEFAULT_SIMILARITY_DISTANCE));
 	}
 
 }
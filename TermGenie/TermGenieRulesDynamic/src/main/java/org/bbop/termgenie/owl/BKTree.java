@@ -0,0 +1,113 @@
+package org.bbop.termgenie.owl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Burkhard-Keller tree for strings with the Levenshtein distance as metric.
+ * A search for all strings within a small distance only visits the subtrees,
+ * which can contain a match, see the triangle inequality.<br>
+ * Strings can not be removed, the owner is expected to filter outdated
+ * results. Not thread-safe.
+ */
+final class BKTree {
+
+	private Node root = null;
+	private int size = 0;
+
+	private static final class Node {
+
+		final String key;
+		private Map<Integer, Node> children = null;
+
+		Node(String key) {
+			this.key = key;
+		}
+
+		Node getChild(int distance) {
+			if (children == null) {
+				return null;
+			}
+			return children.get(Integer.valueOf(distance));
+		}
+
+		void addChild(int distance, Node child) {
+			if (children == null) {
+				children = new HashMap<Integer, Node>(4);
+			}
+			children.put(Integer.valueOf(distance), child);
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return true, if the key was not in the tree
+	 */
+	boolean add(String key) {
+		if (root == null) {
+			root = new Node(key);
+			size = 1;
+			return true;
+		}
+		Node current = root;
+		while (true) {
+			int distance = StringUtils.getLevenshteinDistance(key, current.key);
+			if (distance == 0) {
+				return false;
+			}
+			Node child = current.getChild(distance);
+			if (child == null) {
+				current.addChild(distance, new Node(key));
+				size += 1;
+				return true;
+			}
+			current = child;
+		}
+	}
+
+	/**
+	 * Find all keys within the given distance, including an equal key.
+	 *
+	 * @param query
+	 * @param maxDistance
+	 * @return keys, never null
+	 */
+	List<String> search(String query, int maxDistance) {
+		List<String> result = new ArrayList<String>();
+		if (root == null) {
+			return result;
+		}
+		List<Node> stack = new ArrayList<Node>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			Node current = stack.remove(stack.size() - 1);
+			int distance = StringUtils.getLevenshteinDistance(query, current.key);
+			if (distance <= maxDistance) {
+				result.add(current.key);
+			}
+			if (current.children != null) {
+				// only the children in [distance - max, distance + max] can contain matches
+				int min = Math.max(1, distance - maxDistance);
+				int max = distance + maxDistance;
+				for (int i = min; i <= max; i++) {
+					Node child = current.getChild(i);
+					if (child != null) {
+						stack.add(child);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of keys in the tree
+	 */
+	int size() {
+		return size;
+	}
+}
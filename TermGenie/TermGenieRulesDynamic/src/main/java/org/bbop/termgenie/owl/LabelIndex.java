@@ -0,0 +1,283 @@
+package org.bbop.termgenie.owl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationSubject;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDeclarationAxiom;
+import org.semanticweb.owlapi.model.OWLNamedObject;
+import org.semanticweb.owlapi.model.OWLObject;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+
+import owltools.graph.OWLGraphWrapper;
+import owltools.graph.OWLGraphWrapper.ISynonym;
+
+/**
+ * Index from the normalized labels and EXACT synonyms of an ontology to the
+ * terms. The index is build once per ontology instance. Changes of the label
+ * or synonym annotations are applied incrementally, if the index is
+ * registered as {@link OWLOntologyChangeListener}.<br>
+ * Similar keys are found with a {@link BKTree}, without comparing the query
+ * to every key.<br>
+ * See {@link #normalize(CharSequence)} for the normalization.
+ */
+public class LabelIndex implements OWLOntologyChangeListener {
+
+	/**
+	 * Default maximum distance for {@link #findSimilar(String)}.
+	 */
+	public static final int DEFAULT_SIMILARITY_DISTANCE = 1;
+
+	private final OWLGraphWrapper graph;
+	private final int similarityDistance;
+
+	// guarded by this
+	private final Map<String, List<Match>> matches = new HashMap<String, List<Match>>();
+	private final Map<IRI, List<String>> keys = new HashMap<IRI, List<String>>();
+	private BKTree tree = new BKTree();
+
+	/**
+	 * Create the index for all labels and EXACT synonyms of the ontology.
+	 *
+	 * @param graph
+	 */
+	public LabelIndex(OWLGraphWrapper graph) {
+		this(graph, DEFAULT_SIMILARITY_DISTANCE);
+	}
+
+	/**
+	 * Create the index for all labels and EXACT synonyms of the ontology.
+	 *
+	 * @param graph
+	 * @param similarityDistance the maximum distance for
+	 *            {@link #findSimilar(String)}
+	 */
+	public LabelIndex(OWLGraphWrapper graph, int similarityDistance) {
+		super();
+		this.graph = graph;
+		this.similarityDistance = similarityDistance;
+		for (OWLObject owlObject : graph.getAllOWLObjects()) {
+			add(owlObject);
+		}
+	}
+
+	/**
+	 * A term with a label or EXACT synonym for a normalized key.
+	 */
+	public static final class Match {
+
+		public final String identifier;
+		public final String label;
+		public final String synonym;
+		final IRI iri;
+
+		/**
+		 * @param iri
+		 * @param identifier
+		 * @param label
+		 * @param synonym the EXACT synonym or null, if the label matched
+		 */
+		Match(IRI iri, String identifier, String label, String synonym) {
+			this.iri = iri;
+			this.identifier = identifier;
+			this.label = label;
+			this.synonym = synonym;
+		}
+	}
+
+	/**
+	 * Normalize a label: all characters are converted to lower case, all
+	 * characters, which are not a letter or a digit, are replaced with '*'.
+	 *
+	 * @param cs
+	 * @return normalized label
+	 */
+	public static String normalize(CharSequence cs) {
+		char[] chars = new char[cs.length()];
+		for (int i = 0; i < chars.length; i++) {
+			char c = Character.toLowerCase(cs.charAt(i));
+			if (Character.isLetterOrDigit(c) == false) {
+				c = '*';
+			}
+			chars[i] = c;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param graph
+	 * @return true, if this index was created for the given ontology instance
+	 */
+	public boolean isIndexFor(OWLGraphWrapper graph) {
+		return this.graph == graph;
+	}
+
+	/**
+	 * Find all terms with a label or EXACT synonym equal to the normalized
+	 * key.
+	 *
+	 * @param normalized see {@link #normalize(CharSequence)}
+	 * @return matches, never null
+	 */
+	public synchronized List<Match> find(String normalized) {
+		List<Match> list = matches.get(normalized);
+		if (list == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<Match>(list);
+	}
+
+	/**
+	 * Find all terms with a label or EXACT synonym similar, but not equal, to
+	 * the normalized key, using the configured maximum distance.
+	 *
+	 * @param normalized see {@link #normalize(CharSequence)}
+	 * @return matches, never null
+	 */
+	public List<Match> findSimilar(String normalized) {
+		return findSimilar(normalized, similarityDistance);
+	}
+
+	/**
+	 * Find all terms with a label or EXACT synonym similar, but not equal, to
+	 * the normalized key.
+	 *
+	 * @param normalized see {@link #normalize(CharSequence)}
+	 * @param maxDistance the maximum Levenshtein distance
+	 * @return matches, never null
+	 */
+	public synchronized List<Match> findSimilar(String normalized, int maxDistance) {
+		List<Match> result = new ArrayList<Match>();
+		for (String key : tree.search(normalized, maxDistance)) {
+			if (key.equals(normalized)) {
+				// equal, not similar
+				continue;
+			}
+			// the tree also contains the keys of removed entries
+			List<Match> list = matches.get(key);
+			if (list != null) {
+				result.addAll(list);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of distinct normalized keys
+	 */
+	public synchronized int size() {
+		return matches.size();
+	}
+
+	@Override
+	public void ontologiesChanged(List<? extends OWLOntologyChange> changes) {
+		// only changes of label and synonym annotations and declarations are relevant
+		Set<OWLOntology> ontologies = graph.getAllOntologies();
+		Set<IRI> changed = new HashSet<IRI>();
+		for (OWLOntologyChange change : changes) {
+			if (!change.isAxiomChange() || !ontologies.contains(change.getOntology())) {
+				continue;
+			}
+			OWLAxiom axiom = change.getAxiom();
+			if (axiom instanceof OWLAnnotationAssertionAxiom) {
+				OWLAnnotationSubject subject = ((OWLAnnotationAssertionAxiom) axiom).getSubject();
+				if (subject instanceof IRI) {
+					changed.add((IRI) subject);
+				}
+			}
+			else if (axiom instanceof OWLDeclarationAxiom) {
+				changed.add(((OWLDeclarationAxiom) axiom).getEntity().getIRI());
+			}
+		}
+		for (IRI iri : changed) {
+			remove(iri);
+			OWLObject owlObject = graph.getOWLObject(iri);
+			if (owlObject != null) {
+				add(owlObject);
+			}
+		}
+	}
+
+	private synchronized void add(OWLObject owlObject) {
+		if (owlObject instanceof OWLNamedObject == false) {
+			return;
+		}
+		String label = graph.getLabel(owlObject);
+		if (label == null) {
+			return;
+		}
+		IRI iri = ((OWLNamedObject) owlObject).getIRI();
+		String identifier = graph.getIdentifier(owlObject);
+		add(normalize(label), new Match(iri, identifier, label, null));
+		List<ISynonym> synonyms = graph.getOBOSynonyms(owlObject);
+		if (synonyms != null) {
+			for (ISynonym synonym : synonyms) {
+				if (OboFormatTag.TAG_EXACT.getTag().equals(synonym.getScope()) == false) {
+					// skip any non EXACT synonyms
+					continue;
+				}
+				String synLabel = synonym.getLabel();
+				if (synLabel != null) {
+					add(normalize(synLabel), new Match(iri, identifier, label, synLabel));
+				}
+			}
+		}
+	}
+
+	private void add(String key, Match match) {
+		List<Match> list = matches.get(key);
+		if (list == null) {
+			list = new ArrayList<Match>(1);
+			matches.put(key, list);
+			tree.add(key);
+		}
+		list.add(match);
+		List<String> iriKeys = keys.get(match.iri);
+		if (iriKeys == null) {
+			iriKeys = new ArrayList<String>(2);
+			keys.put(match.iri, iriKeys);
+		}
+		iriKeys.add(key);
+	}
+
+	private synchronized void remove(IRI iri) {
+		List<String> iriKeys = keys.remove(iri);
+		if (iriKeys == null) {
+			return;
+		}
+		for (String key : iriKeys) {
+			List<Match> list = matches.get(key);
+			if (list == null) {
+				continue;
+			}
+			Iterator<Match> iterator = list.iterator();
+			while (iterator.hasNext()) {
+				if (iri.equals(iterator.next().iri)) {
+					iterator.remove();
+				}
+			}
+			if (list.isEmpty()) {
+				matches.remove(key);
+			}
+		}
+		if (tree.size() > 2 * matches.size()) {
+			// too many outdated keys in the tree
+			tree = new BKTree();
+			for (String key : matches.keySet()) {
+				tree.add(key);
+			}
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package org.bbop.termgenie.owl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.bbop.termgenie.core.eventbus.OntologyChangeEvent;
+import org.bbop.termgenie.core.eventbus.OntologyPrepareEvent;
+import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
+import org.bbop.termgenie.ontology.OntologyLoader;
+import org.bbop.termgenie.ontology.OntologyTaskManager;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
+import org.bushe.swing.event.EventBus;
+import org.bushe.swing.event.EventSubscriber;
+
+import owltools.graph.OWLGraphWrapper;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Provides the {@link LabelIndex} for the current version of an ontology. The
+ * index is only build once per ontology instance and registered as listener
+ * at the ontology manager, to track label and synonym changes incrementally.
+ * The index for a new version of the ontology is built in the background:
+ * for a pending version during the {@link OntologyPrepareEvent} and for a
+ * reset or replaced ontology after the {@link OntologyChangeEvent}. Only if
+ * a request is faster, the index is created on demand.<br>
+ * The index is shared by the free-form validation and the commit checks.<br>
+ * The index must only be used, while holding the lock of the
+ * {@link OntologyTaskManager}.
+ */
+@Singleton
+public class LabelIndexProvider implements EventSubscriber<OntologyChangeEvent> {
+
+	private static final Logger logger = Logger.getLogger(LabelIndexProvider.class);
+
+	public static final String SIMILARITY_DISTANCE_PARAM = "LabelIndexSimilarityDistance";
+
+	private final OntologyTaskManager manager;
+	private final ExecutorService executor;
+	private final AtomicBoolean buildScheduled = new AtomicBoolean(false);
+
+	// guarded by this
+	private int similarityDistance = LabelIndex.DEFAULT_SIMILARITY_DISTANCE;
+	private OWLGraphWrapper graph = null;
+	private LabelIndex index = null;
+	// index for the pending version of the ontology
+	private LabelIndex prepared = null;
+	private OWLGraphWrapper preparedGraph = null;
+
+	// the event bus only keeps a weak reference
+	private final EventSubscriber<OntologyPrepareEvent> prepareSubscriber = new EventSubscriber<OntologyPrepareEvent>() {
+
+		@Override
+		public void onEvent(OntologyPrepareEvent event) {
+			if (event.getManager() == manager) {
+				prepare(event.getPending());
+			}
+		}
+	};
+
+	/**
+	 * @param loader
+	 */
+	@Inject
+	public LabelIndexProvider(OntologyLoader loader) {
+		this(loader.getOntologyManager());
+	}
+
+	/**
+	 * @param manager
+	 */
+	public LabelIndexProvider(OntologyTaskManager manager) {
+		super();
+		this.manager = manager;
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "label-index-build");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		EventBus.subscribe(OntologyChangeEvent.class, this);
+		EventBus.subscribe(OntologyPrepareEvent.class, prepareSubscriber);
+	}
+
+	/**
+	 * @param similarityDistance the maximum edit distance for similar labels
+	 */
+	@Inject(optional=true)
+	public synchronized void setSimilarityDistance(@Named(SIMILARITY_DISTANCE_PARAM) int similarityDistance) {
+		if (this.similarityDistance != similarityDistance) {
+			this.similarityDistance = similarityDistance;
+			disposeCurrent();
+			disposePrepared();
+		}
+	}
+
+	/**
+	 * Retrieve the index for the given ontology. Uses the prepared index or
+	 * creates a new index, if the ontology instance has changed since the
+	 * last call.
+	 *
+	 * @param targetOntology
+	 * @return index, never null
+	 */
+	public synchronized LabelIndex getIndex(OWLGraphWrapper targetOntology) {
+		if (index == null || !index.isIndexFor(targetOntology)) {
+			disposeCurrent();
+			if (prepared != null && prepared.isIndexFor(targetOntology)) {
+				// the listener is already registered
+				index = prepared;
+				graph = preparedGraph;
+				prepared = null;
+				preparedGraph = null;
+				return index;
+			}
+			long start = System.currentTimeMillis();
+			index = new LabelIndex(targetOntology, similarityDistance);
+			graph = targetOntology;
+			graph.getManager().addOntologyChangeListener(index);
+			if (logger.isInfoEnabled()) {
+				logger.info("Created label index with " + index.size() + " entries in " + (System.currentTimeMillis() - start) + " ms");
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Build the index for the pending version of the ontology, while the
+	 * current version is still in use.
+	 *
+	 * @param pending
+	 */
+	void prepare(OWLGraphWrapper pending) {
+		int distance;
+		synchronized (this) {
+			distance = similarityDistance;
+		}
+		long start = System.currentTimeMillis();
+		LabelIndex pendingIndex = new LabelIndex(pending, distance);
+		// the pending version is not modified, before it is published
+		pending.getManager().addOntologyChangeListener(pendingIndex);
+		synchronized (this) {
+			disposePrepared();
+			prepared = pendingIndex;
+			preparedGraph = pending;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Prepared label index with " + pendingIndex.size() + " entries in " + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	@Override
+	public void onEvent(OntologyChangeEvent event) {
+		if (event.getManager() == manager) {
+			if (event.isReset()) {
+				// the support ontologies may have changed
+				synchronized (this) {
+					disposeCurrent();
+				}
+			}
+			// the event is sent while holding the lock of the manager
+			scheduleBuild();
+		}
+	}
+
+	/**
+	 * Build the index for the current version of the ontology in the
+	 * background, unless it has already been prepared. Multiple requests are
+	 * merged, while the build has not yet started.
+	 */
+	private void scheduleBuild() {
+		if (buildScheduled.compareAndSet(false, true)) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					buildScheduled.set(false);
+					ReadOnlyOntologyTask task = new ReadOnlyOntologyTask() {
+
+						@Override
+						protected void runCatching(OWLGraphWrapper managed) throws TaskException, Exception {
+							getIndex(managed);
+						}
+					};
+					try {
+						manager.runManagedTask(task);
+						if (task.getException() != null) {
+							logger.warn("Could not build label index", task.getException());
+						}
+					} catch (InvalidManagedInstanceException exception) {
+						logger.warn("Could not build label index", exception);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Dispose the current and the prepared index and remove the listeners.
+	 */
+	public synchronized void dispose() {
+		disposeCurrent();
+		disposePrepared();
+	}
+
+	private void disposeCurrent() {
+		if (index != null) {
+			graph.getManager().removeOntologyChangeListener(index);
+			index = null;
+			graph = null;
+		}
+	}
+
+	private void disposePrepared() {
+		if (prepared != null) {
+			preparedGraph.getManager().removeOntologyChangeListener(prepared);
+			prepared = null;
+			preparedGraph = null;
+		}
+	}
+}
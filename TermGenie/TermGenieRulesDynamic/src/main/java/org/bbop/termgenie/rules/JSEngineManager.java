@@ -1,17 +1,200 @@
 package org.bbop.termgenie.rules;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 
+/**
+ * Provides prepared JavaScript contexts for the rule scripts. Each script is
+ * compiled once. Each thread has a bounded pool of contexts, in which the
+ * compiled script has already been evaluated. A request only has to bind
+ * its variables and invoke the template function.
+ */
 public class JSEngineManager {
 
+	static final String POOL_SIZE_PARAM = "JSEngineManagerPoolSize";
+	static final int DEFAULT_POOL_SIZE = 20;
+
 	private final ScriptEngineManager manager;
+	// shared engine, only used to compile scripts and to create bindings
+	private final ScriptEngine engine;
+	private final ConcurrentMap<String, CompiledScript> compiledScripts = new ConcurrentHashMap<String, CompiledScript>();
+	private final ThreadLocal<Map<String, PreparedScript>> pool;
 
 	public JSEngineManager() {
+		this(DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * @param poolSize the maximum number of prepared contexts per thread
+	 */
+	public JSEngineManager(final int poolSize) {
 		manager = new ScriptEngineManager();
+		engine = getEngine();
+		pool = new ThreadLocal<Map<String, PreparedScript>>() {
+
+			@Override
+			protected Map<String, PreparedScript> initialValue() {
+				return new LinkedHashMap<String, PreparedScript>(16, 0.75f, true) {
+
+					// generated
+					private static final long serialVersionUID = -4118412582040224227L;
+
+					@Override
+					protected boolean removeEldestEntry(Entry<String, PreparedScript> eldest) {
+						return size() > poolSize;
+					}
+				};
+			}
+		};
 	}
 
+	/**
+	 * @return new engine without any evaluated script
+	 */
 	public ScriptEngine getEngine() {
 		return manager.getEngineByName("js");
 	}
+
+	/**
+	 * Retrieve a context for the current thread, in which the given script
+	 * has already been evaluated. The script is compiled only once and
+	 * evaluated once per thread. Call {@link PreparedScript#release()} after
+	 * usage.
+	 *
+	 * @param script
+	 * @return prepared script
+	 * @throws ScriptException
+	 */
+	public PreparedScript getScript(String script) throws ScriptException {
+		Map<String, PreparedScript> scripts = pool.get();
+		PreparedScript prepared = scripts.get(script);
+		if (prepared == null) {
+			SimpleScriptContext context = new SimpleScriptContext();
+			Bindings bindings;
+			synchronized (engine) {
+				bindings = engine.createBindings();
+			}
+			context.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+			context.setBindings(manager.getBindings(), ScriptContext.GLOBAL_SCOPE);
+			eval(script, context);
+			// only keep the context, if the script was evaluated without errors
+			prepared = new PreparedScript(context, bindings);
+			scripts.put(script, prepared);
+		}
+		return prepared;
+	}
+
+	private void eval(String script, ScriptContext context) throws ScriptException {
+		if (engine instanceof Compilable) {
+			getCompiledScript(script).eval(context);
+		}
+		else {
+			synchronized (engine) {
+				engine.eval(script, context);
+			}
+		}
+	}
+
+	private CompiledScript getCompiledScript(String script) throws ScriptException {
+		CompiledScript compiled = compiledScripts.get(script);
+		if (compiled == null) {
+			synchronized (engine) {
+				compiled = ((Compilable) engine).compile(script);
+			}
+			CompiledScript previous = compiledScripts.putIfAbsent(script, compiled);
+			if (previous != null) {
+				compiled = previous;
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Context with an evaluated script, only to be used by one thread at a
+	 * time.
+	 */
+	public final class PreparedScript {
+
+		private final ScriptContext context;
+		private final Bindings bindings;
+		// engine scope after the evaluation of the script
+		private final Map<String, Object> initial;
+
+		private PreparedScript(ScriptContext context, Bindings bindings) {
+			this.context = context;
+			this.bindings = bindings;
+			this.initial = new HashMap<String, Object>(bindings);
+		}
+
+		/**
+		 * Bind a request specific variable.
+		 *
+		 * @param name
+		 * @param value
+		 */
+		public void put(String name, Object value) {
+			bindings.put(name, value);
+		}
+
+		/**
+		 * Invoke a function without parameters, which has been defined by the
+		 * script.
+		 *
+		 * @param name
+		 * @return result of the function
+		 * @throws ScriptException
+		 * @throws NoSuchMethodException
+		 */
+		public Object invokeFunction(String name) throws ScriptException, NoSuchMethodException {
+			if (initial.get(name) == null) {
+				throw new NoSuchMethodException(name);
+			}
+			return eval(name + "();");
+		}
+
+		private Object eval(String call) throws ScriptException {
+			if (engine instanceof Compilable) {
+				return getCompiledScript(call).eval(context);
+			}
+			synchronized (engine) {
+				return engine.eval(call, context);
+			}
+		}
+
+		/**
+		 * Reset the engine scope to the state after the evaluation of the
+		 * script: remove the request specific variables and all globals
+		 * created by the request, restore re-assigned globals. Objects of
+		 * the script, which are modified in place, are not restored. The rule
+		 * scripts only declare functions at the top level.
+		 */
+		public void release() {
+			for (String name : new ArrayList<String>(bindings.keySet())) {
+				if (!initial.containsKey(name)) {
+					bindings.remove(name);
+				}
+			}
+			for (Entry<String, Object> entry : initial.entrySet()) {
+				Object value = entry.getValue();
+				Object current = bindings.get(entry.getKey());
+				if (value == null ? current != null : !value.equals(current)) {
+					bindings.put(entry.getKey(), value);
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,100 @@
+package org.bbop.termgenie.rules;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.bbop.termgenie.core.eventbus.OntologyChangeEvent;
+import org.bbop.termgenie.ontology.OntologyTaskManager;
+import org.bbop.termgenie.rules.impl.MDefParser;
+import org.bushe.swing.event.EventBus;
+import org.bushe.swing.event.EventSubscriber;
+import org.obolibrary.macro.ManchesterSyntaxTool;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Provides a shared {@link ManchesterSyntaxTool} for the current version of an
+ * ontology, wrapped in a {@link MDefParser} with the precompiled MDef
+ * templates. The entity tables of the tool are only build once per ontology
+ * instance. Axiom changes are tracked incrementally by the short form provider
+ * of the tool, which listens to the changes of the ontology manager. If the
+ * ontology is reset or replaced, a new tool and template cache are created and
+ * swapped in.<br>
+ * The tool must only be used, while holding the lock of the
+ * {@link OntologyTaskManager}.
+ */
+public class ManchesterSyntaxToolProvider implements EventSubscriber<OntologyChangeEvent> {
+
+	private static final Logger logger = Logger.getLogger(ManchesterSyntaxToolProvider.class);
+
+	private final OntologyTaskManager manager;
+
+	// guarded by this
+	private OWLGraphWrapper graph = null;
+	private MDefParser parser = null;
+
+	/**
+	 * @param manager
+	 */
+	public ManchesterSyntaxToolProvider(OntologyTaskManager manager) {
+		super();
+		this.manager = manager;
+		EventBus.subscribe(OntologyChangeEvent.class, this);
+	}
+
+	/**
+	 * Retrieve the parser for the given ontology. Creates a new parser, if
+	 * the ontology instance has changed since the last call.
+	 *
+	 * @param targetOntology
+	 * @return parser, never null
+	 */
+	public synchronized MDefParser getParser(OWLGraphWrapper targetOntology) {
+		if (parser == null || graph != targetOntology) {
+			disposeCurrent();
+			Set<OWLOntology> ontologies = new HashSet<OWLOntology>();
+			ontologies.addAll(targetOntology.getSupportOntologySet());
+			ManchesterSyntaxTool syntaxTool = new ManchesterSyntaxTool(targetOntology.getSourceOntology(), ontologies);
+			parser = new MDefParser(syntaxTool, targetOntology.getDataFactory());
+			graph = targetOntology;
+		}
+		return parser;
+	}
+
+	@Override
+	public void onEvent(OntologyChangeEvent event) {
+		if (event.getManager() == manager) {
+			synchronized (this) {
+				if (event.isReset()) {
+					// the support ontologies may have changed, create a new parser on demand
+					disposeCurrent();
+				}
+				else if (parser != null) {
+					// labels may have changed, which are used in the templates
+					parser.clearTemplates();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dispose the current parser and its syntax tool.
+	 */
+	public synchronized void dispose() {
+		disposeCurrent();
+	}
+
+	private void disposeCurrent() {
+		if (parser != null) {
+			try {
+				parser.dispose();
+			} catch (Exception exception) {
+				logger.warn("Could not dispose syntax tool", exception);
+			}
+			parser = null;
+			graph = null;
+		}
+	}
+}
@@ -2,7 +2,7 @@ package org.bbop.termgenie.rules;
 
 import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
-import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
 import org.obolibrary.obo2owl.Obo2OWLConstants;
 
 import owltools.graph.OWLGraphWrapper;
@@ -21,7 +21,7 @@ public class TemporaryIdentifierTools {
 		}
 	}
 	
-	private static class GetTempIdPrefix extends OntologyTask {
+	private static class GetTempIdPrefix extends ReadOnlyOntologyTask {
 
 		String prefix = null;
 		
@@ -12,8 +12,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
 import org.apache.commons.io.IOUtils;
@@ -22,18 +20,23 @@ import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.Ontology;
 import org.bbop.termgenie.core.TermTemplate;
 import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
+import org.bbop.termgenie.core.management.GenericTaskManager.ManagedTask.Modified;
 import org.bbop.termgenie.core.process.ProcessState;
+import org.bbop.termgenie.core.rules.IncrementalReasoner;
+import org.bbop.termgenie.core.rules.IncrementalReasoner.ScratchTask;
 import org.bbop.termgenie.core.rules.ReasonerFactory;
 import org.bbop.termgenie.core.rules.TermGenerationEngine;
 import org.bbop.termgenie.ontology.OntologyLoader;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
 import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.rules.JSEngineManager.PreparedScript;
 import org.bbop.termgenie.rules.api.ChangeTracker;
 import org.bbop.termgenie.rules.api.TermGenieScriptFunctions;
 import org.bbop.termgenie.rules.impl.TermGenieScriptFunctionsMDefImpl;
 import org.bbop.termgenie.tools.ResourceLoader;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.UnknownOWLOntologyException;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
 
 import owltools.graph.OWLGraphWrapper;
 
@@ -50,6 +53,7 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 	public static final String DEFAULT_XREF = "TDefaultXref";
 	
 	private final JSEngineManager jsEngineManager;
+	private final ManchesterSyntaxToolProvider syntaxToolProvider;
 	private final List<TermTemplate> templates;
 	final Map<TermTemplate, String> scripts;
 	private final OntologyTaskManager ontologyTaskManager;
@@ -67,12 +71,14 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 			@Named(USE_IS_INFERRED_BOOLEAN_NAME) boolean useIsInferred,
 			@Named(ASSERT_INFERERNCES_BOOLEAN_NAME) boolean assertInferences,
 			@Named(FILTER_NON_ASCII_SYNONYMS) boolean filterNonAsciiSynonyms,
-			@Named(DEFAULT_XREF) String defaultXref)
+			@Named(DEFAULT_XREF) String defaultXref,
+			@Named(JSEngineManager.POOL_SIZE_PARAM) Integer enginePoolSize)
 	{
 		super(false);
 		this.factory = factory;
-		this.jsEngineManager = new JSEngineManager();
+		this.jsEngineManager = new JSEngineManager(enginePoolSize.intValue());
 		this.ontologyTaskManager = loader.getOntologyManager();
+		this.syntaxToolProvider = new ManchesterSyntaxToolProvider(ontologyTaskManager);
 		ontologyName = ontologyTaskManager.getOntology().getName();
 		this.templates = templates;
 		this.scripts = new HashMap<TermTemplate, String>();
@@ -157,6 +163,7 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 			return null;
 		}
 		List<TermGenerationOutput> generationOutputs = new ArrayList<TermGenerationOutput>();
+		List<GenerationTask> tasks = new ArrayList<GenerationTask>(generationTasks.size());
 		int count = 0;
 		for (TermGenerationInput input : generationTasks) {
 			TermTemplate termTemplate = input.getTermTemplate();
@@ -174,17 +181,27 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 			if (methodName == null) {
 				methodName = termTemplate.getName();
 			}
-			GenerationTask task = new GenerationTask(input, script, methodName, templateId, factory, processState, requireLiteratureReference, useIsInferred, filterNonAsciiSynonyms, defaultXref);
+			tasks.add(new GenerationTask(input, script, methodName, templateId, factory, processState, requireLiteratureReference, useIsInferred, filterNonAsciiSynonyms, defaultXref));
+			count += 1;
+		}
+		if (!tasks.isEmpty()) {
+			// acquire the ontology only once for all inputs
+			BatchGenerationTask batch = new BatchGenerationTask(tasks);
 			try {
-				ontologyTaskManager.runManagedTask(task);
+				ontologyTaskManager.runManagedTask(batch);
 			} catch (InvalidManagedInstanceException exception) {
 				logger.error("Could not create terms due to an invalid ontology", exception);
-				generationOutputs.add(TermGenerationOutput.error(input,"Could not create terms due to an invalid ontology: "+exception.getMessage()));
+				for (GenerationTask task : tasks) {
+					if (task.result == null) {
+						generationOutputs.add(TermGenerationOutput.error(task.input, "Could not create terms due to an invalid ontology: "+exception.getMessage()));
+					}
+				}
 			}
-			if (task.result != null && !task.result.isEmpty()) {
-				generationOutputs.addAll(task.result);
+			for (GenerationTask task : tasks) {
+				if (task.result != null && !task.result.isEmpty()) {
+					generationOutputs.addAll(task.result);
+				}
 			}
-			count += 1;
 		}
 		if (!generationOutputs.isEmpty()) {
 			return generationOutputs;
@@ -213,7 +230,63 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 		return sb.toString();
 	}
 
-	private final class GenerationTask extends OntologyTask {
+	/**
+	 * Run all {@link GenerationTask}s with a single lock on the ontology. The
+	 * candidates of all inputs share one {@link IncrementalReasoner} session,
+	 * i.e. the target ontology is only classified once per batch.
+	 */
+	private final class BatchGenerationTask extends OntologyTask {
+
+		private final List<GenerationTask> tasks;
+
+		private BatchGenerationTask(List<GenerationTask> tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		public Modified runCatchingMod(final OWLGraphWrapper graph) throws InvalidManagedInstanceException {
+			OWLOntology sourceOntology = graph.getSourceOntology();
+			try {
+				sourceOntology.getImportsClosure();
+			} catch (UnknownOWLOntologyException exception) {
+				throw new InvalidManagedInstanceException("Can't create terms, inconsistent ontology state: "+sourceOntology.getOntologyID().getOntologyIRI(), exception);
+			}
+			final Modified[] modified = new Modified[] { Modified.no };
+			ScratchTask scratchTask = new ScratchTask() {
+
+				@Override
+				public boolean run(OWLOntology scratch, OWLReasoner reasoner) {
+					for (GenerationTask task : tasks) {
+						if (task.run(graph, scratch, reasoner) != Modified.no) {
+							modified[0] = Modified.reset;
+						}
+						if (!task.scratchValid) {
+							// the result may depend on stale candidate axioms,
+							// re-run this and all remaining tasks in single term mode
+							logger.warn("Could not retract the axioms from the shared scratch ontology, fall back to single term mode");
+							task.result = null;
+							return false;
+						}
+					}
+					return true;
+				}
+			};
+			try {
+				IncrementalReasoner reasoner = factory.getIncrementalReasoner(graph);
+				reasoner.runScratchTask(scratchTask);
+			} catch (InvalidManagedInstanceException exception) {
+				logger.warn("Could not create shared reasoner for batch, fall back to single term mode", exception);
+			}
+			for (GenerationTask task : tasks) {
+				if (task.result == null && task.run(graph, null, null) != Modified.no) {
+					modified[0] = Modified.reset;
+				}
+			}
+			return modified[0];
+		}
+	}
+
+	private final class GenerationTask {
 
 		private final String script;
 		private final String methodName;
@@ -227,6 +300,7 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 		private final String defaultXref;
 		
 		List<TermGenerationOutput> result = null;
+		boolean scratchValid = true;
 
 		private GenerationTask(TermGenerationInput input,
 				String script,
@@ -251,26 +325,28 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 			this.defaultXref = defaultXref;
 		}
 
-		@Override
-		public Modified runCatchingMod(OWLGraphWrapper graph) throws InvalidManagedInstanceException {
-
-			OWLOntology sourceOntology = graph.getSourceOntology();
-			try {
-				sourceOntology.getImportsClosure();
-			} catch (UnknownOWLOntologyException exception) {
-				throw new InvalidManagedInstanceException("Can't create terms, inconsistent ontology state: "+sourceOntology.getOntologyID().getOntologyIRI(), exception);
-			}
+		/**
+		 * Run the script for the input.
+		 * 
+		 * @param graph
+		 * @param scratch shared scratch ontology or null
+		 * @param scratchReasoner reasoner for the scratch ontology or null
+		 * @return modified
+		 */
+		Modified run(OWLGraphWrapper graph, OWLOntology scratch, OWLReasoner scratchReasoner) {
 			Modified modified = Modified.no;
 			ChangeTracker changeTracker = null;
 			TermGenieScriptFunctionsMDefImpl functionsImpl = null;
+			PreparedScript prepared = null;
 			try {
-				ScriptEngine engine = jsEngineManager.getEngine();
-				engine.put(ontologyName, graph);
+				// the context has already evaluated the script
+				prepared = jsEngineManager.getScript(script);
+				prepared.put(ontologyName, graph);
 				
 
-				functionsImpl = new TermGenieScriptFunctionsMDefImpl(input, graph, getTempIdPrefix(graph), templateId, factory, state, requireLiteratureReference, useIsInferred, assertInferences, filterNonAsciiSynonyms, defaultXref);
+				functionsImpl = new TermGenieScriptFunctionsMDefImpl(input, graph, getTempIdPrefix(graph), templateId, factory, state, requireLiteratureReference, useIsInferred, assertInferences, filterNonAsciiSynonyms, defaultXref, syntaxToolProvider.getParser(graph), scratch, scratchReasoner);
 				changeTracker = functionsImpl;
-				run(engine, functionsImpl);
+				run(prepared, functionsImpl);
 				result = functionsImpl.getResult();
 			} catch (ScriptException exception) {
 				result = createError("Error during script execution:\n" + exception.getMessage());
@@ -284,8 +360,12 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 				result = createError("Error, script did not contain expected method run:\n" + exception.getMessage());
 			}
 			finally {
+				if (prepared != null) {
+					prepared.release();
+				}
 				// properly dispose the script runner
 				if (functionsImpl != null) {
+					scratchValid = functionsImpl.isScratchValid();
 					functionsImpl.dispose();
 				}
 				// set the target ontology modified flag
@@ -298,13 +378,11 @@ public class TermGenieScriptRunner extends ResourceLoader implements TermGenerat
 			return modified;
 		}
 
-		private void run(ScriptEngine engine, TermGenieScriptFunctions functionsImpl)
+		private void run(PreparedScript prepared, TermGenieScriptFunctions functionsImpl)
 				throws ScriptException, NoSuchMethodException
 		{
-			engine.put("termgenie", functionsImpl);
-			engine.eval(script);
-			Invocable invocableEngine = (Invocable) engine;
-			invocableEngine.invokeFunction(methodName);
+			prepared.put("termgenie", functionsImpl);
+			prepared.invokeFunction(methodName);
 		}
 
 		protected List<TermGenerationOutput> createError(String message) {
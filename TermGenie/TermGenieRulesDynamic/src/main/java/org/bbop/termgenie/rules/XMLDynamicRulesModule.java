@@ -46,6 +46,7 @@ public class XMLDynamicRulesModule extends IOCModule {
 		bind(TermGenieScriptRunner.ASSERT_INFERERNCES_BOOLEAN_NAME, assertInferences);
 		bind(TermGenieScriptRunner.FILTER_NON_ASCII_SYNONYMS, filterNonAsciiSynonyms);
 		bind(TermGenieScriptRunner.DEFAULT_XREF, defaultXref);
+		bind(JSEngineManager.POOL_SIZE_PARAM, Integer.valueOf(JSEngineManager.DEFAULT_POOL_SIZE));
 		bind(TermGenerationEngine.class, TermGenieScriptRunner.class);
 		bindTemplateIO();
 	}
@@ -0,0 +1,218 @@
+package org.bbop.termgenie.rules.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bbop.termgenie.rules.api.TermGenieScriptFunctionsMDef.MDef;
+import org.bbop.termgenie.rules.impl.TermGenieScriptFunctionsMDefImpl.MDefImpl;
+import org.obolibrary.macro.ManchesterSyntaxTool;
+import org.semanticweb.owlapi.manchestersyntax.renderer.ParserException;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.util.OWLObjectDuplicator;
+
+import owltools.graph.OWLGraphWrapper;
+
+/**
+ * Parser for {@link MDef} expressions. The expression of a MDef is parsed
+ * only once into a template, which contains placeholder entities for the
+ * parameters. Binding the parameters of a request replaces the placeholders
+ * with the parameter entities, without any string building or parsing.<br>
+ * The templates are only valid for the ontology version of the syntax tool.
+ */
+public class MDefParser {
+
+	private static final String PLACEHOLDER_PREFIX = "http://purl.obolibrary.org/obo/termgenie/mdef#";
+	static final int MAX_TEMPLATES = 1000;
+
+	private final ManchesterSyntaxTool syntaxTool;
+	private final OWLDataFactory factory;
+	private final Map<String, Template> templates;
+
+	/**
+	 * @param syntaxTool
+	 * @param factory
+	 */
+	public MDefParser(ManchesterSyntaxTool syntaxTool, OWLDataFactory factory) {
+		super();
+		this.syntaxTool = syntaxTool;
+		this.factory = factory;
+		this.templates = new ConcurrentHashMap<String, Template>();
+	}
+
+	/**
+	 * @return the syntaxTool
+	 */
+	public ManchesterSyntaxTool getSyntaxTool() {
+		return syntaxTool;
+	}
+
+	/**
+	 * Parse the MDef with the current parameters. Uses the precompiled
+	 * template, if all parameters are entities.
+	 *
+	 * @param mdef
+	 * @param ontology
+	 * @return class expression
+	 * @throws ParserException
+	 */
+	public OWLClassExpression parse(MDef mdef, OWLGraphWrapper ontology) throws ParserException {
+		Map<String, OWLEntity> bindings = getBindings(mdef);
+		if (bindings == null) {
+			return syntaxTool.parseManchesterExpression(getFullExpression(mdef));
+		}
+		String expression = mdef.getExpression();
+		Template template = templates.get(expression);
+		if (template != null && template.matches(bindings)) {
+			return template.bind(bindings, factory);
+		}
+		OWLClassExpression classExpression = syntaxTool.parseManchesterExpression(getFullExpression(mdef));
+		if (template == null && templates.size() < MAX_TEMPLATES) {
+			template = createTemplate(expression, bindings, classExpression, ontology);
+			if (template != null) {
+				templates.put(expression, template);
+			}
+		}
+		return classExpression;
+	}
+
+	/**
+	 * Remove all templates, i.e. after a change of the ontology.
+	 */
+	public void clearTemplates() {
+		templates.clear();
+	}
+
+	/**
+	 * Dispose the syntax tool.
+	 */
+	public void dispose() {
+		syntaxTool.dispose();
+	}
+
+	/**
+	 * Replace all parameters in the expression with their values.
+	 *
+	 * @param mdef
+	 * @return expression
+	 */
+	static String getFullExpression(MDef mdef) {
+		String expression = mdef.getExpression();
+		Map<String, String> parameters = mdef.getParameters();
+		for (Entry<String, String> parameter : parameters.entrySet()) {
+			expression = expression.replace("?" + parameter.getKey(), parameter.getValue());
+		}
+		return expression;
+	}
+
+	private Map<String, OWLEntity> getBindings(MDef mdef) {
+		if (mdef instanceof MDefImpl) {
+			Map<String, OWLEntity> entities = ((MDefImpl) mdef).getEntities();
+			if (!entities.isEmpty() && entities.size() == mdef.getParameters().size()) {
+				return entities;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Create the template by replacing the bound entities with placeholders.
+	 * This is only safe, if the bound entities are distinct and are not
+	 * referenced in the constant part of the expression.
+	 *
+	 * @param expression
+	 * @param bindings
+	 * @param classExpression
+	 * @param ontology
+	 * @return template or null
+	 */
+	private Template createTemplate(String expression,
+			Map<String, OWLEntity> bindings,
+			OWLClassExpression classExpression,
+			OWLGraphWrapper ontology)
+	{
+		if (new HashSet<OWLEntity>(bindings.values()).size() != bindings.size()) {
+			return null;
+		}
+		String constant = expression;
+		for (String name : bindings.keySet()) {
+			if (constant.indexOf("?" + name) < 0) {
+				return null;
+			}
+			constant = constant.replace("?" + name, " ");
+		}
+		if (constant.indexOf('?') >= 0) {
+			// unbound parameter
+			return null;
+		}
+		Map<String, OWLEntity> placeholders = new HashMap<String, OWLEntity>();
+		Map<OWLEntity, IRI> replacements = new HashMap<OWLEntity, IRI>();
+		for (Entry<String, OWLEntity> entry : bindings.entrySet()) {
+			OWLEntity entity = entry.getValue();
+			if (isReferenced(entity, constant, ontology)) {
+				return null;
+			}
+			IRI placeholderIRI = IRI.create(PLACEHOLDER_PREFIX + entry.getKey());
+			placeholders.put(entry.getKey(), factory.getOWLEntity(entity.getEntityType(), placeholderIRI));
+			replacements.put(entity, placeholderIRI);
+		}
+		OWLObjectDuplicator duplicator = new OWLObjectDuplicator(replacements, factory);
+		OWLClassExpression templateExpression = duplicator.duplicateObject(classExpression);
+		return new Template(templateExpression, placeholders);
+	}
+
+	private boolean isReferenced(OWLEntity entity, String constant, OWLGraphWrapper ontology) {
+		if (contains(constant, syntaxTool.getId(entity))) {
+			return true;
+		}
+		if (contains(constant, entity.getIRI().toString())) {
+			return true;
+		}
+		if (ontology != null && contains(constant, ontology.getLabel(entity))) {
+			return true;
+		}
+		return false;
+	}
+
+	private static boolean contains(String s, String part) {
+		return part != null && !part.isEmpty() && s.contains(part);
+	}
+
+	private static final class Template {
+
+		private final OWLClassExpression expression;
+		private final Map<String, OWLEntity> placeholders;
+
+		Template(OWLClassExpression expression, Map<String, OWLEntity> placeholders) {
+			this.expression = expression;
+			this.placeholders = placeholders;
+		}
+
+		boolean matches(Map<String, OWLEntity> bindings) {
+			if (bindings.size() != placeholders.size()) {
+				return false;
+			}
+			for (Entry<String, OWLEntity> entry : bindings.entrySet()) {
+				OWLEntity placeholder = placeholders.get(entry.getKey());
+				if (placeholder == null || placeholder.getEntityType() != entry.getValue().getEntityType()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		OWLClassExpression bind(Map<String, OWLEntity> bindings, OWLDataFactory factory) {
+			Map<OWLEntity, IRI> replacements = new HashMap<OWLEntity, IRI>();
+			for (Entry<String, OWLEntity> entry : bindings.entrySet()) {
+				replacements.put(placeholders.get(entry.getKey()), entry.getValue().getIRI());
+			}
+			OWLObjectDuplicator duplicator = new OWLObjectDuplicator(replacements, factory);
+			return duplicator.duplicateObject(expression);
+		}
+	}
+}
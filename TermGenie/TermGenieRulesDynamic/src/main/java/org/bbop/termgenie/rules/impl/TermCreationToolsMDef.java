@@ -8,14 +8,16 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
 import org.bbop.termgenie.core.process.ProcessState;
+import org.bbop.termgenie.core.rules.IncrementalReasoner;
+import org.bbop.termgenie.core.rules.IncrementalReasoner.ScratchTask;
 import org.bbop.termgenie.core.rules.ReasonerFactory;
 import org.bbop.termgenie.core.rules.SharedReasoner;
 import org.bbop.termgenie.core.rules.TermGenerationEngine.TermGenerationInput;
@@ -31,14 +33,12 @@ import org.bbop.termgenie.rules.api.ChangeTracker;
 import org.bbop.termgenie.rules.api.TermGenieScriptFunctionsMDef.MDef;
 import org.bbop.termgenie.tools.Pair;
 import org.bbop.termgenie.xrefs.XrefTools;
-import org.obolibrary.macro.ManchesterSyntaxTool;
 import org.obolibrary.obo2owl.Owl2Obo;
 import org.obolibrary.oboformat.model.Clause;
 import org.obolibrary.oboformat.model.Frame;
 import org.obolibrary.oboformat.model.Frame.FrameType;
 import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
 import org.semanticweb.owlapi.manchestersyntax.renderer.ParserException;
-import org.semanticweb.owlapi.model.AddImport;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAxiom;
@@ -47,11 +47,8 @@ import org.semanticweb.owlapi.model.OWLClassExpression;
 import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLDeclarationAxiom;
 import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
-import org.semanticweb.owlapi.model.OWLImportsDeclaration;
 import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.OWLOntology;
-import org.semanticweb.owlapi.model.OWLOntologyCreationException;
-import org.semanticweb.owlapi.model.OWLOntologyID;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
@@ -61,7 +58,7 @@ import owltools.graph.OWLGraphWrapper.ISynonym;
 
 public class TermCreationToolsMDef implements ChangeTracker {
 
-	private final ManchesterSyntaxTool syntaxTool;
+	private final MDefParser parser;
 	private final String tempIdPrefix;
 	private final boolean assertInferences;
 	private final boolean useIsInferred;
@@ -72,6 +69,9 @@ public class TermCreationToolsMDef implements ChangeTracker {
 	final ProcessState state;
 	private final String patternID;
 	private final String defaultXref;
+	private final OWLOntology scratch;
+	private final OWLReasoner scratchReasoner;
+	private boolean scratchValid = true;
 	private int count = 0;
 	
 	/**
@@ -80,24 +80,28 @@ public class TermCreationToolsMDef implements ChangeTracker {
 	 * @param tempIdPrefix
 	 * @param patternID
 	 * @param factory
-	 * @param syntaxTool
+	 * @param parser
 	 * @param state
 	 * @param requireLiteratureReference
 	 * @param useIsInferred
 	 * @param assertInferences
 	 * @param defaultXref
+	 * @param scratch shared scratch ontology or null
+	 * @param scratchReasoner reasoner for the shared scratch ontology or null
 	 */
 	TermCreationToolsMDef(TermGenerationInput input,
 			OWLGraphWrapper targetOntology,
 			String tempIdPrefix,
 			String patternID,
 			ReasonerFactory factory,
-			ManchesterSyntaxTool syntaxTool,
+			MDefParser parser,
 			ProcessState state,
 			boolean requireLiteratureReference,
 			boolean useIsInferred,
 			boolean assertInferences,
-			String defaultXref)
+			String defaultXref,
+			OWLOntology scratch,
+			OWLReasoner scratchReasoner)
 	{
 		super();
 		this.input = input;
@@ -107,10 +111,12 @@ public class TermCreationToolsMDef implements ChangeTracker {
 		this.patternID = tempIdPrefix + patternID;
 		this.factory = factory;
 		this.tempIdPrefix = tempIdPrefix;
-		this.syntaxTool = syntaxTool;
+		this.parser = parser;
 		this.assertInferences = assertInferences;
 		this.useIsInferred = useIsInferred;
 		this.defaultXref = defaultXref;
+		this.scratch = scratch;
+		this.scratchReasoner = scratchReasoner;
 	}
 
 	
@@ -151,7 +157,7 @@ public class TermCreationToolsMDef implements ChangeTracker {
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < logicalDefinitions.size(); i++) {
 			MDef mDef = logicalDefinitions.get(i);
-			String expression = getFullExpression(mDef);
+			String expression = MDefParser.getFullExpression(mDef);
 			if (i > 0) {
 				sb.append(", ");
 			}
@@ -162,13 +168,85 @@ public class TermCreationToolsMDef implements ChangeTracker {
 		return sb.toString();
 	}
 
-	private String getFullExpression(MDef mDef) {
-		String expression = mDef.getExpression();
-		Map<String, String> parameters = mDef.getParameters();
-		for (Entry<String, String> parameter : parameters.entrySet()) {
-			expression = expression.replaceAll("\\?" + parameter.getKey(), parameter.getValue());
+	/**
+	 * Infer the relations for the new class using the shared
+	 * {@link IncrementalReasoner}. The target ontology is only classified
+	 * once, the axioms for the new class are added and retracted
+	 * incrementally. If a shared scratch ontology has been provided, use it
+	 * directly as the caller already holds the reasoner. If the retraction
+	 * from the shared scratch ontology fails, it is not used again, see
+	 * {@link #isScratchValid()}.
+	 * 
+	 * @param logicalDefinitions
+	 * @param partOf
+	 * @param newId
+	 * @param label
+	 * @return relations
+	 * @throws RelationCreationException
+	 * @throws InvalidManagedInstanceException
+	 */
+	protected InferredRelations inferRelations(final List<MDef> logicalDefinitions,
+			final List<MDef> partOf,
+			final String newId,
+			final String label) throws RelationCreationException, InvalidManagedInstanceException
+	{
+		if (logicalDefinitions == null || logicalDefinitions.isEmpty()) {
+			return InferredRelations.EMPTY;
+		}
+		CreateRelationsTask task = new CreateRelationsTask(logicalDefinitions, partOf, newId, label);
+		if (scratch != null && scratchReasoner != null) {
+			if (!scratchValid) {
+				// the caller holds the reasoner, no fall back possible
+				throw new RelationCreationException("The shared scratch ontology is in an inconsistent state");
+			}
+			try {
+				task.run(scratch, scratchReasoner);
+			}
+			finally {
+				// keep the candidates of a batch separate
+				scratchValid = IncrementalReasoner.retract(scratch, scratchReasoner);
+			}
+		}
+		else {
+			IncrementalReasoner reasoner = factory.getIncrementalReasoner(targetOntology);
+			reasoner.runScratchTask(task);
+		}
+		if (task.exception != null) {
+			throw task.exception;
+		}
+		return task.relations;
+	}
+	
+	private class CreateRelationsTask implements ScratchTask {
+		
+		private final List<MDef> logicalDefinitions;
+		private final List<MDef> partOf;
+		private final String newId;
+		private final String label;
+		
+		private InferredRelations relations = null;
+		private RelationCreationException exception = null;
+
+		CreateRelationsTask(List<MDef> logicalDefinitions,
+				List<MDef> partOf,
+				String newId,
+				String label)
+		{
+			this.logicalDefinitions = logicalDefinitions;
+			this.partOf = partOf;
+			this.newId = newId;
+			this.label = label;
+		}
+
+		@Override
+		public boolean run(OWLOntology scratch, OWLReasoner reasoner) {
+			try {
+				relations = createRelations(logicalDefinitions, partOf, newId, label, scratch, reasoner, targetOntology);
+			} catch (RelationCreationException exception) {
+				this.exception = exception;
+			}
+			return true;
 		}
-		return expression;
 	}
 
 	protected InferredRelations createRelations(List<MDef> logicalDefinitions,
@@ -176,6 +254,7 @@ public class TermCreationToolsMDef implements ChangeTracker {
 			String newId,
 			String label,
 			OWLOntology disposable,
+			OWLReasoner reasoner,
 			OWLGraphWrapper reference) throws RelationCreationException
 	{
 		if (logicalDefinitions == null || logicalDefinitions.isEmpty()) {
@@ -188,86 +267,82 @@ public class TermCreationToolsMDef implements ChangeTracker {
 		Pair<OWLClass,OWLAxiom> pair = addClass(iri, disposable);
 		addLabel(iri, label, disposable);
 		for (MDef def : logicalDefinitions) {
-			String expression = getFullExpression(def);
 			try {
-				OWLClassExpression owlClassExpression = syntaxTool.parseManchesterExpression(expression);
+				OWLClassExpression owlClassExpression = parser.parse(def, reference);
 				OWLEquivalentClassesAxiom axiom = owlDataFactory.getOWLEquivalentClassesAxiom(pair.getOne(),
 						owlClassExpression);
 				owlManager.addAxiom(disposable, axiom);
 			} catch (ParserException exception) {
-				throw new RelationCreationException("Could not create OWL class expressions from expression: " + expression, exception);
+				throw new RelationCreationException("Could not create OWL class expressions from expression: " + MDefParser.getFullExpression(def), exception);
 			}
 		}
 		Set<OWLClassExpression> partOfExpressions = new HashSet<OWLClassExpression>();
 		if (partOf != null && !partOf.isEmpty()) {
 			for(MDef mdef : partOf) {
-				String expression = getFullExpression(mdef);
 				try {
-					partOfExpressions.add(syntaxTool.parseManchesterExpression(expression));
+					partOfExpressions.add(parser.parse(mdef, reference));
 				} catch (ParserException exception) {
-					throw new RelationCreationException("Could not create OWL class expressions from expression: " + expression, exception);
+					throw new RelationCreationException("Could not create OWL class expressions from expression: " + MDefParser.getFullExpression(mdef), exception);
 				}
 			}
 		}
-		OWLReasoner reasoner = factory.createReasoner(disposable, state);
-		try {
-			ProcessState.addMessage(state, "Check for ontology consistency.");
-			if (reasoner.isConsistent() == false) {
-				throw new RelationCreationException("The ontology is inconsistent. No safe inferences are possible.");
+		// incremental update of the classification
+		reasoner.flush();
+
+		ProcessState.addMessage(state, "Check for ontology consistency.");
+		if (reasoner.isConsistent() == false) {
+			throw new RelationCreationException("The ontology is inconsistent. No safe inferences are possible.");
+		}
+		ProcessState.addMessage(state, "Check for unsatisfiable classes");
+		final Set<OWLClass> unsatisfiable = reasoner.getUnsatisfiableClasses().getEntitiesMinusBottom();
+		if (unsatisfiable.isEmpty() == false) {
+			Logger.getLogger(TermCreationToolsMDef.class).warn("Unsatisfiable classes: "+unsatisfiable);
+			if (unsatisfiable.contains(owlDataFactory.getOWLClass(iri))) {
+				return InferredRelations.UNSATISFIABLE;
 			}
-			ProcessState.addMessage(state, "Check for unsatisfiable classes");
-			final Set<OWLClass> unsatisfiable = reasoner.getUnsatisfiableClasses().getEntitiesMinusBottom();
-			if (unsatisfiable.isEmpty() == false) {
-				Logger.getLogger(TermCreationToolsMDef.class).warn("Unsatisfiable classes: "+unsatisfiable);
-				if (unsatisfiable.contains(owlDataFactory.getOWLClass(iri))) {
-					return InferredRelations.UNSATISFIABLE;
-				}
-				StringBuilder sb = new StringBuilder();
-				for (OWLClass owlClass : unsatisfiable) {
-					if (sb.length() > 0) {
-						sb.append(", ");
-					}
-					sb.append(Owl2Obo.getIdentifier(owlClass.getIRI()));
+			StringBuilder sb = new StringBuilder();
+			for (OWLClass owlClass : unsatisfiable) {
+				if (sb.length() > 0) {
+					sb.append(", ");
 				}
-				throw new RelationCreationException("No safe inferences are possible. The ontology has unsatisfiable classes: "+sb);
-			}
-			RelationshipTask task;
-			if (assertInferences) {
-				task = new InferAllRelationshipsTask(disposable, targetOntology, iri, tempIdPrefix, state, useIsInferred);
-			}
-			else {
-				task = new SimpleRelationHandlingTask(disposable, targetOntology, iri, state);
-			}
-			task.run(reasoner);
-			InferredRelations inferredRelations = task.getInferredRelations();
-			Set<OWLAxiom> classRelationAxioms = inferredRelations.getClassRelationAxioms();
-			if (classRelationAxioms != null) {
-				// defensive copy
-				classRelationAxioms = new HashSet<OWLAxiom>(classRelationAxioms);
-			}
-			else {
-				classRelationAxioms = new HashSet<OWLAxiom>();
-			}
-			classRelationAxioms.add(pair.getTwo());
-			inferredRelations.setClassRelationAxioms(classRelationAxioms);
-			final Set<OWLClass> equivalentClasses = inferredRelations.getEquivalentClasses();
-			ProcessState.addMessage(state, "Finished inferring relationships from logical definition.");
-			
-			if (equivalentClasses != null && !equivalentClasses.isEmpty()) {
-				// quick exit, if there are existing classes
-				return inferredRelations;
-			}
-			
-			ProcessState.addMessage(state, "Start checking for part_of relationships.");
-			if (!partOfExpressions.isEmpty()) {
-				AddPartOfRelationshipsTask partOfTask = new AddPartOfRelationshipsTask(disposable, reference, pair.getOne(), partOfExpressions , inferredRelations, state);
-				partOfTask.run(reasoner);
+				sb.append(Owl2Obo.getIdentifier(owlClass.getIRI()));
 			}
-			ProcessState.addMessage(state, "Finished checking for part_of relationships.");
+			throw new RelationCreationException("No safe inferences are possible. The ontology has unsatisfiable classes: "+sb);
+		}
+		RelationshipTask task;
+		if (assertInferences) {
+			task = new InferAllRelationshipsTask(disposable, targetOntology, iri, tempIdPrefix, state, useIsInferred);
+		}
+		else {
+			task = new SimpleRelationHandlingTask(disposable, targetOntology, iri, state);
+		}
+		task.run(reasoner);
+		InferredRelations inferredRelations = task.getInferredRelations();
+		Set<OWLAxiom> classRelationAxioms = inferredRelations.getClassRelationAxioms();
+		if (classRelationAxioms != null) {
+			// defensive copy
+			classRelationAxioms = new HashSet<OWLAxiom>(classRelationAxioms);
+		}
+		else {
+			classRelationAxioms = new HashSet<OWLAxiom>();
+		}
+		classRelationAxioms.add(pair.getTwo());
+		inferredRelations.setClassRelationAxioms(classRelationAxioms);
+		final Set<OWLClass> equivalentClasses = inferredRelations.getEquivalentClasses();
+		ProcessState.addMessage(state, "Finished inferring relationships from logical definition.");
+		
+		if (equivalentClasses != null && !equivalentClasses.isEmpty()) {
+			// quick exit, if there are existing classes
 			return inferredRelations;
-		} finally {
-			reasoner.dispose();
 		}
+		
+		ProcessState.addMessage(state, "Start checking for part_of relationships.");
+		if (!partOfExpressions.isEmpty()) {
+			AddPartOfRelationshipsTask partOfTask = new AddPartOfRelationshipsTask(disposable, reference, pair.getOne(), partOfExpressions , inferredRelations, state);
+			partOfTask.run(reasoner);
+		}
+		ProcessState.addMessage(state, "Finished checking for part_of relationships.");
+		return inferredRelations;
 	}
 
 	private String getNewId() {
@@ -424,14 +499,8 @@ public class TermCreationToolsMDef implements ChangeTracker {
 		String oboNewId = Owl2Obo.getIdentifier(iri);
 		OboTools.addTermId(term, oboNewId);
 		final OWLOntologyManager owlManager = targetOntology.getManager();
-		OWLOntology disposable = null;
 		try {
-			disposable = owlManager.createOntology(IRI.generateDocumentIRI());
-			OWLOntologyID id = targetOntology.getSourceOntology().getOntologyID();
-			OWLImportsDeclaration importDeclaration = owlManager.getOWLDataFactory().getOWLImportsDeclaration(id.getDefaultDocumentIRI().orNull());
-			owlManager.applyChange(new AddImport(disposable, importDeclaration));
-			
-			InferredRelations inferredRelations = createRelations(logicalDefinition, partOf, owlNewId, label, disposable, targetOntology);
+			InferredRelations inferredRelations = inferRelations(logicalDefinition, partOf, owlNewId, label);
 			if (inferredRelations.isUnsatisfiable()) {
 				output.add(singleError("Failed to create the term "+label+
 						" with the logical definition: "+ renderLogicalDefinition(logicalDefinition) +
@@ -465,7 +534,7 @@ public class TermCreationToolsMDef implements ChangeTracker {
 		} catch (RelationCreationException exception) {
 			output.add(singleError(exception.getMessage(), input));
 			return false;
-		} catch (OWLOntologyCreationException exception) {
+		} catch (InvalidManagedInstanceException exception) {
 			output.add(singleError("Could not create test setup for relation inference: "+exception.getMessage(), input));
 			return false;
 		}
@@ -474,11 +543,6 @@ public class TermCreationToolsMDef implements ChangeTracker {
 //			output.add(singleError(t.getMessage(), input));
 //			return false;
 //		}
-		finally{
-			if (disposable != null) {
-				owlManager.removeOntology(disposable);
-			}
-		}
 	}
 
 	private List<String> getDefXrefs() {
@@ -515,6 +579,14 @@ public class TermCreationToolsMDef implements ChangeTracker {
 		return false;
 	}
 
+	/**
+	 * @return false, if the retraction from the shared scratch ontology
+	 *         failed and the scratch ontology must be re-created
+	 */
+	public boolean isScratchValid() {
+		return scratchValid;
+	}
+
 	static Pair<OWLClass, OWLAxiom> createClass(IRI iri, OWLOntologyManager manager) {
 		OWLDataFactory factory = manager.getOWLDataFactory();
 		OWLClass owlClass = factory.getOWLClass(iri);
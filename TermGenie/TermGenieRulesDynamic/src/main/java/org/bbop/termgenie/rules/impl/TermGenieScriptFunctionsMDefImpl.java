@@ -2,7 +2,6 @@ package org.bbop.termgenie.rules.impl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,6 +14,7 @@ import org.apache.log4j.Logger;
 import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
 import org.bbop.termgenie.core.management.GenericTaskManager.ManagedTask;
 import org.bbop.termgenie.core.process.ProcessState;
+import org.bbop.termgenie.core.rules.IncrementalReasoner;
 import org.bbop.termgenie.core.rules.ReasonerFactory;
 import org.bbop.termgenie.core.rules.SharedReasoner;
 import org.bbop.termgenie.core.rules.TermGenerationEngine.TermGenerationInput;
@@ -38,7 +38,8 @@ public class TermGenieScriptFunctionsMDefImpl extends SynonymGenerationTools imp
 		TermGenieScriptFunctions, ChangeTracker, TermGenieScriptFunctionsMDef
 {
 	private final TermCreationToolsMDef tools;
-	private final ManchesterSyntaxTool syntaxTool;
+	private final MDefParser parser;
+	private final boolean disposeParser;
 
 	private List<TermGenerationOutput> result;
 	
@@ -66,12 +67,58 @@ public class TermGenieScriptFunctionsMDefImpl extends SynonymGenerationTools imp
 			boolean assertInferences,
 			boolean filterNonAsciiSynonyms,
 			String defaultXref)
+	{
+		this(input, targetOntology, tempIdPrefix, patternID, factory, state, requireLiteratureReference, useIsInferred, assertInferences, filterNonAsciiSynonyms, defaultXref, null, null, null);
+	}
+
+	/**
+	 * Create the script functions, which use a shared MDef parser and a
+	 * shared scratch ontology and reasoner for the relation inference, see
+	 * {@link IncrementalReasoner#runScratchTask(org.bbop.termgenie.core.rules.IncrementalReasoner.ScratchTask)}.
+	 * 
+	 * @param input
+	 * @param targetOntology
+	 * @param tempIdPrefix
+	 * @param patternID
+	 * @param factory
+	 * @param state 
+	 * @param requireLiteratureReference
+	 * @param useIsInferred
+	 * @param assertInferences
+	 * @param filterNonAsciiSynonyms
+	 * @param defaultXref
+	 * @param parser the shared MDef parser or null
+	 * @param scratch the shared scratch ontology or null
+	 * @param scratchReasoner the reasoner for the scratch ontology or null
+	 */
+	public TermGenieScriptFunctionsMDefImpl(TermGenerationInput input,
+			OWLGraphWrapper targetOntology,
+			String tempIdPrefix,
+			String patternID,
+			ReasonerFactory factory,
+			ProcessState state,
+			boolean requireLiteratureReference,
+			boolean useIsInferred,
+			boolean assertInferences,
+			boolean filterNonAsciiSynonyms,
+			String defaultXref,
+			MDefParser parser,
+			OWLOntology scratch,
+			OWLReasoner scratchReasoner)
 	{
 		super(filterNonAsciiSynonyms);
-		Set<OWLOntology> ontologies = new HashSet<OWLOntology>();
-		ontologies.addAll(targetOntology.getSupportOntologySet());
-		syntaxTool = new ManchesterSyntaxTool(targetOntology.getSourceOntology(), ontologies);
-		tools = new TermCreationToolsMDef(input, targetOntology, tempIdPrefix, patternID, factory, syntaxTool, state, requireLiteratureReference, useIsInferred, assertInferences, defaultXref);
+		if (parser != null) {
+			this.parser = parser;
+			this.disposeParser = false;
+		}
+		else {
+			Set<OWLOntology> ontologies = new HashSet<OWLOntology>();
+			ontologies.addAll(targetOntology.getSupportOntologySet());
+			ManchesterSyntaxTool syntaxTool = new ManchesterSyntaxTool(targetOntology.getSourceOntology(), ontologies);
+			this.parser = new MDefParser(syntaxTool, targetOntology.getDataFactory());
+			this.disposeParser = true;
+		}
+		tools = new TermCreationToolsMDef(input, targetOntology, tempIdPrefix, patternID, factory, this.parser, state, requireLiteratureReference, useIsInferred, assertInferences, defaultXref, scratch, scratchReasoner);
 		java.util.logging.Logger.getLogger("org.obolibrary").setLevel(Level.SEVERE);
 	}
 	
@@ -213,10 +260,7 @@ public class TermGenieScriptFunctionsMDefImpl extends SynonymGenerationTools imp
 		}
 		if (ontology != null) {
 			SharedReasoner reasoner = tools.factory.getSharedReasoner(ontology);
-			Collection<OWLObject> ancestors = reasoner.getAncestors(x, ontology);
-			if (ancestors != null) {
-				return ancestors.contains(parent);
-			}
+			return reasoner.isSubClassOf(x, parent, ontology);
 		}
 		return false;
 	}
@@ -454,10 +498,19 @@ public class TermGenieScriptFunctionsMDefImpl extends SynonymGenerationTools imp
 		return tools.hasChanges();
 	}
 
+	/**
+	 * @return false, if the shared scratch ontology must be re-created
+	 * @see TermCreationToolsMDef#isScratchValid()
+	 */
+	public boolean isScratchValid() {
+		return tools.isScratchValid();
+	}
+
 	class MDefImpl implements MDef {
 		
 		private final String expression;
 		private final Map<String, String> parameters;
+		private final Map<String, OWLEntity> entities;
 		
 		/**
 		 * @param expression
@@ -466,18 +519,22 @@ public class TermGenieScriptFunctionsMDefImpl extends SynonymGenerationTools imp
 			super();
 			this.expression = expression;
 			this.parameters = Collections.synchronizedMap(new HashMap<String, String>());
+			this.entities = Collections.synchronizedMap(new HashMap<String, OWLEntity>());
 			
 		}
 
 		@Override
 		public void addParameter(String name, String value) {
 			parameters.put(name, value);
+			entities.remove(name);
 		}
 
 		@Override
 		public void addParameter(String name, OWLObject x, OWLGraphWrapper ontology) {
 			if (x instanceof OWLEntity) {
-				parameters.put(name, syntaxTool.getId((OWLEntity) x));
+				OWLEntity entity = (OWLEntity) x;
+				parameters.put(name, parser.getSyntaxTool().getId(entity));
+				entities.put(name, entity);
 			}
 		}
 		
@@ -490,6 +547,15 @@ public class TermGenieScriptFunctionsMDefImpl extends SynonymGenerationTools imp
 		public Map<String, String> getParameters() {
 			return Collections.unmodifiableMap(parameters);
 		}
+
+		/**
+		 * @return copy of the parameters, which are entities
+		 */
+		Map<String, OWLEntity> getEntities() {
+			synchronized (entities) {
+				return new HashMap<String, OWLEntity>(entities);
+			}
+		}
 	}
 	
 	@Override
@@ -569,7 +635,10 @@ public class TermGenieScriptFunctionsMDefImpl extends SynonymGenerationTools imp
 	}
 	
 	public void dispose() {
-		syntaxTool.dispose();
+		// a shared parser is disposed by its owner
+		if (disposeParser) {
+			parser.dispose();
+		}
 	}
 
 }
@@ -18,6 +18,7 @@ import org.bbop.termgenie.freeform.FreeFormTermValidatorImpl.ValidationTask;
 import org.bbop.termgenie.ontology.OntologyLoader;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
 import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.owl.LabelIndexProvider;
 import org.bbop.termgenie.rules.OldTestOntologyModule;
 import org.bbop.termgenie.rules.TemporaryIdentifierTools;
 import org.bbop.termgenie.tools.Pair;
@@ -40,6 +41,7 @@ public class FreeFormTermValidatorImplTest {
 	
 	private static ReasonerFactory factory = null;
 	private static OWLGraphWrapper graph = null;
+	private static LabelIndexProvider labelIndexProvider = null;
 	
 	@BeforeClass
 	public static void beforeClass() throws Exception {
@@ -58,6 +60,7 @@ public class FreeFormTermValidatorImplTest {
 		});
 		
 		factory = new ReasonerFactoryImpl();
+		labelIndexProvider = new LabelIndexProvider(goManager);
 	}
 	
 	@Test
@@ -170,7 +173,7 @@ public class FreeFormTermValidatorImplTest {
 	protected ValidationTask createTask(FreeFormTermRequest request, OWLGraphWrapper graph) {
 		String idprefix = TemporaryIdentifierTools.getTempIdPrefix(graph);
 		List<String> namespaces = Arrays.asList("biological_process");
-		ValidationTask task = new FreeFormTermValidatorImpl.ValidationTask(request, true, true, true, "freeform", idprefix, namespaces , factory, ProcessState.NO);
+		ValidationTask task = new FreeFormTermValidatorImpl.ValidationTask(request, true, true, true, "freeform", idprefix, namespaces , factory, labelIndexProvider, ProcessState.NO);
 		return task;
 	}
 	
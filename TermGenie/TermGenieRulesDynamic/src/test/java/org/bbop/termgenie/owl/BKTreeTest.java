@@ -0,0 +1,34 @@
+package org.bbop.termgenie.owl;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BKTree}.
+ */
+public class BKTreeTest {
+
+	@Test
+	public void testSearch() {
+		BKTree tree = new BKTree();
+		for (String key : Arrays.asList("apoptosis", "apoptotic", "mitosis", "meiosis", "mitotic", "apoptosis")) {
+			tree.add(key);
+		}
+		assertEquals(5, tree.size());
+		assertKeys(tree.search("apoptosis", 0), "apoptosis");
+		assertKeys(tree.search("apoptosls", 1), "apoptosis");
+		assertKeys(tree.search("mitosis", 2), "meiosis", "mitosis", "mitotic");
+		assertKeys(tree.search("nucleus", 1));
+		assertKeys(new BKTree().search("nucleus", 1));
+	}
+
+	private static void assertKeys(List<String> keys, String...expected) {
+		Collections.sort(keys);
+		assertEquals(Arrays.asList(expected), keys);
+	}
+}
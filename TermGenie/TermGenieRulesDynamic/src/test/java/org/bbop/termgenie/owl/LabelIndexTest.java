@@ -0,0 +1,127 @@
+package org.bbop.termgenie.owl;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bbop.termgenie.core.ioc.TermGenieGuice;
+import org.bbop.termgenie.ontology.OntologyLoader;
+import org.bbop.termgenie.ontology.OntologyTaskManager;
+import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.owl.LabelIndex.Match;
+import org.bbop.termgenie.rules.OldTestOntologyModule;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import owltools.graph.OWLGraphWrapper;
+
+import com.google.inject.Injector;
+
+/**
+ * Tests for {@link LabelIndex}.
+ */
+public class LabelIndexTest {
+
+	private static OWLGraphWrapper graph = null;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		Injector injector = TermGenieGuice.createInjector(new OldTestOntologyModule());
+
+		OntologyLoader loader = injector.getInstance(OntologyLoader.class);
+		OntologyTaskManager goManager = loader.getOntologyManager();
+
+		goManager.runManagedTask(new OntologyTask(){
+
+			@Override
+			protected void runCatching(OWLGraphWrapper managed) throws TaskException, Exception
+			{
+				graph = managed;
+			}
+		});
+	}
+
+	@Test
+	public void testFind() {
+		LabelIndex index = new LabelIndex(graph);
+		assertTrue(index.isIndexFor(graph));
+
+		// label
+		List<Match> matches = index.find(LabelIndex.normalize("Branching involved in mammary gland duct morphogenesis"));
+		assertEquals(1, matches.size());
+		assertEquals("GO:0060444", matches.get(0).identifier);
+		assertNull(matches.get(0).synonym);
+
+		// EXACT synonym, with different case and separators
+		matches = index.find(LabelIndex.normalize("mammary-gland branching Morphogenesis"));
+		assertEquals(1, matches.size());
+		assertEquals("GO:0060444", matches.get(0).identifier);
+		assertEquals("mammary gland branching morphogenesis", matches.get(0).synonym);
+
+		assertTrue(index.find(LabelIndex.normalize("not a label in the test ontology")).isEmpty());
+	}
+
+	@Test
+	public void testFindSimilar() {
+		LabelIndex index = new LabelIndex(graph);
+
+		// one missing character
+		assertContains(index.findSimilar(LabelIndex.normalize("branching involved in mammary gland duct morphogenesi")), "GO:0060444");
+
+		// equal keys are not similar
+		assertTrue(index.findSimilar(LabelIndex.normalize("branching involved in mammary gland duct morphogenesis")).isEmpty());
+
+		// too many differences
+		assertTrue(index.findSimilar(LabelIndex.normalize("branching involved in mammary gland duct morphogen")).isEmpty());
+		assertContains(index.findSimilar(LabelIndex.normalize("branching involved in mammary gland duct morphogen"), 3), "GO:0060444");
+	}
+
+	@Test
+	public void testOntologiesChanged() {
+		LabelIndex index = new LabelIndex(graph);
+		OWLOntology ontology = graph.getSourceOntology();
+		OWLOntologyManager manager = ontology.getOWLOntologyManager();
+		OWLDataFactory factory = manager.getOWLDataFactory();
+		OWLClass owlClass = factory.getOWLClass(IRI.create("http://purl.obolibrary.org/obo/GO_9999999"));
+		Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+		axioms.add(factory.getOWLDeclarationAxiom(owlClass));
+		axioms.add(factory.getOWLAnnotationAssertionAxiom(factory.getRDFSLabel(), owlClass.getIRI(), factory.getOWLLiteral("fake label index term")));
+		String key = LabelIndex.normalize("fake label index term");
+
+		manager.addOntologyChangeListener(index);
+		try {
+			assertTrue(index.find(key).isEmpty());
+
+			manager.addAxioms(ontology, axioms);
+			List<Match> matches = index.find(key);
+			assertEquals(1, matches.size());
+			assertEquals("GO:9999999", matches.get(0).identifier);
+			assertEquals(1, index.findSimilar(LabelIndex.normalize("fake label index terms")).size());
+
+			manager.removeAxioms(ontology, axioms);
+			assertTrue(index.find(key).isEmpty());
+			assertTrue(index.findSimilar(LabelIndex.normalize("fake label index terms")).isEmpty());
+		}
+		finally {
+			manager.removeOntologyChangeListener(index);
+			manager.removeAxioms(ontology, axioms);
+		}
+	}
+
+	private static void assertContains(List<Match> matches, String identifier) {
+		for (Match match : matches) {
+			if (identifier.equals(match.identifier)) {
+				return;
+			}
+		}
+		fail("Expected a match for: " + identifier);
+	}
+}
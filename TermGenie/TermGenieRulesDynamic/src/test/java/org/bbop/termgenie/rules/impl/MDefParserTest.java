@@ -0,0 +1,146 @@
+package org.bbop.termgenie.rules.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.bbop.termgenie.core.ioc.TermGenieGuice;
+import org.bbop.termgenie.core.process.ProcessState;
+import org.bbop.termgenie.ontology.OntologyLoader;
+import org.bbop.termgenie.ontology.OntologyTaskManager;
+import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.rules.OldTestOntologyModule;
+import org.bbop.termgenie.rules.api.TermGenieScriptFunctionsMDef.MDef;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.obolibrary.macro.ManchesterSyntaxTool;
+import org.semanticweb.owlapi.manchestersyntax.renderer.ParserException;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import owltools.graph.OWLGraphWrapper;
+
+import com.google.inject.Injector;
+
+/**
+ * Tests for {@link MDefParser}.
+ */
+public class MDefParserTest {
+
+	private static OWLGraphWrapper graph = null;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		Injector injector = TermGenieGuice.createInjector(new OldTestOntologyModule());
+		OntologyLoader loader = injector.getInstance(OntologyLoader.class);
+		OntologyTaskManager ontologyManager = loader.getOntologyManager();
+		ontologyManager.runManagedTask(new OntologyTask(){
+
+			@Override
+			protected void runCatching(OWLGraphWrapper managed) throws TaskException, Exception
+			{
+				graph = managed;
+			}
+		});
+	}
+
+	@Test
+	public void testTemplate() throws Exception {
+		CountingSyntaxTool syntaxTool = new CountingSyntaxTool(graph.getSourceOntology(), graph.getSupportOntologySet());
+		MDefParser parser = new MDefParser(syntaxTool, graph.getDataFactory());
+		TermGenieScriptFunctionsMDefImpl functions = createFunctions(parser);
+		try {
+			String expression = "?part and 'part of' some ?whole";
+
+			MDef first = createMDef(functions, expression, "GO:0019660", "GO:0005777");
+			assertEquals(syntaxTool.parseFull(first), parser.parse(first, graph));
+			assertEquals(2, syntaxTool.count);
+
+			// template hit, no parsing
+			MDef second = createMDef(functions, expression, "GO:0046836", "GO:0051402");
+			OWLClassExpression bound = parser.parse(second, graph);
+			assertEquals(2, syntaxTool.count);
+			assertEquals(syntaxTool.parseFull(second), bound);
+		}
+		finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testFallback() throws Exception {
+		CountingSyntaxTool syntaxTool = new CountingSyntaxTool(graph.getSourceOntology(), graph.getSupportOntologySet());
+		MDefParser parser = new MDefParser(syntaxTool, graph.getDataFactory());
+		TermGenieScriptFunctionsMDefImpl functions = createFunctions(parser);
+		try {
+			// string parameters are always parsed
+			MDef mdef = functions.createMDef("?part and 'part of' some ?whole");
+			mdef.addParameter("part", "GO_0019660");
+			mdef.addParameter("whole", "GO_0005777");
+			OWLClassExpression expected = syntaxTool.parseFull(mdef);
+			assertEquals(expected, parser.parse(mdef, graph));
+			assertEquals(expected, parser.parse(mdef, graph));
+			assertEquals(3, syntaxTool.count);
+
+			// the bound entity is also used in the constant part, no template
+			String expression = "?part and 'part of' some GO_0005777";
+			MDef first = createMDef(functions, expression, "GO:0005777", null);
+			assertEquals(syntaxTool.parseFull(first), parser.parse(first, graph));
+			MDef second = createMDef(functions, expression, "GO:0019660", null);
+			assertEquals(syntaxTool.parseFull(second), parser.parse(second, graph));
+			assertEquals(7, syntaxTool.count);
+		}
+		finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testGetFullExpression() throws Exception {
+		CountingSyntaxTool syntaxTool = new CountingSyntaxTool(graph.getSourceOntology(), graph.getSupportOntologySet());
+		MDefParser parser = new MDefParser(syntaxTool, graph.getDataFactory());
+		TermGenieScriptFunctionsMDefImpl functions = createFunctions(parser);
+		try {
+			// characters with a special meaning in a regex replacement
+			MDef mdef = functions.createMDef("?x and 'part of' some ?y");
+			mdef.addParameter("x", "'cost $1 (in \\$)'");
+			mdef.addParameter("y", "'a\\b'");
+			assertEquals("'cost $1 (in \\$)' and 'part of' some 'a\\b'", MDefParser.getFullExpression(mdef));
+		}
+		finally {
+			parser.dispose();
+		}
+	}
+
+	private static TermGenieScriptFunctionsMDefImpl createFunctions(MDefParser parser) {
+		return new TermGenieScriptFunctionsMDefImpl(null, graph, "GO:TEMP-", "test", null, ProcessState.NO, false, false, false, false, null, parser, null, null);
+	}
+
+	private static MDef createMDef(TermGenieScriptFunctionsMDefImpl functions, String expression, String part, String whole) {
+		MDef mdef = functions.createMDef(expression);
+		mdef.addParameter("part", graph.getOWLObjectByIdentifier(part), graph);
+		if (whole != null) {
+			mdef.addParameter("whole", graph.getOWLObjectByIdentifier(whole), graph);
+		}
+		return mdef;
+	}
+
+	private static class CountingSyntaxTool extends ManchesterSyntaxTool {
+
+		int count = 0;
+
+		CountingSyntaxTool(OWLOntology inputOntology, Set<OWLOntology> auxiliaryOntologies) {
+			super(inputOntology, auxiliaryOntologies);
+		}
+
+		@Override
+		public OWLClassExpression parseManchesterExpression(String expression) throws ParserException {
+			count += 1;
+			return super.parseManchesterExpression(expression);
+		}
+
+		OWLClassExpression parseFull(MDef mdef) throws ParserException {
+			return parseManchesterExpression(MDefParser.getFullExpression(mdef));
+		}
+	}
+}
@@ -36,6 +36,9 @@ import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
 import org.bbop.termgenie.ontology.obo.OboTools;
 import org.bbop.termgenie.ontology.obo.OwlStringTools;
 import org.bbop.termgenie.ontology.obo.OwlTranslatorTools;
+import org.bbop.termgenie.owl.LabelIndex;
+import org.bbop.termgenie.owl.LabelIndex.Match;
+import org.bbop.termgenie.owl.LabelIndexProvider;
 import org.bbop.termgenie.permissions.UserPermissions;
 import org.bbop.termgenie.services.freeform.InternalFreeFormCommitService;
 import org.bbop.termgenie.tools.Pair;
@@ -49,7 +52,6 @@ import org.obolibrary.oboformat.parser.OBOFormatConstants.OboFormatTag;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAxiom;
-import org.semanticweb.owlapi.model.OWLObject;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
@@ -70,6 +72,7 @@ public class DefaultTermCommitServiceImpl extends NoCommitTermCommitServiceImpl
 	private final OntologyIdManager primaryIdProvider;
 	private final OntologyIdManager secondaryIdProvider;
 	protected final UserPermissions permissions;
+	private final LabelIndexProvider labelIndexProvider;
 	private String tempIdPrefix;
 
 	@Inject
@@ -80,7 +83,8 @@ public class DefaultTermCommitServiceImpl extends NoCommitTermCommitServiceImpl
 			final @Named("PrimaryOntologyIdManager") OntologyIdManager primaryIdProvider,
 			final @Named("SecondaryOntologyIdManager") OntologyIdManager secondaryIdProvider,
 			final TermGenerationEngine generationEngine,
-			UserPermissions permissions)
+			UserPermissions permissions,
+			LabelIndexProvider labelIndexProvider)
 	{
 		super(sessionHandler, loader);
 		this.submitFilter = submitFilter;
@@ -88,6 +92,7 @@ public class DefaultTermCommitServiceImpl extends NoCommitTermCommitServiceImpl
 		this.primaryIdProvider = primaryIdProvider;
 		this.secondaryIdProvider = secondaryIdProvider;
 		this.permissions = permissions;
+		this.labelIndexProvider = labelIndexProvider;
 		try {
 			manager.runManagedTask(new OntologyTask() {
 
@@ -228,6 +233,7 @@ public class DefaultTermCommitServiceImpl extends NoCommitTermCommitServiceImpl
 			int missingRelations = 0;
 			List<String> existing = new ArrayList<String>();
 			List<String> labels = new ArrayList<String>(terms.length);
+			LabelIndex labelIndex = labelIndexProvider.getIndex(managed);
 			for (JsonOntologyTerm term : terms) {
 				List<String> relations = term.getRelations();
 				if (relations == null || relations.isEmpty()) {
@@ -238,10 +244,14 @@ public class DefaultTermCommitServiceImpl extends NoCommitTermCommitServiceImpl
 				}
 				String label = term.getLabel();
 				labels.add(label);
-				OWLObject owlObject = managed.getOWLObjectByLabel(label);
-				if (owlObject != null) {
-					String identifier = managed.getIdentifier(owlObject);
-					existing.add(identifier + " " + label);
+				if (label != null) {
+					// same normalization as the free-form validation
+					for (Match match : labelIndex.find(LabelIndex.normalize(label))) {
+						if (match.synonym == null) {
+							existing.add(match.identifier + " " + match.label);
+							break;
+						}
+					}
 				}
 			}
 			if (!existing.isEmpty()) {
@@ -32,7 +32,7 @@ import org.bbop.termgenie.data.JsonTermTemplate.JsonTemplateField;
 import org.bbop.termgenie.data.JsonValidationHint;
 import org.bbop.termgenie.ontology.OntologyLoader;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
-import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
 import org.bbop.termgenie.tools.FieldValidatorTool;
 import org.bbop.termgenie.user.OrcidUserData;
 import org.bbop.termgenie.user.UserDataProvider;
@@ -223,7 +223,7 @@ public class GenerateTermsServiceImpl implements GenerateTermsService {
 		return new JsonGenerationResponse(msg, null, null, null, null);
 	}
 	
-	private class GenerateJsonResponse extends OntologyTask {
+	private class GenerateJsonResponse extends ReadOnlyOntologyTask {
 
 		private final List<TermGenerationOutput> candidates;
 		private JsonGenerationResponse generationResponse;
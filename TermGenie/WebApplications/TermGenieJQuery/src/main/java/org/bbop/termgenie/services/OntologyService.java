@@ -78,4 +78,112 @@ public interface OntologyService {
 			String query,
 			String ontology,
 			int max);
+
+	/**
+	 * Auto complete several queries with one request, i.e. for all term
+	 * fields of a template. The queries are executed on the same state of
+	 * the index. Return at most {@link #MAX_BATCH_SIZE} results.
+	 * 
+	 * @param sessionId an id which can be used to retrieve the session object.
+	 * @param queries
+	 * @return results in the order of the queries
+	 */
+	public JsonAutocompleteResult[] batchAutocomplete(String sessionId,
+			JsonAutocompleteQuery[] queries);
+
+	/**
+	 * Maximum number of queries in one
+	 * {@link OntologyService#batchAutocomplete(String, JsonAutocompleteQuery[])}
+	 * request.
+	 */
+	public static final int MAX_BATCH_SIZE = 10;
+
+	/**
+	 * Single query for
+	 * {@link OntologyService#batchAutocomplete(String, JsonAutocompleteQuery[])}
+	 */
+	public static class JsonAutocompleteQuery {
+		public String query;
+		public String ontology;
+		public int max;
+
+		/**
+		 * @return the query
+		 */
+		public String getQuery() {
+			return query;
+		}
+
+		/**
+		 * @param query the query to set
+		 */
+		public void setQuery(String query) {
+			this.query = query;
+		}
+
+		/**
+		 * @return the ontology
+		 */
+		public String getOntology() {
+			return ontology;
+		}
+
+		/**
+		 * @param ontology the ontology to set
+		 */
+		public void setOntology(String ontology) {
+			this.ontology = ontology;
+		}
+
+		/**
+		 * @return the max
+		 */
+		public int getMax() {
+			return max;
+		}
+
+		/**
+		 * @param max the max to set
+		 */
+		public void setMax(int max) {
+			this.max = max;
+		}
+	}
+
+	/**
+	 * Single result of
+	 * {@link OntologyService#batchAutocomplete(String, JsonAutocompleteQuery[])}
+	 */
+	public static class JsonAutocompleteResult {
+		public JsonTermSuggestion[] suggestions;
+		public long micros;
+
+		/**
+		 * @return the suggestions, null for an invalid query
+		 */
+		public JsonTermSuggestion[] getSuggestions() {
+			return suggestions;
+		}
+
+		/**
+		 * @param suggestions the suggestions to set
+		 */
+		public void setSuggestions(JsonTermSuggestion[] suggestions) {
+			this.suggestions = suggestions;
+		}
+
+		/**
+		 * @return the time for the query in microseconds
+		 */
+		public long getMicros() {
+			return micros;
+		}
+
+		/**
+		 * @param micros the time for the query in microseconds
+		 */
+		public void setMicros(long micros) {
+			this.micros = micros;
+		}
+	}
 }
@@ -1,13 +1,17 @@
 package org.bbop.termgenie.services;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bbop.termgenie.core.OntologyTermSuggestor;
+import org.bbop.termgenie.core.OntologyTermSuggestor.SuggestionQuery;
+import org.bbop.termgenie.core.OntologyTermSuggestor.SuggestionResult;
 import org.bbop.termgenie.core.TermSuggestion;
 import org.bbop.termgenie.core.management.GenericTaskManager.InvalidManagedInstanceException;
-import org.bbop.termgenie.core.management.GenericTaskManager.ManagedTask;
+import org.bbop.termgenie.core.management.GenericTaskManager.ReadOnlyManagedTask;
 import org.bbop.termgenie.core.rules.ReasonerFactory;
 import org.bbop.termgenie.core.rules.SharedReasoner;
 import org.bbop.termgenie.data.JsonTermGenerationParameter.JsonOntologyTermIdentifier;
@@ -45,7 +49,7 @@ public class OntologyServiceImpl implements OntologyService {
 		status.setOntology(availableOntology);
 		
 		OntologyTaskManager manager = loader.getOntologyManager();
-		ManagedTask<OWLGraphWrapper> checkTask = new ManagedTask<OWLGraphWrapper>(){
+		ReadOnlyManagedTask<OWLGraphWrapper> checkTask = new ReadOnlyManagedTask<OWLGraphWrapper>(){
 
 			@Override
 			public Modified run(OWLGraphWrapper graph)
@@ -94,6 +98,57 @@ public class OntologyServiceImpl implements OntologyService {
 
 		// query for terms
 		List<TermSuggestion> autocompleteList = suggestor.suggestTerms(query, ontologyName, max);
+		return createSuggestions(autocompleteList, ontologyName);
+	}
+
+	@Override
+	public JsonAutocompleteResult[] batchAutocomplete(String sessionId,
+			JsonAutocompleteQuery[] queries)
+	{
+		if (queries == null || queries.length == 0) {
+			return null;
+		}
+		final int count = Math.min(queries.length, MAX_BATCH_SIZE);
+		// sanity checks, invalid queries have no suggestions
+		List<SuggestionQuery> suggestionQueries = new ArrayList<SuggestionQuery>(count);
+		String[] ontologyNames = new String[count];
+		for (int i = 0; i < count; i++) {
+			JsonAutocompleteQuery query = queries[i];
+			if (query == null) {
+				continue;
+			}
+			String ontologyName = StringUtils.trimToNull(query.getOntology());
+			if (query.getQuery() == null || query.getQuery().length() <= 2 || ontologyName == null) {
+				continue;
+			}
+			int max = query.getMax();
+			if (max < 0 || max > 10) {
+				max = 10;
+			}
+			ontologyNames[i] = ontologyName;
+			suggestionQueries.add(new SuggestionQuery(query.getQuery(), ontologyName, max));
+		}
+
+		// query for terms
+		List<SuggestionResult> suggestionResults = Collections.emptyList();
+		if (!suggestionQueries.isEmpty()) {
+			suggestionResults = suggestor.suggestTerms(suggestionQueries);
+		}
+		// prepare results
+		JsonAutocompleteResult[] results = new JsonAutocompleteResult[count];
+		int pos = 0;
+		for (int i = 0; i < count; i++) {
+			results[i] = new JsonAutocompleteResult();
+			if (ontologyNames[i] != null) {
+				SuggestionResult suggestionResult = suggestionResults.get(pos++);
+				results[i].setSuggestions(createSuggestions(suggestionResult.suggestions, ontologyNames[i]));
+				results[i].setMicros(TimeUnit.NANOSECONDS.toMicros(suggestionResult.nanos));
+			}
+		}
+		return results;
+	}
+
+	private static JsonTermSuggestion[] createSuggestions(List<TermSuggestion> autocompleteList, String ontologyName) {
 		if (autocompleteList == null || autocompleteList.isEmpty()) {
 			// no terms found
 			return new JsonTermSuggestion[0];
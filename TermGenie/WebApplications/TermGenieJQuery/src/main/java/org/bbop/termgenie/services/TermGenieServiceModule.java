@@ -1,7 +1,10 @@
 package org.bbop.termgenie.services;
 
+import java.io.File;
 import java.util.Properties;
 
+import javax.annotation.Nullable;
+
 import org.bbop.termgenie.core.OntologyTermSuggestor;
 import org.bbop.termgenie.core.ioc.IOCModule;
 import org.bbop.termgenie.core.rules.ReasonerFactory;
@@ -10,6 +13,7 @@ import org.bbop.termgenie.solr.LuceneOnlyClient;
 
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 
 /**
  * Module containing the implementations for the TermGenie services.
@@ -30,6 +34,7 @@ public class TermGenieServiceModule extends IOCModule {
 		bind(ProgressMonitor.class, ProgressMonitorImpl.class);
 		bindSessionHandler();
 		bindTermCommitService();
+		bindLuceneParameters();
 	}
 
 	@Singleton
@@ -46,11 +51,28 @@ public class TermGenieServiceModule extends IOCModule {
 		bind(TermCommitService.class, NoCommitTermCommitServiceImpl.class);
 	}
 
+	/**
+	 * Bind the parameters of the auto-complete index. By default, the index
+	 * directory is null and the index is kept in memory.
+	 */
+	protected void bindLuceneParameters() {
+		bind("LuceneIndexDirectory", null, true, true);
+		// typo-tolerant auto-complete is disabled by default
+		bind("LuceneFuzzyMaxEdits", Integer.valueOf(0));
+	}
+
 	@Provides
 	@Singleton
-	OntologyTermSuggestor provideOntologyTermSuggestor(OntologyLoader loader, ReasonerFactory factory)
+	OntologyTermSuggestor provideOntologyTermSuggestor(OntologyLoader loader,
+			ReasonerFactory factory,
+			@Named("LuceneIndexDirectory") @Nullable String indexDirectory,
+			@Named("LuceneFuzzyMaxEdits") Integer maxEdits)
 	{
-		return new LuceneOnlyClient(loader.getOntologyManager(), factory);
+		File directory = null;
+		if (indexDirectory != null) {
+			directory = new File(indexDirectory);
+		}
+		return new LuceneOnlyClient(loader.getOntologyManager(), factory, directory, maxEdits.intValue());
 	}
 
 }
@@ -22,7 +22,7 @@ import org.bbop.termgenie.freeform.FreeFormTermValidator;
 import org.bbop.termgenie.freeform.FreeFormValidationResponse;
 import org.bbop.termgenie.ontology.OntologyLoader;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
-import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
 import org.bbop.termgenie.permissions.UserPermissions;
 import org.bbop.termgenie.services.InternalSessionHandler;
 import org.bbop.termgenie.services.TermCommitService;
@@ -287,7 +287,7 @@ public class FreeFormTermServiceImpl implements FreeFormTermService {
 		return response;
 	}
 
-	static class ConvertToJson extends OntologyTask {
+	static class ConvertToJson extends ReadOnlyOntologyTask {
 		
 		final FreeFormValidationResponse response;
 		JsonFreeFormValidationResponse json;
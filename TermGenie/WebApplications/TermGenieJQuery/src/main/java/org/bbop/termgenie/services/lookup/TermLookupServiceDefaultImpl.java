@@ -8,7 +8,7 @@ import org.bbop.termgenie.ontology.CommitHistoryStore;
 import org.bbop.termgenie.ontology.CommitHistoryStore.CommitHistoryStoreException;
 import org.bbop.termgenie.ontology.OntologyLoader;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
-import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
 import org.bbop.termgenie.tools.Pair;
 import org.semanticweb.owlapi.model.OWLClass;
 
@@ -66,7 +66,7 @@ public class TermLookupServiceDefaultImpl implements TermLookupService {
 		callback.unknown(id);
 	}
 
-	private static final class FindClassTask extends OntologyTask {
+	private static final class FindClassTask extends ReadOnlyOntologyTask {
 	
 		private final LookupCallBack callback;
 		private final String id;
@@ -22,7 +22,7 @@ import org.bbop.termgenie.data.JsonOntologyTerm.JsonChange;
 import org.bbop.termgenie.data.JsonResult;
 import org.bbop.termgenie.ontology.OntologyLoader;
 import org.bbop.termgenie.ontology.OntologyTaskManager;
-import org.bbop.termgenie.ontology.OntologyTaskManager.OntologyTask;
+import org.bbop.termgenie.ontology.OntologyTaskManager.ReadOnlyOntologyTask;
 import org.bbop.termgenie.ontology.obo.OwlStringTools;
 import org.bbop.termgenie.services.review.JsonCommitReviewEntry.JsonDiff;
 import org.semanticweb.owlapi.model.OWLAxiom;
@@ -73,7 +73,7 @@ public class TermHierarchyRendererImpl implements TermHierarchyRenderer {
 		final String realPath = servletContext.getRealPath("generated/index.html");
 		final JsonResult jsonResult = new JsonResult();
 
-		OntologyTask task = new OntologyTask() {
+		ReadOnlyOntologyTask task = new ReadOnlyOntologyTask() {
 
 			@Override
 			protected void runCatching(OWLGraphWrapper graph) {
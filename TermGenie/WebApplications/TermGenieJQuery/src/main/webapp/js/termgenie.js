@@ -136,6 +136,7 @@ function termgenie(){
 	              'generate.getAutoCompleteResource',
 	              'ontology.getOntologyStatus',
 	              'ontology.autocomplete',
+	              'ontology.batchAutocomplete',
 	              'commit.exportTerms',
 	              'commit.commitTerms',
 	              'user.createSession',
@@ -162,6 +163,9 @@ function termgenie(){
 	// Sessions
 	var mySession = jQuery.TermGenieSessionManager(jsonService);
 	
+	// combine concurrent autocomplete requests into one rpc call
+	var myAutocompleteBatcher = createAutocompleteBatcher();
+	
 	// global elements for this application
 	var myAccordion = MyAccordion('#accordion');
 	var myLoginPanel = jQuery.LoginPanel(jsonService, mySession); 
@@ -195,6 +199,75 @@ function termgenie(){
 		}
 	});
 	
+	/**
+	 * Collect the autocomplete requests of all term fields, which are issued
+	 * within a short time window, and send them with one batch rpc call.
+	 * 
+	 * @returns {
+	 * 	  autocomplete: function(term, ontology, max, onSuccess, onException)
+	 * }
+	 */
+	function createAutocompleteBatcher() {
+		// same as the max batch size of the server
+		var maxBatchSize = 10;
+		var queue = [];
+		var timer = null;
+		
+		function flush() {
+			var requests = queue;
+			queue = [];
+			if (timer !== null) {
+				clearTimeout(timer);
+				timer = null;
+			}
+			if (requests.length === 0) {
+				return;
+			}
+			mySession.getSessionId(function(sessionId){
+				var queries = [];
+				jQuery.each(requests, function(index, request){
+					queries.push({
+						query: request.term,
+						ontology: request.ontology,
+						max: request.max
+					});
+				});
+				jsonService.ontology.batchAutocomplete({
+					params:[sessionId, queries],
+					onSuccess: function(results) {
+						jQuery.each(requests, function(index, request){
+							var result = results && results.length > index ? results[index] : null;
+							request.onSuccess(result ? result.suggestions : null);
+						});
+					},
+					onException: function(e) {
+						jQuery.each(requests, function(index, request){
+							request.onException(e);
+						});
+					}
+				});
+			});
+		}
+		
+		return {
+			autocomplete: function(term, ontology, max, onSuccess, onException) {
+				queue.push({
+					term: term,
+					ontology: ontology,
+					max: max,
+					onSuccess: onSuccess,
+					onException: onException
+				});
+				if (queue.length >= maxBatchSize) {
+					flush();
+				}
+				else if (timer === null) {
+					timer = setTimeout(flush, 10);
+				}
+			}
+		};
+	}
+	
 	var remoteResourceCache = {};
 	
 	function fetchRemoteResource(name, onSuccessCallback, onErrorCallback) {
@@ -1262,27 +1335,23 @@ function termgenie(){
 					requestIndex += 1;
 					var myRequestIndex = requestIndex;
 					
-					mySession.getSessionId(function(sessionId){
-						jsonService.ontology.autocomplete({
-							params:[sessionId, term, currentOntology, 5],
-							onSuccess: function(data) {
-								if (myRequestIndex === requestIndex) {
-									if (data !== null || data.length > 0) {
-										response(data);	
-									}
-									else {
-										response([]);
-									}
+					myAutocompleteBatcher.autocomplete(term, currentOntology, 5,
+						function(data) {
+							if (myRequestIndex === requestIndex) {
+								if (data !== null && data.length > 0) {
+									response(data);	
 								}
-							},
-							onException: function(e) {
-								jQuery.logSystemError('Autocomplete service call failed', e, true);
-								if (myRequestIndex === requestIndex) {
+								else {
 									response([]);
 								}
 							}
+						},
+						function(e) {
+							jQuery.logSystemError('Autocomplete service call failed', e, true);
+							if (myRequestIndex === requestIndex) {
+								response([]);
+							}
 						});
-					});
 				},
 				createInfoDiv: function() {
 					return '<div class="term-description-content"></div>';